@@ -0,0 +1,64 @@
+package com.dfrm.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Enkel kretsbrytare för anrop mot externa tjänster.
+ * Efter ett antal fel i följd öppnas brytaren och anrop avvisas direkt under en viss tid.
+ * Därefter släpps ett provanrop igenom, lyckas det stängs brytaren igen.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Avgör om ett anrop får göras. Ett godkänt anrop måste följas av
+     * {@link #onSuccess()} eller {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            // Släpp igenom ett provanrop
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Kretsbrytare {} stängd igen", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            log.warn("Kretsbrytare {} öppnad efter {} fel i följd", name, consecutiveFailures);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -1,32 +1,108 @@
 package com.dfrm.client;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.dfrm.model.Language;
+import com.dfrm.service.LanguageDetector;
+import com.dfrm.service.MetricsService;
+import com.dfrm.service.TranslationMemoryService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class GoogleTranslateClient {
     
     @Value("${google.translate.api.key}")
     private String apiKey;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Kan pekas om mot en lokal stub i tester
+    @Value("${google.translate.base-url:https://translation.googleapis.com/language/translate/v2}")
+    private String baseUrl;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TranslationMemoryService translationMemory;
+    private final LanguageDetector languageDetector;
+    private final MetricsService metricsService;
+    
+    @Value("${google.translate.max-concurrency:4}")
+    private int maxConcurrency;
+    
+    @Value("${google.translate.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+    
+    @Value("${google.translate.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+    
+    @Value("${google.translate.max-in-flight:8}")
+    private int maxInFlight;
+    
+    @Value("${google.translate.circuit.failure-threshold:5}")
+    private int failureThreshold;
+    
+    @Value("${google.translate.circuit.open-seconds:30}")
+    private long openSeconds;
+    
+    private RestTemplate restTemplate;
+    private ExecutorService translationExecutor;
+    private Semaphore inFlight;
+    private CircuitBreaker circuitBreaker;
+    
+    @PostConstruct
+    public void init() {
+        // Delad HTTP-klient med keep-alive och strikta tidsgränser, ett långsamt API ska inte låsa trådar
+        HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        restTemplate = new RestTemplate(requestFactory);
+        
+        inFlight = new Semaphore(maxInFlight);
+        circuitBreaker = new CircuitBreaker("google-translate", failureThreshold, openSeconds * 1000);
+        metricsService.registerGauge("translate.circuit.state", () -> circuitBreaker.getState().ordinal());
+        metricsService.registerGauge("translate.inFlight", () -> maxInFlight - inFlight.availablePermits());
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        translationExecutor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "translate-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        translationExecutor.shutdown();
+    }
     
     // Supporterade språk
     private static final String SWEDISH = "sv";
@@ -35,8 +111,11 @@ public class GoogleTranslateClient {
     private static final String UKRAINIAN = "uk";
     
     /**
-     * Detekterar språket i en text med Google Translate API
-     * 
+     * Detekterar språket i en text, i första hand lokalt med {@link LanguageDetector}.
+     * Bara när detektorn är osäker, vid för kort text eller säkerhet under
+     * dfrm.language-detection.min-confidence, används översättningsminnet och därefter
+     * Google Translate API.
+     *
      * @param text Texten vars språk ska detekteras
      * @return Språkkoden för det detekterade språket
      */
@@ -45,12 +124,25 @@ public class GoogleTranslateClient {
             return SWEDISH; // Standard är svenska om texten är tom
         }
         
+        // Lokal detektering först, API:t används bara när den är osäker
+        Language detected = languageDetector.detect(text);
+        if (detected != null) {
+            metricsService.increment("language.detection.local");
+            return detected.getCode();
+        }
+        metricsService.increment("language.detection.remote");
+        
+        Optional<String> remembered = translationMemory.findDetectedLanguage(text);
+        if (remembered.isPresent()) {
+            return remembered.get();
+        }
+        
         log.info("Detecting language for text: {} (first 50 chars)", 
                 text.length() > 50 ? text.substring(0, 50) + "..." : text);
         
         try {
             // Skapa URL för Google Detect Language API
-            String url = UriComponentsBuilder.fromHttpUrl("https://translation.googleapis.com/language/translate/v2/detect")
+            String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/detect")
                 .queryParam("key", apiKey)
                 .toUriString();
             
@@ -64,11 +156,10 @@ public class GoogleTranslateClient {
             
             // Skicka request
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.POST, entity, String.class);
+            String responseBody = post(url, entity);
             
             // Parsa svaret
-            JsonNode rootNode = objectMapper.readTree(response.getBody());
+            JsonNode rootNode = objectMapper.readTree(responseBody);
             String languageCode = rootNode
                 .path("data")
                 .path("detections")
@@ -85,9 +176,10 @@ public class GoogleTranslateClient {
                 !languageCode.equals(POLISH) && 
                 !languageCode.equals(UKRAINIAN)) {
                 log.info("Unsupported language detected ({}), defaulting to English", languageCode);
-                return ENGLISH;
+                languageCode = ENGLISH;
             }
             
+            translationMemory.saveDetectedLanguage(text, languageCode);
             return languageCode;
             
         } catch (Exception e) {
@@ -106,13 +198,32 @@ public class GoogleTranslateClient {
      * @return Den översatta texten
      */
     public String translate(String text, String sourceLanguage, String targetLanguage) {
+        return tryTranslate(text, sourceLanguage, targetLanguage)
+            .orElseGet(() -> addPrefix(text, targetLanguage));
+    }
+    
+    /**
+     * Översätter text utan reservtext, så att anroparen kan skilja en misslyckad
+     * översättning från en riktig
+     * 
+     * @param text Texten som ska översättas
+     * @param sourceLanguage Källspråket
+     * @param targetLanguage Målspråket
+     * @return Den översatta texten, eller tom om översättningen misslyckades
+     */
+    public Optional<String> tryTranslate(String text, String sourceLanguage, String targetLanguage) {
         if (text == null || text.trim().isEmpty()) {
-            return text;
+            return Optional.ofNullable(text);
         }
         
         // Om källspråk och målspråk är samma, returnera ursprungstexten
         if (sourceLanguage.equals(targetLanguage)) {
-            return text;
+            return Optional.of(text);
+        }
+        
+        Optional<String> remembered = translationMemory.findTranslation(text, sourceLanguage, targetLanguage);
+        if (remembered.isPresent()) {
+            return remembered;
         }
         
         log.info("Translating text from {} to {}: {} (first 50 chars)", 
@@ -121,7 +232,7 @@ public class GoogleTranslateClient {
         
         try {
             // Skapa URL för Google Translate API
-            String url = UriComponentsBuilder.fromHttpUrl("https://translation.googleapis.com/language/translate/v2")
+            String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("key", apiKey)
                 .toUriString();
             
@@ -138,11 +249,10 @@ public class GoogleTranslateClient {
             
             // Skicka request
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.POST, entity, String.class);
+            String responseBody = post(url, entity);
             
             // Parsa svaret
-            JsonNode rootNode = objectMapper.readTree(response.getBody());
+            JsonNode rootNode = objectMapper.readTree(responseBody);
             String translatedText = rootNode
                 .path("data")
                 .path("translations")
@@ -151,15 +261,29 @@ public class GoogleTranslateClient {
                 .asText();
             
             log.info("Translation successful");
-            return translatedText;
+            // Bara lyckade översättningar sparas, aldrig reservtexten nedan
+            translationMemory.saveTranslation(text, sourceLanguage, targetLanguage, translatedText);
+            return Optional.of(translatedText);
             
         } catch (Exception e) {
             log.error("Error translating text: {}", e.getMessage(), e);
-            // Fallback till att lägga till ett prefix på originaltexten vid fel
-            return addPrefix(text, targetLanguage);
+            // Anroparen avgör vad som visas vid fel, translate lägger till ett prefix på originaltexten
+            return Optional.empty();
         }
     }
     
+    /**
+     * Översätter text i bakgrunden på översättningstrådarna
+     * 
+     * @param text Texten som ska översättas
+     * @param sourceLanguage Källspråket
+     * @param targetLanguage Målspråket
+     * @return Framtida översättning, tom om översättningen misslyckades
+     */
+    public CompletableFuture<Optional<String>> translateAsync(String text, String sourceLanguage, String targetLanguage) {
+        return CompletableFuture.supplyAsync(() -> tryTranslate(text, sourceLanguage, targetLanguage), translationExecutor);
+    }
+    
     /**
      * Översätter text till flera språk samtidigt
      * 
@@ -174,17 +298,56 @@ public class GoogleTranslateClient {
         // Lägg till källspråket direkt
         translations.put(sourceLanguage, text);
         
-        // Översätt till varje målspråk
-        for (String targetLanguage : targetLanguages) {
-            if (!targetLanguage.equals(sourceLanguage)) {
-                String translatedText = translate(text, sourceLanguage, targetLanguage);
-                translations.put(targetLanguage, translatedText);
-            }
+        List<String> pending = targetLanguages.stream()
+            .filter(targetLanguage -> !targetLanguage.equals(sourceLanguage))
+            .distinct()
+            .collect(Collectors.toList());
+        
+        if (pending.size() <= 1) {
+            pending.forEach(targetLanguage -> translations.put(targetLanguage, translate(text, sourceLanguage, targetLanguage)));
+            return translations;
+        }
+        
+        // API:t tar bara ett målspråk per anrop, så målspråken översätts parallellt istället för i följd.
+        // translate kastar aldrig utan faller tillbaka på originaltexten vid fel.
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String targetLanguage : pending) {
+            futures.put(targetLanguage,
+                CompletableFuture.supplyAsync(() -> translate(text, sourceLanguage, targetLanguage), translationExecutor));
         }
+        futures.forEach((targetLanguage, future) -> translations.put(targetLanguage, future.join()));
         
         return translations;
     }
     
+    /**
+     * Skickar ett anrop till API:t genom kretsbrytaren och begränsningen av samtidiga anrop.
+     * Kastar direkt om brytaren är öppen eller för många anrop pågår, anroparen faller då
+     * tillbaka på sitt vanliga felbeteende.
+     */
+    private String post(String url, HttpEntity<Map<String, Object>> entity) {
+        if (!inFlight.tryAcquire()) {
+            metricsService.increment("translate.rejected.bulkhead");
+            throw new IllegalStateException("För många samtidiga översättningsanrop");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                metricsService.increment("translate.rejected.circuit");
+                throw new IllegalStateException("Kretsbrytaren för Google Translate är öppen");
+            }
+            try {
+                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+                circuitBreaker.onSuccess();
+                return response.getBody();
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+    
     // Hjälpmetod för att lägga till språkspecifik prefix för fallbacks
     private String addPrefix(String text, String targetLanguage) {
         switch (targetLanguage) {
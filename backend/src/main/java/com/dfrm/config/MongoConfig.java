@@ -1,18 +1,28 @@
 package com.dfrm.config;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.util.ClassUtils;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 
+import lombok.extern.slf4j.Slf4j;
+
 @Configuration
+@Slf4j
 @EnableMongoRepositories(basePackages = "com.dfrm.repository")
 public class MongoConfig extends AbstractMongoClientConfiguration {
 
@@ -21,6 +31,12 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     
     @Value("${spring.data.mongodb.uri:#{null}}")
     private String mongoUri;
+    
+    @Autowired
+    private MongoPoolProperties poolProperties;
+    
+    @Autowired
+    private MongoMetricsListener metricsListener;
 
     @Override
     protected String getDatabaseName() {
@@ -90,10 +106,78 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         System.out.println("Using MongoDB connection URI: " + connectionUri.replaceAll(":[^:@]+@", ":***@"));
         
         ConnectionString connectionString = new ConnectionString(connectionUri);
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
             .applyConnectionString(connectionString)
-            .build();
-        return MongoClients.create(mongoClientSettings);
+            .addCommandListener(metricsListener);
+        
+        // Poolinställningar från spring.data.mongodb.pool.* går före anslutningssträngen
+        settings.applyToConnectionPoolSettings(pool -> {
+            if (poolProperties.getMaxSize() != null) {
+                pool.maxSize(poolProperties.getMaxSize());
+            }
+            if (poolProperties.getMinSize() != null) {
+                pool.minSize(poolProperties.getMinSize());
+            }
+            if (poolProperties.getMaxWaitMs() != null) {
+                pool.maxWaitTime(poolProperties.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+            }
+            if (poolProperties.getMaxIdleMs() != null) {
+                pool.maxConnectionIdleTime(poolProperties.getMaxIdleMs(), TimeUnit.MILLISECONDS);
+            }
+            if (poolProperties.getMaxLifeMs() != null) {
+                pool.maxConnectionLifeTime(poolProperties.getMaxLifeMs(), TimeUnit.MILLISECONDS);
+            }
+            pool.addConnectionPoolListener(metricsListener);
+        });
+        
+        if (poolProperties.getServerSelectionTimeoutMs() != null) {
+            settings.applyToClusterSettings(cluster -> 
+                cluster.serverSelectionTimeout(poolProperties.getServerSelectionTimeoutMs(), TimeUnit.MILLISECONDS));
+        }
+        
+        List<MongoCompressor> compressors = resolveCompressors(poolProperties.getCompressors());
+        if (!compressors.isEmpty()) {
+            settings.compressorList(compressors);
+        }
+        
+        return MongoClients.create(settings.build());
+    }
+    
+    /**
+     * Översätter konfigurerade komprimeringsnamn till drivrutinens kompressorer.
+     * zstd och snappy kräver externa bibliotek och hoppas över om de saknas på classpath.
+     */
+    private List<MongoCompressor> resolveCompressors(List<String> names) {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        if (names == null) {
+            return compressors;
+        }
+        for (String name : names) {
+            switch (name.trim().toLowerCase()) {
+                case "zstd" -> {
+                    if (isPresent("com.github.luben.zstd.Zstd")) {
+                        compressors.add(MongoCompressor.createZstdCompressor());
+                    } else {
+                        log.warn("zstd-komprimering konfigurerad men zstd-jni saknas, hoppar över");
+                    }
+                }
+                case "snappy" -> {
+                    if (isPresent("org.xerial.snappy.Snappy")) {
+                        compressors.add(MongoCompressor.createSnappyCompressor());
+                    } else {
+                        log.warn("snappy-komprimering konfigurerad men snappy-java saknas, hoppar över");
+                    }
+                }
+                case "zlib" -> compressors.add(MongoCompressor.createZlibCompressor());
+                case "" -> { }
+                default -> log.warn("Okänd komprimering '{}' ignoreras", name);
+            }
+        }
+        return compressors;
+    }
+    
+    private boolean isPresent(String className) {
+        return ClassUtils.isPresent(className, getClass().getClassLoader());
     }
 
     @Bean
@@ -0,0 +1,140 @@
+package com.dfrm.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Central förteckning över alla index som applikationens frågor förutsätter.
+ * Indexen skapas vid uppstart. Att skapa ett index som redan finns är en no-op,
+ * så registret kan köras vid varje start.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexRegistry {
+
+    private static final Map<String, List<Index>> INDEXES = buildIndexes();
+
+    private final MongoTemplate mongoTemplate;
+
+    private static Map<String, List<Index>> buildIndexes() {
+        Map<String, List<Index>> indexes = new LinkedHashMap<>();
+
+        indexes.put("tasks", List.of(
+            new Index().on("status", Sort.Direction.ASC).on("dueDate", Sort.Direction.ASC).named("status_dueDate"),
+            new Index().on("dueDate", Sort.Direction.ASC).on("status", Sort.Direction.ASC).named("dueDate_status"),
+            new Index().on("assignedToUserId", Sort.Direction.ASC).on("dueDate", Sort.Direction.ASC).named("assignedToUserId_dueDate"),
+            new Index().on("assignedByUserId", Sort.Direction.ASC).on("dueDate", Sort.Direction.ASC).named("assignedByUserId_dueDate"),
+            new Index().on("apartmentId", Sort.Direction.ASC).on("status", Sort.Direction.ASC).named("apartmentId_status"),
+            new Index().on("tenantId", Sort.Direction.ASC).on("status", Sort.Direction.ASC).named("tenantId_status"),
+            new Index().on("priority", Sort.Direction.ASC).on("status", Sort.Direction.ASC).named("priority_status"),
+            new Index().on("isRecurring", Sort.Direction.ASC).on("recurringPattern", Sort.Direction.ASC).named("isRecurring_recurringPattern")
+        ));
+
+        indexes.put("pending_tasks", List.of(
+            new Index().on("status", Sort.Direction.ASC).on("received", Sort.Direction.DESC).named("status_received"),
+            new Index().on("reviewedBy", Sort.Direction.ASC).on("reviewedAt", Sort.Direction.DESC).named("reviewedBy_reviewedAt"),
+            new Index().on("requestedByTenant.$id", Sort.Direction.ASC).named("requestedByTenant"),
+            new Index().on("requestedByApartment.$id", Sort.Direction.ASC).named("requestedByApartment"),
+            new Index().on("taskId", Sort.Direction.ASC).named("taskId"),
+            new Index().on("requestedAt", Sort.Direction.DESC).named("requestedAt"),
+            new Index().on("sourceMessageId", Sort.Direction.ASC).unique().sparse().named("sourceMessageId")
+        ));
+
+        indexes.put("interests", List.of(
+            new Index().on("hashId", Sort.Direction.ASC).unique().sparse().named("hashId"),
+            new Index().on("status", Sort.Direction.ASC).on("received", Sort.Direction.DESC).named("status_received"),
+            new Index().on("status", Sort.Direction.ASC).on("reviewedAt", Sort.Direction.DESC).named("status_reviewedAt"),
+            new Index().on("email", Sort.Direction.ASC).named("email"),
+            new Index().on("sourceMessageId", Sort.Direction.ASC).unique().sparse().named("sourceMessageId")
+        ));
+
+        indexes.put("showings", List.of(
+            new Index().on("assignedTo.$id", Sort.Direction.ASC).on("status", Sort.Direction.ASC).named("assignedTo_status"),
+            new Index().on("status", Sort.Direction.ASC).on("dateTime", Sort.Direction.ASC).named("status_dateTime"),
+            new Index().on("dateTime", Sort.Direction.ASC).named("dateTime"),
+            new Index().on("relatedInterestId", Sort.Direction.ASC).named("relatedInterestId")
+        ));
+
+        indexes.put("task_messages", List.of(
+            new Index().on("taskId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC).named("taskId_timestamp")
+        ));
+
+        indexes.put("keys", List.of(
+            new Index().on("serie", Sort.Direction.ASC).on("number", Sort.Direction.ASC).named("serie_number"),
+            new Index().on("apartmentId", Sort.Direction.ASC).named("apartmentId"),
+            new Index().on("tenantId", Sort.Direction.ASC).named("tenantId"),
+            new Index().on("type", Sort.Direction.ASC).named("type")
+        ));
+
+        indexes.put("tenants", List.of(
+            new Index().on("email", Sort.Direction.ASC).named("email"),
+            new Index().on("personnummer", Sort.Direction.ASC).named("personnummer"),
+            new Index().on("lastName", Sort.Direction.ASC).named("lastName"),
+            new Index().on("apartmentId", Sort.Direction.ASC).named("apartmentId"),
+            new Index().on("movedInDate", Sort.Direction.ASC).named("movedInDate"),
+            new Index().on("resiliationDate", Sort.Direction.ASC).sparse().named("resiliationDate")
+        ));
+
+        indexes.put("apartments", List.of(
+            new Index().on("street", Sort.Direction.ASC).on("number", Sort.Direction.ASC)
+                .on("apartmentNumber", Sort.Direction.ASC).named("street_number_apartmentNumber"),
+            new Index().on("city", Sort.Direction.ASC).named("city")
+        ));
+
+        indexes.put("users", List.of(
+            new Index().on("email", Sort.Direction.ASC).unique().named("email")
+        ));
+
+        return indexes;
+    }
+
+    /**
+     * Hämtar de registrerade indexen per kollektion
+     *
+     * @return Index grupperade på kollektionsnamn
+     */
+    public Map<String, List<Index>> getIndexes() {
+        return INDEXES;
+    }
+
+    /**
+     * Skapar alla registrerade index som inte redan finns
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        log.info("Kontrollerar MongoDB-index för {} kollektioner", INDEXES.size());
+        int failed = 0;
+
+        for (Map.Entry<String, List<Index>> entry : INDEXES.entrySet()) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entry.getKey());
+            for (Index index : entry.getValue()) {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("Kunde inte skapa index {} på {}: {}",
+                        index.getIndexOptions().get("name"), entry.getKey(), e.getMessage());
+                }
+            }
+        }
+
+        if (failed > 0) {
+            log.warn("Indexkontroll slutförd med {} misslyckade index", failed);
+        } else {
+            log.info("Indexkontroll slutförd");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dfrm.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.dfrm.service.MetricsService;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rapporterar anslutningspoolens och kommandonas tillstånd till MetricsService:
+ * utlånade anslutningar, väntande trådar, poolstorlek och svarstid per kommando.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoMetricsListener implements ConnectionPoolListener, CommandListener {
+
+    private final MetricsService metricsService;
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        metricsService.gauge("mongodb.pool.waitQueue").incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        metricsService.gauge("mongodb.pool.waitQueue").decrementAndGet();
+        metricsService.gauge("mongodb.pool.checkedOut").incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        metricsService.gauge("mongodb.pool.waitQueue").decrementAndGet();
+        metricsService.increment("mongodb.pool.checkOutFailed." + event.getReason().name().toLowerCase());
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        metricsService.gauge("mongodb.pool.checkedOut").decrementAndGet();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        metricsService.gauge("mongodb.pool.size").incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        metricsService.gauge("mongodb.pool.size").decrementAndGet();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        metricsService.recordTime("mongodb.command." + event.getCommandName(),
+                event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        metricsService.recordTime("mongodb.command." + event.getCommandName(),
+                event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        metricsService.increment("mongodb.command.failed." + event.getCommandName());
+    }
+}
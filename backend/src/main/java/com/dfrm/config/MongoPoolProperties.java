@@ -0,0 +1,40 @@
+package com.dfrm.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Inställningar för MongoDB-klientens anslutningspool och nätverk.
+ * Ej satta värden lämnas till anslutningssträngen eller drivrutinens standard.
+ */
+@Component
+@Getter
+public class MongoPoolProperties {
+
+    @Value("${spring.data.mongodb.pool.max-size:#{null}}")
+    private Integer maxSize;
+
+    @Value("${spring.data.mongodb.pool.min-size:#{null}}")
+    private Integer minSize;
+
+    // Hur länge en tråd får vänta på en ledig anslutning
+    @Value("${spring.data.mongodb.pool.max-wait-ms:#{null}}")
+    private Long maxWaitMs;
+
+    @Value("${spring.data.mongodb.pool.max-idle-ms:#{null}}")
+    private Long maxIdleMs;
+
+    @Value("${spring.data.mongodb.pool.max-life-ms:#{null}}")
+    private Long maxLifeMs;
+
+    @Value("${spring.data.mongodb.pool.server-selection-timeout-ms:#{null}}")
+    private Long serverSelectionTimeoutMs;
+
+    // Komprimering i prioritetsordning: zstd, snappy, zlib
+    @Value("${spring.data.mongodb.pool.compressors:}")
+    private List<String> compressors;
+}
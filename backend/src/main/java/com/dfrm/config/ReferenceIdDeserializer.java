@@ -0,0 +1,31 @@
+package com.dfrm.config;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Deserializer för referensfält som lagras som ID.
+ * Accepterar både ett ID som sträng och ett objekt med ett id-fält,
+ * eftersom klienten ibland skickar hela det refererade objektet.
+ */
+public class ReferenceIdDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_STRING) {
+            String value = p.getValueAsString();
+            return value == null || value.isEmpty() ? null : value;
+        }
+
+        JsonNode node = p.readValueAsTree();
+        if (node != null && node.hasNonNull("id")) {
+            return node.get("id").asText();
+        }
+        return null;
+    }
+}
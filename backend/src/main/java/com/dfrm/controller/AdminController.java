@@ -0,0 +1,42 @@
+package com.dfrm.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dfrm.service.MetricsService;
+import com.dfrm.service.QueryPlanService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final QueryPlanService queryPlanService;
+    private final MetricsService metricsService;
+
+    /**
+     * Kör explain på repositoryfrågorna och flaggar de som gör COLLSCAN
+     */
+    @GetMapping("/query-plans")
+    @PreAuthorize("hasAnyAuthority('ROLE_SUPERADMIN', 'ROLE_ADMIN', 'SUPERADMIN', 'ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getQueryPlans() {
+        return ResponseEntity.ok(queryPlanService.explainRepositoryQueries());
+    }
+
+    /**
+     * Aktuella räknare, mätare och tider från MetricsService
+     */
+    @GetMapping("/metrics")
+    @PreAuthorize("hasAnyAuthority('ROLE_SUPERADMIN', 'ROLE_ADMIN', 'SUPERADMIN', 'ADMIN')")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(metricsService.snapshot());
+    }
+}
@@ -18,9 +18,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.dfrm.model.Apartment;
+import com.dfrm.model.CursorPage;
 import com.dfrm.service.ApartmentService;
+import com.dfrm.service.CollectionVersionService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -29,14 +32,35 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ApartmentController {
     private final ApartmentService apartmentService;
+    private final CollectionVersionService collectionVersionService;
     
     @GetMapping
-    public List<Apartment> getAllApartments() {
+    public List<Apartment> getAllApartments(WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, Apartment.class)) {
+            return null;
+        }
         return apartmentService.getAllApartments();
     }
     
+    /**
+     * Hämtar en sida med lägenheter med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Apartment>> getApartmentPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(apartmentService.getApartmentPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Apartment> getApartmentById(@PathVariable String id) {
+    public ResponseEntity<Apartment> getApartmentById(@PathVariable String id, WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, id, Apartment.class)) {
+            return null;
+        }
         return apartmentService.getApartmentById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,29 @@
+package com.dfrm.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dfrm.model.DashboardCounters;
+import com.dfrm.service.DashboardService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    /**
+     * Hämtar alla dashboardräknare i ett anrop
+     */
+    @GetMapping("/counters")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<DashboardCounters> getCounters() {
+        return ResponseEntity.ok(dashboardService.getCounters());
+    }
+}
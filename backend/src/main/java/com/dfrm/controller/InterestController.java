@@ -22,9 +22,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Interest;
+import com.dfrm.model.InterestSummary;
+import com.dfrm.model.Showing;
+import com.dfrm.model.Task;
 import com.dfrm.model.User;
+import com.dfrm.service.CollectionVersionService;
 import com.dfrm.service.EmailService;
 import com.dfrm.service.InterestService;
 import com.dfrm.service.UserService;
@@ -39,10 +45,16 @@ public class InterestController {
     private final InterestService interestService;
     private final UserService userService;
     private final EmailService emailService;
+    private final CollectionVersionService collectionVersionService;
     private static final Logger log = LoggerFactory.getLogger(InterestController.class);
 
     @GetMapping
-    public List<Interest> getAllInterests(@RequestParam(required = false, defaultValue = "false") boolean includeShowings) {
+    public List<Interest> getAllInterests(
+            @RequestParam(required = false, defaultValue = "false") boolean includeShowings,
+            WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, Interest.class, User.class, Task.class, Showing.class)) {
+            return null;
+        }
         if (includeShowings) {
             log.info("Hämtar alla intresseanmälningar med visningsinformation");
             return interestService.getAllInterestsWithShowings();
@@ -51,8 +63,33 @@ public class InterestController {
         }
     }
 
+    /**
+     * Hämtar intresseanmälningar som listrader utan meddelande och översättningar
+     */
+    @GetMapping("/summary")
+    public List<InterestSummary> getInterestSummaries(@RequestParam(required = false) String status) {
+        return interestService.getInterestSummaries(status);
+    }
+
+    /**
+     * Hämtar en sida med intresseanmälningar som listrader, nyast först med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<InterestSummary>> getInterestPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(interestService.getInterestPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Interest> getInterestById(@PathVariable String id) {
+    public ResponseEntity<Interest> getInterestById(@PathVariable String id, WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, id, Interest.class, User.class, Task.class)) {
+            return null;
+        }
         return interestService.getInterestById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
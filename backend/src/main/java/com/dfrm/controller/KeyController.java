@@ -17,8 +17,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Key;
+import com.dfrm.service.CollectionVersionService;
 import com.dfrm.service.KeyService;
 
 import lombok.RequiredArgsConstructor;
@@ -28,14 +31,35 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class KeyController {
     private final KeyService keyService;
+    private final CollectionVersionService collectionVersionService;
     
     @GetMapping
-    public List<Key> getAllKeys() {
+    public List<Key> getAllKeys(WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, Key.class)) {
+            return null;
+        }
         return keyService.getAllKeys();
     }
     
+    /**
+     * Hämtar en sida med nycklar med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Key>> getKeyPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(keyService.getKeyPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Key> getKeyById(@PathVariable String id) {
+    public ResponseEntity<Key> getKeyById(@PathVariable String id, WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, id, Key.class)) {
+            return null;
+        }
         return keyService.getKeyById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -166,15 +190,15 @@ public class KeyController {
             sql.append("    ").append(key.getIsAvailable() != null ? key.getIsAvailable() : true).append(",\n");
             
             // Hantera apartmentId som kan vara null
-            if (key.getApartment() != null) {
-                sql.append("    '").append(key.getApartment().getId()).append("',\n");
+            if (key.getApartmentId() != null) {
+                sql.append("    '").append(key.getApartmentId()).append("',\n");
             } else {
                 sql.append("    NULL,\n");
             }
             
             // Hantera tenantId som kan vara null
-            if (key.getTenant() != null) {
-                sql.append("    '").append(key.getTenant().getId()).append("'\n");
+            if (key.getTenantId() != null) {
+                sql.append("    '").append(key.getTenantId()).append("'\n");
             } else {
                 sql.append("    NULL\n");
             }
@@ -19,16 +19,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.dfrm.model.Apartment;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.PendingTask;
+import com.dfrm.model.PendingTaskSummary;
 import com.dfrm.model.Task;
 import com.dfrm.model.Tenant;
 import com.dfrm.model.User;
 import com.dfrm.repository.PendingTaskRepository;
 import com.dfrm.service.ApartmentService;
 import com.dfrm.service.PendingTaskService;
+import com.dfrm.service.ReferenceResolver;
 import com.dfrm.service.TaskService;
 import com.dfrm.service.TenantService;
 import com.dfrm.service.UserService;
@@ -46,6 +50,7 @@ public class PendingTaskController {
     private final PendingTaskRepository pendingTaskRepository;
     private final TenantService tenantService;
     private final ApartmentService apartmentService;
+    private final ReferenceResolver referenceResolver;
     private static final Logger log = LoggerFactory.getLogger(PendingTaskController.class);
 
     @GetMapping
@@ -53,6 +58,14 @@ public class PendingTaskController {
         return pendingTaskService.getAllPendingTasks();
     }
 
+    /**
+     * Hämtar väntande uppgifter som listrader utan beskrivning och översättningar
+     */
+    @GetMapping("/summary")
+    public List<PendingTaskSummary> getPendingTaskSummaries(@RequestParam(required = false) String status) {
+        return pendingTaskService.getPendingTaskSummaries(status);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PendingTask> getPendingTaskById(@PathVariable String id) {
         return pendingTaskService.getPendingTaskById(id)
@@ -72,7 +85,8 @@ public class PendingTaskController {
 
     @GetMapping("/approved")
     public ResponseEntity<List<PendingTask>> getApprovedTasks() {
-        List<PendingTask> approvedTasks = pendingTaskRepository.findByReviewedByIsNotNullOrderByReviewedAtDesc();
+        List<PendingTask> approvedTasks = referenceResolver.resolveTasks(
+                pendingTaskRepository.findByReviewedByIsNotNullOrderByReviewedAtDesc());
         log.info("Hämtar godkända uppgifter, hittade {} uppgifter", approvedTasks.size());
         
         // Logga detaljer för debugging
@@ -218,7 +232,7 @@ public class PendingTaskController {
         
         // Filtrera ut e-postrapporter - de som inte har Task-objekt och troligen kommer från EmailListener
         List<PendingTask> emailReports = allTasks.stream()
-            .filter(task -> task.getTask() == null) // Måste vara utan Task-objekt för att vara en e-postrapport
+            .filter(task -> task.getTaskId() == null) // Måste vara utan Task-objekt för att vara en e-postrapport
             .filter(task -> task.getDescription() != null) // Måste ha beskrivning
             .collect(java.util.stream.Collectors.toList());
         
@@ -226,97 +240,119 @@ public class PendingTaskController {
                 emailReports.size(), allTasks.size());
         
         // Manuellt hantera requestedBy för e-postrapporter som kan ha tillfälliga användare
-        for (PendingTask report : emailReports) {
-            // Försök hitta hyresgäst baserat på e-post eller namn
-            if (report.getEmail() != null && !report.getEmail().isEmpty()) {
-                try {
-                    Optional<Tenant> tenant = tenantService.findTenantByEmail(report.getEmail());
-                    if (tenant.isPresent()) {
-                        Tenant foundTenant = tenant.get();
-                        report.setTenantId(foundTenant.getId());
-                        report.setRequestedByTenant(foundTenant);
-                        
-                        // Om hyresgästen har en lägenhet, sätt även den
-                        if (foundTenant.getApartment() != null) {
-                            report.setApartmentId(foundTenant.getApartment().getId());
-                            report.setRequestedByApartment(foundTenant.getApartment());
-                        }
+        emailReports.forEach(this::enrichEmailReport);
+        
+        return ResponseEntity.ok(emailReports);
+    }
+    
+    /**
+     * Hämtar en sida med e-postrapporter med cursor-baserad paginering
+     */
+    @GetMapping("/email-reports/page")
+    public ResponseEntity<CursorPage<PendingTask>> getEmailReportPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            CursorPage<PendingTask> page = pendingTaskService.getEmailReportPage(cursor, limit);
+            page.getItems().forEach(this::enrichEmailReport);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Kompletterar en e-postrapport med hyresgäst, lägenhet, ämne och status
+     */
+    private void enrichEmailReport(PendingTask report) {
+        // Försök hitta hyresgäst baserat på e-post eller namn
+        if (report.getEmail() != null && !report.getEmail().isEmpty()) {
+            try {
+                Optional<Tenant> tenant = tenantService.findTenantByEmail(report.getEmail());
+                if (tenant.isPresent()) {
+                    Tenant foundTenant = tenant.get();
+                    report.setTenantId(foundTenant.getId());
+                    report.setRequestedByTenant(foundTenant);
+                    
+                    // Om hyresgästen har en lägenhet, sätt även den
+                    if (foundTenant.getApartmentId() != null) {
+                        report.setApartmentId(foundTenant.getApartmentId());
+                        apartmentService.getApartmentById(foundTenant.getApartmentId())
+                            .ifPresent(report::setRequestedByApartment);
                     }
-                } catch (Exception e) {
-                    // Logga felet men fortsätt processen
-                    log.error("Kunde inte hitta hyresgäst för e-post: {}", report.getEmail(), e);
                 }
+            } catch (Exception e) {
+                // Logga felet men fortsätt processen
+                log.error("Kunde inte hitta hyresgäst för e-post: {}", report.getEmail(), e);
             }
-            
-            // Om vi inte hittade hyresgäst via e-post, försök med namn och lägenhetsnummer
-            if (report.getRequestedByTenant() == null && report.getName() != null && 
-                !report.getName().isEmpty() && report.getApartment() != null && report.getAddress() != null) {
-                try {
-                    Optional<Apartment> apartment = apartmentService.findByStreetAddressAndApartmentNumber(
-                        report.getAddress(), 
-                        report.getApartment()
-                    );
-                    if (apartment.isPresent()) {
-                        Apartment foundApartment = apartment.get();
-                        report.setApartmentId(foundApartment.getId());
-                        report.setRequestedByApartment(foundApartment);
-                        
-                        // Försök matcha hyresgäst i lägenheten baserat på namn
-                        for (Tenant tenant : foundApartment.getTenants()) {
-                            String fullName = tenant.getFirstName() + " " + tenant.getLastName();
-                            if (report.getName().equalsIgnoreCase(fullName)) {
-                                report.setTenantId(tenant.getId());
-                                report.setRequestedByTenant(tenant);
-                                break;
-                            }
+        }
+        
+        // Om vi inte hittade hyresgäst via e-post, försök med namn och lägenhetsnummer
+        if (report.getRequestedByTenant() == null && report.getName() != null && 
+            !report.getName().isEmpty() && report.getApartment() != null && report.getAddress() != null) {
+            try {
+                Optional<Apartment> apartment = apartmentService.findByStreetAddressAndApartmentNumber(
+                    report.getAddress(), 
+                    report.getApartment()
+                );
+                if (apartment.isPresent()) {
+                    Apartment foundApartment = apartment.get();
+                    report.setApartmentId(foundApartment.getId());
+                    report.setRequestedByApartment(foundApartment);
+                    
+                    // Försök matcha hyresgäst i lägenheten baserat på namn
+                    for (Tenant tenant : referenceResolver.findTenants(foundApartment.getTenantIds()).values()) {
+                        String fullName = tenant.getFirstName() + " " + tenant.getLastName();
+                        if (report.getName().equalsIgnoreCase(fullName)) {
+                            report.setTenantId(tenant.getId());
+                            report.setRequestedByTenant(tenant);
+                            break;
                         }
                     }
-                } catch (Exception e) {
-                    log.error("Kunde inte hitta lägenhet/hyresgäst för: {} {}", 
-                              report.getAddress(), report.getApartment(), e);
                 }
+            } catch (Exception e) {
+                log.error("Kunde inte hitta lägenhet/hyresgäst för: {} {}", 
+                          report.getAddress(), report.getApartment(), e);
             }
+        }
 
-            // Skapa en temporär Tenant om vi inte kunde hitta en matchande
-            if (report.getRequestedByTenant() == null && report.getName() != null && !report.getName().isEmpty()) {
-                Tenant tempTenant = new Tenant();
-                String[] nameParts = report.getName().split(" ");
-                if (nameParts.length > 1) {
-                    tempTenant.setFirstName(nameParts[0]);
-                    tempTenant.setLastName(nameParts[nameParts.length - 1]);
-                } else {
-                    tempTenant.setFirstName(report.getName());
-                    tempTenant.setLastName("");
-                }
-                tempTenant.setEmail(report.getEmail());
-                tempTenant.setPhone(report.getPhone());
-                report.setRequestedByTenant(tempTenant);
-            }
-            
-            // Sätt ett standardvärde för subject om det saknas
-            if (report.getSubject() == null || report.getSubject().isEmpty()) {
-                if (report.getDescription() != null && !report.getDescription().isEmpty()) {
-                    String shortDesc = report.getDescription().length() > 50 
-                        ? report.getDescription().substring(0, 47) + "..." 
-                        : report.getDescription();
-                    report.setSubject("Felanmälan: " + shortDesc);
-                } else {
-                    report.setSubject("Felanmälan via e-post");
-                }
+        // Skapa en temporär Tenant om vi inte kunde hitta en matchande
+        if (report.getRequestedByTenant() == null && report.getName() != null && !report.getName().isEmpty()) {
+            Tenant tempTenant = new Tenant();
+            String[] nameParts = report.getName().split(" ");
+            if (nameParts.length > 1) {
+                tempTenant.setFirstName(nameParts[0]);
+                tempTenant.setLastName(nameParts[nameParts.length - 1]);
+            } else {
+                tempTenant.setFirstName(report.getName());
+                tempTenant.setLastName("");
             }
-            
-            // Se till att alla rapporter har rätt status
-            if (report.getStatus() == null || report.getStatus().isEmpty()) {
-                report.setStatus("NEW");
+            tempTenant.setEmail(report.getEmail());
+            tempTenant.setPhone(report.getPhone());
+            report.setRequestedByTenant(tempTenant);
+        }
+        
+        // Sätt ett standardvärde för subject om det saknas
+        if (report.getSubject() == null || report.getSubject().isEmpty()) {
+            if (report.getDescription() != null && !report.getDescription().isEmpty()) {
+                String shortDesc = report.getDescription().length() > 50 
+                    ? report.getDescription().substring(0, 47) + "..." 
+                    : report.getDescription();
+                report.setSubject("Felanmälan: " + shortDesc);
+            } else {
+                report.setSubject("Felanmälan via e-post");
             }
-            
-            // Logga information om varje rapport för felsökning
-            log.debug("E-postrapport: id={}, name={}, email={}, status={}, reviewedBy={}", 
-                    report.getId(), report.getName(), report.getEmail(), 
-                    report.getStatus(), report.getReviewedBy() != null ? report.getReviewedBy().getFirstName() : "null");
         }
         
-        return ResponseEntity.ok(emailReports);
+        // Se till att alla rapporter har rätt status
+        if (report.getStatus() == null || report.getStatus().isEmpty()) {
+            report.setStatus("NEW");
+        }
+        
+        // Logga information om varje rapport för felsökning
+        log.debug("E-postrapport: id={}, name={}, email={}, status={}, reviewedBy={}", 
+                report.getId(), report.getName(), report.getEmail(), 
+                report.getStatus(), report.getReviewedBy() != null ? report.getReviewedBy().getFirstName() : "null");
     }
     
     @PostMapping("/{id}/convert-to-task")
@@ -512,8 +548,8 @@ public class PendingTaskController {
             sql.append("    '").append(pendingTask.getId()).append("',\n");
             
             // Hantera taskId som kan vara null
-            if (pendingTask.getTask() != null) {
-                sql.append("    '").append(pendingTask.getTask().getId()).append("',\n");
+            if (pendingTask.getTaskId() != null) {
+                sql.append("    '").append(pendingTask.getTaskId()).append("',\n");
             } else {
                 sql.append("    NULL,\n");
             }
@@ -22,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Showing;
 import com.dfrm.model.User;
 import com.dfrm.service.ShowingService;
@@ -45,6 +46,21 @@ public class ShowingController {
         return ResponseEntity.ok(showingService.getAllShowings());
     }
     
+    /**
+     * Hämtar en sida med visningar med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyAuthority('ROLE_SUPERADMIN', 'ROLE_ADMIN', 'ROLE_USER', 'SUPERADMIN', 'ADMIN', 'USER')")
+    public ResponseEntity<CursorPage<Showing>> getShowingPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(showingService.getShowingPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyAuthority('ROLE_SUPERADMIN', 'ROLE_ADMIN', 'ROLE_USER', 'SUPERADMIN', 'ADMIN', 'USER')")
     public ResponseEntity<Showing> getShowingById(@PathVariable String id) {
@@ -21,8 +21,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Task;
+import com.dfrm.model.TaskSummary;
+import com.dfrm.model.Tenant;
+import com.dfrm.model.User;
+import com.dfrm.service.CollectionVersionService;
 import com.dfrm.service.TaskService;
 
 import lombok.RequiredArgsConstructor;
@@ -35,6 +41,7 @@ import lombok.extern.slf4j.Slf4j;
 public class TaskController {
 
     private final TaskService taskService;
+    private final CollectionVersionService collectionVersionService;
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
@@ -47,7 +54,14 @@ public class TaskController {
             @RequestParam(required = false) String assignedByUserId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam(required = false) Boolean isOverdue) {
+            @RequestParam(required = false) Boolean isOverdue,
+            WebRequest request) {
+        
+        // Försenade uppgifter beror på dagens datum, så datumet ingår i ETag:en
+        if (collectionVersionService.checkNotModified(request, LocalDate.now().toString(),
+                Task.class, User.class, Tenant.class)) {
+            return null;
+        }
         
         log.debug("Hämtar uppgifter med filtreringsparametrar: status={}, priority={}, tenantId={}, apartmentId={}, " +
                 "assignedToUserId={}, assignedByUserId={}, startDate={}, endDate={}, isOverdue={}",
@@ -61,9 +75,63 @@ public class TaskController {
         );
     }
 
+    /**
+     * Hämtar filtrerade uppgifter som listrader utan beskrivning och översättningar
+     */
+    @GetMapping("/summary")
+    @PreAuthorize("isAuthenticated()")
+    public List<TaskSummary> getTaskSummaries(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String tenantId,
+            @RequestParam(required = false) String apartmentId,
+            @RequestParam(required = false) String assignedToUserId,
+            @RequestParam(required = false) String assignedByUserId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Boolean isOverdue) {
+        return taskService.getTaskSummaries(
+            status, priority, tenantId, apartmentId,
+            assignedToUserId, assignedByUserId,
+            startDate, endDate, isOverdue
+        );
+    }
+
+    /**
+     * Hämtar en sida med filtrerade uppgifter som listrader med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorPage<TaskSummary>> getTaskPage(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String tenantId,
+            @RequestParam(required = false) String apartmentId,
+            @RequestParam(required = false) String assignedToUserId,
+            @RequestParam(required = false) String assignedByUserId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Boolean isOverdue,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(taskService.getTaskPage(
+                status, priority, tenantId, apartmentId,
+                assignedToUserId, assignedByUserId,
+                startDate, endDate, isOverdue,
+                cursor, limit
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Task> getTaskById(@PathVariable String id) {
+    public ResponseEntity<Task> getTaskById(@PathVariable String id, WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, id, Task.class, User.class, Tenant.class)) {
+            return null;
+        }
         Optional<Task> task = taskService.getTaskById(id);
         return task.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -133,9 +201,6 @@ public class TaskController {
         if (patchTask.getAssignedByUserId() != null) {
             existingTask.setAssignedByUserId(patchTask.getAssignedByUserId());
         }
-        if (patchTask.getApartment() != null) {
-            existingTask.setApartment(patchTask.getApartment());
-        }
         if (patchTask.getApartmentId() != null) {
             existingTask.setApartmentId(patchTask.getApartmentId());
         }
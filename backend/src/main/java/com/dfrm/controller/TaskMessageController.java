@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.dfrm.client.GoogleTranslateClient;
@@ -40,16 +41,27 @@ public class TaskMessageController {
      * Hämtar alla meddelanden för en specifik uppgift
      * 
      * @param taskId ID för uppgiften
+     * @param language Språket meddelandena ska visas på, annars användarens föredragna språk
      * @return Lista med meddelanden
      */
     @GetMapping
-    public ResponseEntity<List<TaskMessage>> getMessagesByTaskId(@PathVariable String taskId) {
+    public ResponseEntity<List<TaskMessage>> getMessagesByTaskId(
+            @PathVariable String taskId,
+            @RequestParam(required = false) String language) {
         // Kontrollera att uppgiften finns
         if (!taskService.existsById(taskId)) {
             return ResponseEntity.notFound().build();
         }
         
-        List<TaskMessage> messages = taskMessageService.getMessagesByTaskId(taskId);
+        // Översättningar saknas tills någon läser meddelandet på sitt språk
+        if (language == null) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            language = userService.findByEmail(auth.getName())
+                    .map(User::getPreferredLanguage)
+                    .orElse(null);
+        }
+        
+        List<TaskMessage> messages = taskMessageService.getMessagesByTaskId(taskId, language);
         return ResponseEntity.ok(messages);
     }
     
@@ -20,9 +20,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Tenant;
 import com.dfrm.service.ApartmentService;
+import com.dfrm.service.CollectionVersionService;
 import com.dfrm.service.TenantService;
 
 import lombok.RequiredArgsConstructor;
@@ -33,14 +36,35 @@ import lombok.RequiredArgsConstructor;
 public class TenantController {
     private final TenantService tenantService;
     private final ApartmentService apartmentService;
+    private final CollectionVersionService collectionVersionService;
     
     @GetMapping
-    public List<Tenant> getAllTenants() {
+    public List<Tenant> getAllTenants(WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, Tenant.class)) {
+            return null;
+        }
         return tenantService.getAllTenants();
     }
     
+    /**
+     * Hämtar en sida med hyresgäster med cursor-baserad paginering
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Tenant>> getTenantPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(tenantService.getTenantPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Tenant> getTenantById(@PathVariable String id) {
+    public ResponseEntity<Tenant> getTenantById(@PathVariable String id, WebRequest request) {
+        if (collectionVersionService.checkNotModified(request, id, Tenant.class)) {
+            return null;
+        }
         return tenantService.getTenantById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -77,9 +101,9 @@ public class TenantController {
                     Map<String, Object> response = new HashMap<>();
                     response.put("tenant", tenant);
                     // Lägg till lägenhetsreferensen också
-                    if (tenant.getApartment() != null) {
+                    if (tenant.getApartmentId() != null) {
                         // Hämta fullständig lägenhetsdata för att säkerställa att all data returneras
-                        apartmentService.getApartmentById(tenant.getApartment().getId())
+                        apartmentService.getApartmentById(tenant.getApartmentId())
                             .ifPresent(apartment -> response.put("apartment", apartment));
                     }
                     return ResponseEntity.ok(response);
@@ -96,9 +120,9 @@ public class TenantController {
                     Map<String, Object> response = new HashMap<>();
                     response.put("tenant", tenant);
                     // Lägg till lägenhetsreferensen också
-                    if (tenant.getApartment() != null) {
+                    if (tenant.getApartmentId() != null) {
                         // Hämta fullständig lägenhetsdata för att säkerställa att all data returneras
-                        apartmentService.getApartmentById(tenant.getApartment().getId())
+                        apartmentService.getApartmentById(tenant.getApartmentId())
                             .ifPresent(apartment -> response.put("apartment", apartment));
                     }
                     return ResponseEntity.ok(response);
@@ -215,8 +239,8 @@ public class TenantController {
             sql.append("    ").append(tenant.getIsTemporary()).append(",\n");
             
             // Hantera apartmentId som kan vara null
-            if (tenant.getApartment() != null) {
-                sql.append("    '").append(tenant.getApartment().getId()).append("'\n");
+            if (tenant.getApartmentId() != null) {
+                sql.append("    '").append(tenant.getApartmentId()).append("'\n");
             } else {
                 sql.append("    NULL\n");
             }
@@ -3,6 +3,7 @@ package com.dfrm.filter;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -13,16 +14,15 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.dfrm.repository.UserRepository;
+import com.dfrm.model.TokenClaims;
 import com.dfrm.service.JwtService;
+import com.dfrm.service.PrincipalCacheService;
 import com.dfrm.service.TokenDecryptionService;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -34,8 +34,7 @@ import lombok.RequiredArgsConstructor;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
-    private final UserRepository userRepository;
+    private final PrincipalCacheService principalCacheService;
     private final TokenDecryptionService tokenDecryptionService;
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final Environment environment;
@@ -101,7 +100,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private void processJwtToken(HttpServletRequest request, HttpServletResponse response, String token) throws IOException {
         try {
-            String userEmail = jwtService.extractUsername(token);
+            // Token verifieras och tolkas en gång per anrop
+            TokenClaims claims;
+            try {
+                claims = jwtService.parseToken(token);
+            } catch (SecurityException e) {
+                sendUnauthorizedResponse(response, "Ogiltig token");
+                return;
+            }
+            String userEmail = claims.getSubject();
             
             if (userEmail == null || userEmail.trim().isEmpty()) {
                 log.warn("Ingen användare i token");
@@ -109,19 +116,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
             
-            // Validera att användaren existerar
-            if (!userRepository.existsByEmail(userEmail)) {
+            // Validera att användaren existerar, via cachen för att slippa databasen per anrop
+            Optional<UserDetails> principal = principalCacheService.getPrincipal(userEmail);
+            if (principal.isEmpty()) {
                 log.warn("Användare hittades inte: {}", userEmail);
                 sendUnauthorizedResponse(response, "Okänd användare");
                 return;
             }
             
             if (SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = principal.get();
                 
-                if (jwtService.validateToken(token, userDetails.getUsername())) {
+                if (!userDetails.isEnabled()) {
+                    log.warn("Inaktiverad användare: {}", userEmail);
+                    sendUnauthorizedResponse(response, "Inaktiverad användare");
+                    return;
+                }
+                
+                if (claims.isValidFor(userDetails.getUsername())) {
                     // Extrahera behörigheter från token
-                    Collection<SimpleGrantedAuthority> authorities = extractAuthorities(token);
+                    Collection<SimpleGrantedAuthority> authorities = extractAuthorities(claims);
                     
                     if (authorities.isEmpty()) {
                         // Använd behörigheter från UserDetails som en fallback
@@ -166,14 +180,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         response.getWriter().write("{\"error\":\"" + message + "\"}");
     }
     
-    private Collection<SimpleGrantedAuthority> extractAuthorities(String token) {
+    private Collection<SimpleGrantedAuthority> extractAuthorities(TokenClaims claims) {
         try {
-            Claims claims = jwtService.extractAllClaims(token);
-            Object roleObj = claims.get("role");
+            String role = claims.getRole();
             
-            if (roleObj != null) {
-                String role = roleObj.toString();
-                
+            if (role != null) {
                 Collection<SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
                 
                 // Lägg till både med och utan ROLE_-prefix för kompatibilitet
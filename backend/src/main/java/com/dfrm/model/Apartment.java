@@ -1,14 +1,14 @@
 package com.dfrm.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.JsonIdentityReference;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.dfrm.config.ReferenceIdDeserializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.Data;
 
@@ -31,21 +31,14 @@ public class Apartment {
     private Boolean internet;
     private boolean isTemporary;
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private List<Tenant> tenants;
+    // Referenser lagras som ID:n och hämtas vid behov via ReferenceResolver
+    @JsonProperty("tenants")
+    @JsonDeserialize(contentUsing = ReferenceIdDeserializer.class)
+    private List<String> tenantIds = new ArrayList<>();
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private List<Key> keys;
+    @JsonProperty("keys")
+    @JsonDeserialize(contentUsing = ReferenceIdDeserializer.class)
+    private List<String> keyIds = new ArrayList<>();
 
     public boolean getIsTemporary() {
         return isTemporary;
@@ -0,0 +1,27 @@
+package com.dfrm.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Senast behandlade resume token per instans och bevakad kollektion. Varje instans
+ * fortsätter från sin egen token, en annan instans kan ha hunnit längre.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "change_stream_tokens")
+public class ChangeStreamToken {
+    @Id
+    private String id; // instans:kollektion
+    private String instanceId;
+    private String collection;
+    private String token; // Resume token som JSON
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,21 @@
+package com.dfrm.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * En sida av resultat vid cursor-baserad paginering.
+ * nextCursor skickas tillbaka som cursor-parameter för att hämta nästa sida.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // null när det inte finns fler sidor
+    private boolean hasMore;
+    private int limit;
+}
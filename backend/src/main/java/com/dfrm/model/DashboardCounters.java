@@ -0,0 +1,22 @@
+package com.dfrm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Samlade räknare för dashboarden, hämtade i ett anrop
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardCounters {
+    private long unreviewedPendingTasks; // NEW och PENDING
+    private long unreviewedInterests;    // NEW
+    private long activeShowings;         // SCHEDULED
+    private long upcomingShowings;       // SCHEDULED med datum framåt
+    private long overdueTasks;
+    private long openTasks;
+}
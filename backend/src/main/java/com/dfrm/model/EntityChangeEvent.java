@@ -0,0 +1,40 @@
+package com.dfrm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Händelse som publiceras inom applikationen när ett dokument har ändrats i databasen,
+ * oavsett vilken instans som gjorde ändringen. Cachelager lyssnar på den för invalidering.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class EntityChangeEvent {
+
+    public enum ChangeType {
+        INSERT, UPDATE, REPLACE, DELETE,
+        // Hela kollektionen kan ha ändrats (t.ex. drop eller rename), documentId är null
+        INVALIDATE
+    }
+
+    private final String collection;
+    private final Class<?> entityType;
+    private final String documentId; // null vid INVALIDATE
+    private final ChangeType changeType;
+
+    /**
+     * Avgör om händelsen gäller en viss entitetsklass
+     */
+    public boolean concerns(Class<?> type) {
+        return entityType == type;
+    }
+
+    /**
+     * Avgör om hela kollektionen ska betraktas som ändrad
+     */
+    public boolean isCollectionWide() {
+        return changeType == ChangeType.INVALIDATE || documentId == null;
+    }
+}
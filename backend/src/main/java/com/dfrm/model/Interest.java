@@ -30,6 +30,9 @@ public class Interest {
     @Indexed(unique = true, sparse = true)
     private String hashId;
     
+    // Inkorg, UIDVALIDITY och UID för e-postmeddelandet som skapade anmälan
+    private String sourceMessageId;
+    
     private String name;
     private String email;
     private String phone;
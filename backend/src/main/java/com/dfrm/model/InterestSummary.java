@@ -0,0 +1,39 @@
+package com.dfrm.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listrad för intresseanmälningar. Meddelandet, översättningar och svarstext
+ * ingår inte, de hämtas via detaljendpointen.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestSummary {
+
+    // Fält som projiceras från interests-kollektionen
+    public static final String[] FIELDS = {
+        "name", "email", "phone", "apartment", "status",
+        "messageLanguage", "received", "showingDateTime", "reviewedAt"
+    };
+
+    @Id
+    private String id;
+
+    private String name;
+    private String email;
+    private String phone;
+    private String apartment;
+    private String status;
+
+    private Language messageLanguage;
+    private LocalDateTime received;
+    private LocalDateTime showingDateTime;
+    private LocalDateTime reviewedAt;
+}
@@ -1,12 +1,11 @@
 package com.dfrm.model;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.JsonIdentityReference;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.dfrm.config.ReferenceIdDeserializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.Data;
 
@@ -22,19 +21,12 @@ public class Key {
     private String description;
     private Boolean isAvailable;
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private Apartment apartment;
+    // Referenser lagras som ID:n och hämtas vid behov via ReferenceResolver
+    @JsonProperty("apartment")
+    @JsonDeserialize(using = ReferenceIdDeserializer.class)
+    private String apartmentId;
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private Tenant tenant;
+    @JsonProperty("tenant")
+    @JsonDeserialize(using = ReferenceIdDeserializer.class)
+    private String tenantId;
 } 
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.dfrm.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Senast bearbetade IMAP-UID per inkorg. UID:n är bara giltiga tillsammans med
+ * inkorgens UIDVALIDITY, ändras den börjar synkningen om.
+ * <p>
+ * Meddelanden som misslyckats vid den första genomgången av olästa ligger under
+ * checkpointen och sparas därför i en egen lista som provas igen vid nästa synkning.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "mailbox_checkpoints")
+public class MailboxCheckpoint {
+    @Id
+    private String mailbox;
+    private long uidValidity;
+    private long lastUid;
+    private long failedUid; // Meddelande som misslyckats och provas igen, 0 om inget
+    private int failedAttempts;
+    private List<Long> retryUids = new ArrayList<>(); // Misslyckade vid första genomgången
+    private int retryAttempts; // Antal försök hittills för meddelandena i retryUids
+    private LocalDateTime updatedAt;
+}
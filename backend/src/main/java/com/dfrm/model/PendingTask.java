@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -25,7 +26,10 @@ public class PendingTask {
     @Id
     private String id;
     
-    @DBRef
+    // Referensen till uppgiften lagras som ID, objektet fylls i av ReferenceResolver
+    private String taskId;
+    
+    @Transient
     private Task task;
     
     @DBRef
@@ -70,8 +74,14 @@ public class PendingTask {
     private String status; // NEW, REVIEWED, CONVERTED, REJECTED
     private LocalDateTime received;
     private String subject; // Ämne för e-postrapport
+    private String sourceMessageId; // Inkorg, UIDVALIDITY och UID för e-postmeddelandet, för dubblettkontroll
     
     // Direkta ID-referenser för lägenhet och hyresgäst
     private String tenantId;
     private String apartmentId;
-} 
\ No newline at end of file
+    
+    public void setTask(Task task) {
+        this.task = task;
+        this.taskId = task != null ? task.getId() : null;
+    }
+}
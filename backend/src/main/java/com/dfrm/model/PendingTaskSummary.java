@@ -0,0 +1,47 @@
+package com.dfrm.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listrad för väntande uppgifter och felanmälningar. Beskrivning och
+ * översättningar ingår inte, de hämtas via detaljendpointen.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingTaskSummary {
+
+    // Fält som projiceras från pending_tasks-kollektionen
+    public static final String[] FIELDS = {
+        "taskId", "name", "email", "phone", "address", "apartment", "subject",
+        "status", "descriptionLanguage", "tenantId", "apartmentId",
+        "requestedAt", "received", "reviewedAt"
+    };
+
+    @Id
+    private String id;
+
+    private String taskId;
+
+    private String name;
+    private String email;
+    private String phone;
+    private String address;
+    private String apartment;
+    private String subject;
+    private String status; // NEW, REVIEWED, CONVERTED, REJECTED
+
+    private Language descriptionLanguage;
+    private String tenantId;
+    private String apartmentId;
+
+    private LocalDateTime requestedAt;
+    private LocalDateTime received;
+    private LocalDateTime reviewedAt;
+}
@@ -6,9 +6,12 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.dfrm.config.ReferenceIdDeserializer;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -43,13 +46,9 @@ public class Showing {
     private User assignedTo;
     
     // Referens till den intresseanmälan som skapade visningen
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private Interest relatedInterest;
+    @JsonProperty("relatedInterest")
+    @JsonDeserialize(using = ReferenceIdDeserializer.class)
+    private String relatedInterestId;
     
     // Kontaktdetaljer för den som bokat visningen
     private String contactName;
@@ -4,12 +4,16 @@ import java.time.LocalDate;
 import java.util.Map;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.dfrm.config.ReferenceIdDeserializer;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -53,14 +57,6 @@ public class Task {
     @JsonIdentityReference(alwaysAsId = true)
     private User assignedUser;
     
-    @DBRef
-    @JsonIdentityInfo(
-            generator = ObjectIdGenerators.PropertyGenerator.class,
-            property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private Apartment apartment;
-    
     @DBRef
     @JsonIdentityInfo(
             generator = ObjectIdGenerators.PropertyGenerator.class,
@@ -70,4 +66,19 @@ public class Task {
     private Tenant tenant;
 
     private Map<String, String> translations; // Nytt fält för översättningar
+
+    // Lägenheten skickas även som "apartment", som när den var en DBRef, men lagras bara som apartmentId
+    @Transient
+    @JsonProperty("apartment")
+    public String getApartment() {
+        return apartmentId;
+    }
+
+    @JsonProperty("apartment")
+    @JsonDeserialize(using = ReferenceIdDeserializer.class)
+    public void setApartment(String apartment) {
+        if (apartment != null) {
+            this.apartmentId = apartment;
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.dfrm.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listrad för uppgifter. Innehåller bara de fält som listvyer visar,
+ * beskrivning, kommentarer och översättningar hämtas via detaljendpointen.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskSummary {
+
+    // Fält som projiceras från tasks-kollektionen
+    public static final String[] FIELDS = {
+        "title", "status", "priority", "dueDate", "completedDate",
+        "assignedToUserId", "assignedByUserId", "apartmentId", "tenantId",
+        "isRecurring", "recurringPattern"
+    };
+
+    @Id
+    private String id;
+
+    private String title;
+    private String status;
+    private String priority;
+    private LocalDate dueDate;
+    private LocalDate completedDate;
+
+    private String assignedToUserId;
+    private String assignedByUserId;
+    private String apartmentId;
+    private String tenantId;
+
+    private boolean isRecurring;
+    private String recurringPattern;
+}
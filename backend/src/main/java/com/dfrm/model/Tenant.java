@@ -5,12 +5,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.JsonIdentityReference;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.dfrm.config.ReferenceIdDeserializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import lombok.Data;
 
@@ -30,21 +29,14 @@ public class Tenant {
     private String comment;
     private boolean isTemporary;
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private Apartment apartment;
+    // Referenser lagras som ID:n och hämtas vid behov via ReferenceResolver
+    @JsonProperty("apartment")
+    @JsonDeserialize(using = ReferenceIdDeserializer.class)
+    private String apartmentId;
     
-    @DBRef
-    @JsonIdentityInfo(
-        generator = ObjectIdGenerators.PropertyGenerator.class,
-        property = "id"
-    )
-    @JsonIdentityReference(alwaysAsId = true)
-    private List<Key> keys = new ArrayList<>();
+    @JsonProperty("keys")
+    @JsonDeserialize(contentUsing = ReferenceIdDeserializer.class)
+    private List<String> keyIds = new ArrayList<>();
     
     public boolean getIsTemporary() {
         return isTemporary;
@@ -0,0 +1,30 @@
+package com.dfrm.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Verifierade och tolkade anspråk från en JWT-token.
+ * Skapas en gång per anrop av JwtService och ändras inte därefter.
+ */
+@Getter
+@AllArgsConstructor
+public final class TokenClaims {
+    private final String subject;
+    private final String role;
+    private final String userId;
+    private final Date expiration;
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    /**
+     * Kontrollerar att token tillhör användaren och inte har gått ut
+     */
+    public boolean isValidFor(String username) {
+        return subject != null && subject.equals(username) && !isExpired();
+    }
+}
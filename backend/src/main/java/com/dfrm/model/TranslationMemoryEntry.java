@@ -0,0 +1,26 @@
+package com.dfrm.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sparad översättning eller språkdetektering, nycklad på hash av texten samt käll- och målspråk
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "translation_memory")
+public class TranslationMemoryEntry {
+    @Id
+    private String id; // SHA-256 av texten + ":" + källspråk + ":" + målspråk
+    private String sourceLanguage;
+    private String targetLanguage;
+    private String result;
+    private LocalDateTime createdAt;
+}
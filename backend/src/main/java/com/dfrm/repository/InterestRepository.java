@@ -25,4 +25,5 @@ public interface InterestRepository extends MongoRepository<Interest, String> {
     // Metod för att hitta intresseanmälningar baserat på hashId (för dubblettdetektering)
     Optional<Interest> findByHashId(String hashId);
     boolean existsByHashId(String hashId);
+    boolean existsBySourceMessageId(String sourceMessageId);
 } 
\ No newline at end of file
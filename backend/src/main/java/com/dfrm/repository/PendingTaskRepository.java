@@ -22,4 +22,5 @@ public interface PendingTaskRepository extends MongoRepository<PendingTask, Stri
     // Nya sökmetoder för felanmälningar
     List<PendingTask> findByStatus(String status);
     long countByStatus(String status);
+    boolean existsBySourceMessageId(String sourceMessageId);
 } 
\ No newline at end of file
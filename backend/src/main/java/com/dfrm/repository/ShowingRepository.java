@@ -1,8 +1,10 @@
 package com.dfrm.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -15,6 +17,7 @@ public interface ShowingRepository extends MongoRepository<Showing, String> {
     List<Showing> findByDateTimeBetween(LocalDateTime start, LocalDateTime end);
     List<Showing> findByAssignedToId(String userId);
     List<Showing> findByRelatedInterestId(String interestId);
+    List<Showing> findByRelatedInterestIdIn(Collection<String> interestIds, Sort sort);
     long countByStatus(String status);
     List<Showing> findByAssignedToIdAndStatus(String userId, String status);
     
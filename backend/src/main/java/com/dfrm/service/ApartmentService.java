@@ -4,10 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.model.Apartment;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Tenant;
 import com.dfrm.repository.ApartmentRepository;
 import com.dfrm.repository.KeyRepository;
@@ -25,14 +28,27 @@ public class ApartmentService {
     private final TenantRepository tenantRepository;
     private final KeyRepository keyRepository;
     private final EntityReferenceService entityReferenceService;
+    private final KeysetPaginationService paginationService;
+    private final PortfolioCacheService portfolioCacheService;
     private static final Logger log = LoggerFactory.getLogger(ApartmentService.class);
     
     public List<Apartment> getAllApartments() {
-        return apartmentRepository.findAll();
+        return portfolioCacheService.getApartments();
+    }
+    
+    /**
+     * Hämtar en sida med lägenheter sorterade på ID
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med lägenheter
+     */
+    public CursorPage<Apartment> getApartmentPage(String cursor, Integer limit) {
+        return paginationService.findPage(new Query(), Apartment.class, Apartment::getId, cursor, limit);
     }
     
     public Optional<Apartment> getApartmentById(String id) {
-        return apartmentRepository.findById(id);
+        return portfolioCacheService.getApartment(id);
     }
     
     public Apartment saveApartment(Apartment apartment) {
@@ -41,21 +57,8 @@ public class ApartmentService {
     
     public void deleteApartment(String id) {
         apartmentRepository.findById(id).ifPresent(apartment -> {
-            // Ta bort lägenhetens referens från alla hyresgäster
-            if (apartment.getTenants() != null) {
-                apartment.getTenants().forEach(tenant -> {
-                    tenant.setApartment(null);
-                    tenantRepository.save(tenant);
-                });
-            }
-            
-            // Ta bort lägenhetens referens från alla nycklar
-            if (apartment.getKeys() != null) {
-                apartment.getKeys().forEach(key -> {
-                    key.setApartment(null);
-                    keyRepository.save(key);
-                });
-            }
+            // Ta bort lägenhetens referens från alla hyresgäster och nycklar
+            entityReferenceService.detachApartment(apartment.getId());
             
             apartmentRepository.deleteById(id);
         });
@@ -80,41 +83,29 @@ public class ApartmentService {
     public Optional<Apartment> assignTenant(String apartmentId, String tenantId) {
         return apartmentRepository.findById(apartmentId)
                 .flatMap(apartment -> tenantRepository.findById(tenantId)
-                        .map(tenant -> {
-                            // Använd EntityReferenceService för att hantera relationen
-                            Apartment updatedApartment = entityReferenceService.assignTenantToApartment(apartment, tenant);
-                            return apartmentRepository.save(updatedApartment);
-                        }));
+                        // EntityReferenceService uppdaterar relationen direkt i databasen
+                        .map(tenant -> entityReferenceService.assignTenantToApartment(apartment, tenant)));
     }
 
     public Optional<Apartment> assignKey(String apartmentId, String keyId) {
         return apartmentRepository.findById(apartmentId)
                 .flatMap(apartment -> keyRepository.findById(keyId)
-                        .map(key -> {
-                            // Använd EntityReferenceService för att hantera relationen
-                            Apartment updatedApartment = entityReferenceService.assignKeyToApartment(apartment, key);
-                            return apartmentRepository.save(updatedApartment);
-                        }));
+                        // EntityReferenceService uppdaterar relationen direkt i databasen
+                        .map(key -> entityReferenceService.assignKeyToApartment(apartment, key)));
     }
 
     public Optional<Apartment> removeTenant(String apartmentId, String tenantId) {
         return apartmentRepository.findById(apartmentId)
                 .flatMap(apartment -> tenantRepository.findById(tenantId)
-                        .map(tenant -> {
-                            // Använd EntityReferenceService för att hantera relationen
-                            Apartment updatedApartment = entityReferenceService.removeTenantFromApartment(apartment, tenant);
-                            return apartmentRepository.save(updatedApartment);
-                        }));
+                        // EntityReferenceService uppdaterar relationen direkt i databasen
+                        .map(tenant -> entityReferenceService.removeTenantFromApartment(apartment, tenant)));
     }
 
     public Optional<Apartment> removeKey(String apartmentId, String keyId) {
         return apartmentRepository.findById(apartmentId)
                 .flatMap(apartment -> keyRepository.findById(keyId)
-                        .map(key -> {
-                            // Använd EntityReferenceService för att hantera relationen
-                            Apartment updatedApartment = entityReferenceService.removeKeyFromApartment(apartment, key);
-                            return apartmentRepository.save(updatedApartment);
-                        }));
+                        // EntityReferenceService uppdaterar relationen direkt i databasen
+                        .map(key -> entityReferenceService.removeKeyFromApartment(apartment, key)));
     }
 
     public Optional<Apartment> partialUpdate(String id, Map<String, Object> updates) {
@@ -144,11 +135,13 @@ public class ApartmentService {
                         
                         // Om listan är tom eller null, ta bort alla hyresgäster
                         if (tenantIds == null || tenantIds.isEmpty()) {
-                            apartment.setTenants(new ArrayList<>());
+                            apartment.setTenantIds(new ArrayList<>());
                         } else {
-                            // Hämta alla hyresgäster baserat på ID:n
-                            List<Tenant> tenants = tenantRepository.findAllById(tenantIds);
-                            apartment.setTenants(tenants);
+                            // Behåll endast ID:n för hyresgäster som finns
+                            List<String> existingIds = tenantRepository.findAllById(tenantIds).stream()
+                                    .map(Tenant::getId)
+                                    .collect(Collectors.toCollection(ArrayList::new));
+                            apartment.setTenantIds(existingIds);
                         }
                     }
                     
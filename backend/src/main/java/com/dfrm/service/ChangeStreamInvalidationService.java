@@ -0,0 +1,334 @@
+package com.dfrm.service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.Apartment;
+import com.dfrm.model.ChangeStreamToken;
+import com.dfrm.model.EntityChangeEvent;
+import com.dfrm.model.Interest;
+import com.dfrm.model.Key;
+import com.dfrm.model.Showing;
+import com.dfrm.model.Task;
+import com.dfrm.model.Tenant;
+import com.dfrm.model.User;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bevakar ändringar i databasen via change streams och publicerar en EntityChangeEvent
+ * per ändrat dokument. På så sätt får cachelager veta om ändringar som gjorts av andra
+ * instanser. Senaste resume token hålls i minnet per kollektion och sparas med jämna
+ * mellanrum per instans, så att bevakningen fortsätter där den slutade efter en omstart.
+ *
+ * Ett fel avslutar bevakningen av kollektionen. Den registreras då om med exponentiell
+ * backoff och cachelagren får en INVALIDATE-händelse, eftersom ändringar kan ha missats.
+ * Gaugen {@code changeStreams.<kollektion>.active} visar om bevakningen är igång.
+ *
+ * Change streams kräver ett replica set. Mot en fristående server loggas en varning
+ * och applikationen fortsätter utan bevakning.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeStreamInvalidationService {
+
+    // Felkod när resume token inte längre finns i oploggen
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final Class<?>[] WATCHED_TYPES = {
+        Apartment.class, Tenant.class, Key.class, User.class, Task.class, Interest.class, Showing.class
+    };
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricsService metricsService;
+
+    @Value("${dfrm.change-streams.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dfrm.change-streams.backoff.initial-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${dfrm.change-streams.backoff.max-ms:300000}")
+    private long maxBackoffMs;
+
+    // Tom betyder värdnamnet, ska vara stabilt över omstarter för att sparade token ska hittas
+    @Value("${dfrm.change-streams.instance-id:}")
+    private String instanceId;
+
+    @Value("${dfrm.change-streams.token-save-interval-ms:5000}")
+    private long tokenSaveIntervalMs;
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, BsonDocument> resumeTokens = new ConcurrentHashMap<>();
+    private final Set<String> unsavedTokens = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> backoffs = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> retryScheduled = new ConcurrentHashMap<>();
+    private MessageListenerContainer container;
+    private ScheduledExecutorService retryExecutor;
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Change stream-bevakning är avstängd");
+            return;
+        }
+
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = resolveInstanceId();
+        }
+
+        Map<String, Class<?>> watched = new LinkedHashMap<>();
+        for (Class<?> type : WATCHED_TYPES) {
+            watched.put(mongoTemplate.getCollectionName(type), type);
+        }
+
+        container = new DefaultMessageListenerContainer(mongoTemplate,
+                Executors.newFixedThreadPool(watched.size(), r -> {
+                    Thread thread = new Thread(r, "change-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                error -> log.warn("Fel i change stream-bevakningen: {}", error.getMessage()));
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-stream-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        container.start();
+        watched.forEach((collection, type) -> {
+            metricsService.registerGauge("changeStreams." + collection + ".active", () -> {
+                Subscription subscription = subscriptions.get(collection);
+                return subscription != null && subscription.isActive() ? 1 : 0;
+            });
+            register(collection, type);
+        });
+        retryExecutor.scheduleWithFixedDelay(this::saveResumeTokens, tokenSaveIntervalMs, tokenSaveIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("Bevakar ändringar i {} som instans {}", watched.keySet(), instanceId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
+        }
+        if (container != null) {
+            container.stop();
+            saveResumeTokens();
+        }
+    }
+
+    private void register(String collection, Class<?> type) {
+        ChangeStreamRequest.ChangeStreamRequestBuilder<Document> builder = ChangeStreamRequest
+                .builder((Message<ChangeStreamDocument<Document>, Document> message) ->
+                        onChange(collection, type, message.getRaw()))
+                .collection(collection);
+
+        // I samma process fortsätter bevakningen från den senast behandlade ändringen
+        BsonValue resumeToken = resumeTokens.get(collection);
+        if (resumeToken == null) {
+            resumeToken = loadResumeToken(collection);
+        }
+        if (resumeToken != null) {
+            builder.resumeAfter(resumeToken);
+            log.debug("Återupptar bevakning av {} från resume token", collection);
+        }
+
+        subscriptions.put(collection, container.register(builder.build(), Document.class,
+                error -> handleError(collection, type, error)));
+    }
+
+    private void onChange(String collection, Class<?> type, ChangeStreamDocument<Document> change) {
+        if (change == null) {
+            return;
+        }
+        // En mottagen ändring visar att bevakningen fungerar igen
+        backoffs.remove(collection);
+
+        EntityChangeEvent.ChangeType changeType = toChangeType(change.getOperationType());
+        if (changeType != null) {
+            String documentId = changeType == EntityChangeEvent.ChangeType.INVALIDATE
+                    ? null
+                    : toId(change.getDocumentKey());
+            eventPublisher.publishEvent(new EntityChangeEvent(collection, type, documentId, changeType));
+            log.debug("Ändring i {}: {} {}", collection, changeType, documentId);
+        }
+
+        // Token uppdateras efter att händelsen publicerats så att ingen ändring hoppas över
+        if (change.getResumeToken() != null) {
+            resumeTokens.put(collection, change.getResumeToken());
+            unsavedTokens.add(collection);
+        }
+    }
+
+    /**
+     * Anropas för fel i en kollektions bevakning. Fel i lyssnaren låter bevakningen fortsätta,
+     * andra fel avslutar den och den registreras om efter en backoff.
+     */
+    private void handleError(String collection, Class<?> type, Throwable error) {
+        MongoServerException serverError = findServerError(error);
+        if (serverError != null && serverError.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+            // Token är för gammal, börja om från nuläget
+            log.warn("Resume token för {} finns inte längre i oploggen, token rensas", collection);
+            resumeTokens.remove(collection);
+            unsavedTokens.remove(collection);
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(tokenId(collection))), ChangeStreamToken.class);
+        } else {
+            log.warn("Fel i bevakningen av {}: {}", collection, error.getMessage());
+        }
+        scheduleResubscribe(collection, type);
+    }
+
+    private void scheduleResubscribe(String collection, Class<?> type) {
+        if (!running || retryScheduled.putIfAbsent(collection, Boolean.TRUE) != null) {
+            return;
+        }
+        long backoffMs = backoffs.getOrDefault(collection, initialBackoffMs);
+        backoffs.put(collection, Math.min(backoffMs * 2, maxBackoffMs));
+        // Halva väntetiden är slumpad så att instanserna inte återansluter i takt
+        long delayMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+        retryExecutor.schedule(() -> resubscribe(collection, type), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void resubscribe(String collection, Class<?> type) {
+        retryScheduled.remove(collection);
+        Subscription current = subscriptions.get(collection);
+        if (!running || current != null && current.isActive()) {
+            // Felet kom från lyssnaren och bevakningen pågår fortfarande
+            return;
+        }
+        try {
+            if (current != null) {
+                container.remove(current);
+            }
+            log.info("Registrerar om bevakningen av {}", collection);
+            register(collection, type);
+            // Ändringar medan bevakningen var nere har inte publicerats
+            eventPublisher.publishEvent(new EntityChangeEvent(collection, type, null,
+                    EntityChangeEvent.ChangeType.INVALIDATE));
+            metricsService.increment("changeStreams." + collection + ".resubscribes");
+        } catch (Exception e) {
+            log.warn("Kunde inte registrera om bevakningen av {}: {}", collection, e.getMessage());
+            scheduleResubscribe(collection, type);
+        }
+    }
+
+    /**
+     * Serverfelet bakom ett fel. Spring översätter drivrutinens fel till DataAccessException
+     * innan de når felhanteraren, så orsakskedjan gås igenom.
+     */
+    static MongoServerException findServerError(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof MongoServerException serverError) {
+                return serverError;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private BsonValue loadResumeToken(String collection) {
+        try {
+            ChangeStreamToken stored = mongoTemplate.findById(tokenId(collection), ChangeStreamToken.class);
+            return stored != null && stored.getToken() != null ? BsonDocument.parse(stored.getToken()) : null;
+        } catch (Exception e) {
+            log.warn("Kunde inte läsa resume token för {}: {}", collection, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sparar de token som ändrats sedan förra gången. Körs med jämna mellanrum och vid
+     * avstängning istället för vid varje ändring.
+     */
+    void saveResumeTokens() {
+        for (String collection : unsavedTokens) {
+            unsavedTokens.remove(collection);
+            BsonDocument token = resumeTokens.get(collection);
+            if (token == null) {
+                continue;
+            }
+            try {
+                mongoTemplate.save(new ChangeStreamToken(tokenId(collection), instanceId, collection,
+                        token.toJson(), LocalDateTime.now()));
+            } catch (Exception e) {
+                unsavedTokens.add(collection);
+                log.warn("Kunde inte spara resume token för {}: {}", collection, e.getMessage());
+            }
+        }
+    }
+
+    private String tokenId(String collection) {
+        return instanceId + ":" + collection;
+    }
+
+    private static String resolveInstanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            log.warn("Kunde inte läsa värdnamnet, sparade resume token återanvänds inte efter omstart");
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private EntityChangeEvent.ChangeType toChangeType(OperationType operationType) {
+        return switch (operationType) {
+            case INSERT -> EntityChangeEvent.ChangeType.INSERT;
+            case UPDATE -> EntityChangeEvent.ChangeType.UPDATE;
+            case REPLACE -> EntityChangeEvent.ChangeType.REPLACE;
+            case DELETE -> EntityChangeEvent.ChangeType.DELETE;
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> EntityChangeEvent.ChangeType.INVALIDATE;
+            default -> null;
+        };
+    }
+
+    private String toId(BsonDocument documentKey) {
+        if (documentKey == null || !documentKey.containsKey("_id")) {
+            return null;
+        }
+        BsonValue id = documentKey.get("_id");
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
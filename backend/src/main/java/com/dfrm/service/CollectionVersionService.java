@@ -0,0 +1,121 @@
+package com.dfrm.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import com.dfrm.model.EntityChangeEvent;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Versionsräknare per kollektion som räknas upp vid varje skrivning.
+ * Används för svaga ETags så att oförändrade listor kan besvaras med 304 utan att
+ * frågan körs eller något serialiseras.
+ * <p>
+ * Skrivningar via repositories fångas upp automatiskt, atomiska uppdateringar via
+ * MongoTemplate anmäls med {@link #bump}. Ändringar från andra instanser kommer in via
+ * change streams, utan dem är räknarna bara tillförlitliga med en enda instans.
+ */
+@Service
+@Slf4j
+public class CollectionVersionService {
+
+    // Skiljer räknarna åt mellan omstarter så att en gammal ETag aldrig matchar
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long getVersion(Class<?> type) {
+        AtomicLong version = versions.get(type);
+        return version != null ? version.get() : 0;
+    }
+
+    public void bump(Class<?> type) {
+        versions.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Gör alla utfärdade ETags ogiltiga, t.ex. efter skrivningar direkt mot kollektionerna
+     */
+    public void bumpAll() {
+        globalVersion.incrementAndGet();
+    }
+
+    /**
+     * Bygger en svag ETag av versionerna för de kollektioner som ett svar bygger på
+     *
+     * @param types Kollektionernas entitetsklasser, inklusive de som refereras i svaret
+     * @return Svag ETag
+     */
+    public String etag(Class<?>... types) {
+        return etag(null, types);
+    }
+
+    /**
+     * Bygger en svag ETag för ett svar som även beror på något annat än kollektionerna,
+     * t.ex. ett dokument-ID eller dagens datum
+     *
+     * @param qualifier Extra värde som ingår i ETag:en (valfritt)
+     * @param types Kollektionernas entitetsklasser
+     * @return Svag ETag
+     */
+    public String etag(String qualifier, Class<?>... types) {
+        StringBuilder etag = new StringBuilder("W/\"").append(epoch).append('-').append(globalVersion.get());
+        for (Class<?> type : types) {
+            etag.append('-').append(getVersion(type));
+        }
+        if (qualifier != null) {
+            etag.append('-').append(Integer.toHexString(qualifier.hashCode()));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Kontrollerar If-None-Match mot aktuell ETag och sätter ETag på svaret.
+     * Returnerar true om svaret redan är markerat som 304 och anroparen ska returnera null.
+     *
+     * @param request Aktuellt anrop
+     * @param qualifier Extra värde som ingår i ETag:en (valfritt)
+     * @param types Kollektionernas entitetsklasser
+     * @return true om klientens version fortfarande gäller
+     */
+    public boolean checkNotModified(WebRequest request, String qualifier, Class<?>... types) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                // Spring Security sätter annars no-store och då sparar webbläsaren aldrig svaret
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            }
+        }
+        return request.checkNotModified(etag(qualifier, types));
+    }
+
+    public boolean checkNotModified(WebRequest request, Class<?>... types) {
+        return checkNotModified(request, null, types);
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        bump(event.getSource().getClass());
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        bump(event.getType());
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        bump(event.getEntityType());
+    }
+}
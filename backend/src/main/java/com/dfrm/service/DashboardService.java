@@ -0,0 +1,98 @@
+package com.dfrm.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.DashboardCounters;
+import com.dfrm.model.Interest;
+import com.dfrm.model.PendingTask;
+import com.dfrm.model.Showing;
+import com.dfrm.model.Task;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Räknar ut dashboardens räknare.
+ * Varje kollektion räknas med en enda $facet-aggregering, så en uppdatering
+ * av dashboarden kostar en fråga per kollektion istället för en per räknare.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardService {
+
+    private static final String COUNT_FIELD = "count";
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskFilterService taskFilterService;
+
+    public DashboardCounters getCounters() {
+        Map<String, Criteria> pendingFacets = new LinkedHashMap<>();
+        pendingFacets.put("unreviewed", Criteria.where("status").in("NEW", "PENDING"));
+        Map<String, Long> pending = countFacets(PendingTask.class, pendingFacets);
+
+        Map<String, Criteria> interestFacets = new LinkedHashMap<>();
+        interestFacets.put("unreviewed", Criteria.where("status").is("NEW"));
+        Map<String, Long> interests = countFacets(Interest.class, interestFacets);
+
+        Map<String, Criteria> showingFacets = new LinkedHashMap<>();
+        showingFacets.put("active", Criteria.where("status").is("SCHEDULED"));
+        showingFacets.put("upcoming", Criteria.where("status").is("SCHEDULED").and("dateTime").gte(LocalDateTime.now()));
+        Map<String, Long> showings = countFacets(Showing.class, showingFacets);
+
+        Map<String, Criteria> taskFacets = new LinkedHashMap<>();
+        taskFacets.put("overdue", taskFilterService.overdueCriteria());
+        taskFacets.put("open", taskFilterService.openCriteria());
+        Map<String, Long> tasks = countFacets(Task.class, taskFacets);
+
+        return DashboardCounters.builder()
+                .unreviewedPendingTasks(pending.get("unreviewed"))
+                .unreviewedInterests(interests.get("unreviewed"))
+                .activeShowings(showings.get("active"))
+                .upcomingShowings(showings.get("upcoming"))
+                .overdueTasks(tasks.get("overdue"))
+                .openTasks(tasks.get("open"))
+                .build();
+    }
+
+    /**
+     * Räknar dokument för flera villkor med en $facet-aggregering
+     *
+     * @param type Dokumentklass, styr kollektion och fältmappning
+     * @param facets Villkor per räknare, i ordning
+     * @return Antal dokument per räknare
+     */
+    private Map<String, Long> countFacets(Class<?> type, Map<String, Criteria> facets) {
+        FacetOperation facet = null;
+        for (Map.Entry<String, Criteria> entry : facets.entrySet()) {
+            facet = (facet == null ? Aggregation.facet() : facet)
+                    .and(Aggregation.match(entry.getValue()), Aggregation.count().as(COUNT_FIELD))
+                    .as(entry.getKey());
+        }
+
+        TypedAggregation<?> aggregation = Aggregation.newAggregation(type, facet);
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String name : facets.keySet()) {
+            List<Document> rows = result != null ? result.getList(name, Document.class) : null;
+            // En facet utan träffar ger en tom lista istället för count 0
+            long count = rows == null || rows.isEmpty() ? 0L : ((Number) rows.get(0).get(COUNT_FIELD)).longValue();
+            counts.put(name, count);
+        }
+
+        log.debug("Dashboardräknare för {}: {}", type.getSimpleName(), counts);
+        return counts;
+    }
+}
@@ -0,0 +1,337 @@
+package com.dfrm.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extraherar fält (namn, e-post, telefon osv.) ur e-posttext med en deklarativ regeltabell.
+ * <p>
+ * Varje fält har en ordnad lista med regler. Texten delas upp i rader en gång och varje rad
+ * görs om till gemener en gång. Alla fält extraheras i samma genomgång av raderna: för varje
+ * fält sparas den regel med lägst ordningsnummer som matchat, och vid lika regel den första
+ * raden. Resultatet blir detsamma som att pröva regel för regel över alla rader, utan att
+ * texten gås igenom en gång per regel.
+ * <p>
+ * Blockfält, som meddelandetexten, samlar rader från en startmarkör fram till en rad med "---".
+ * Instanserna är oföränderliga och trådsäkra.
+ */
+public final class EmailFieldExtractor {
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+    private static final String BLOCK_END = "---";
+
+    private final List<String> fieldNames;
+    private final List<Rule[]> fieldRules;
+    private final List<String> blockNames;
+    private final List<Pattern[]> blockMarkers;
+
+    private EmailFieldExtractor(Builder builder) {
+        this.fieldNames = List.copyOf(builder.fieldNames);
+        this.fieldRules = List.copyOf(builder.fieldRules);
+        this.blockNames = List.copyOf(builder.blockNames);
+        this.blockMarkers = List.copyOf(builder.blockMarkers);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Extraherar alla fält ur texten
+     *
+     * @param content Texten, redan rensad från HTML
+     * @return Extraherade värden per fältnamn, fält utan träff saknas i mappen
+     */
+    public Map<String, String> extract(String content) {
+        int fieldCount = fieldNames.size();
+        Match[] matches = new Match[fieldCount];
+        int[] matchedRule = new int[fieldCount];
+        Arrays.fill(matchedRule, Integer.MAX_VALUE);
+        int unresolved = fieldCount;
+
+        int blockCount = blockNames.size();
+        StringBuilder[] blocks = new StringBuilder[blockCount];
+        boolean[] blockDone = new boolean[blockCount];
+        int openBlocks = blockCount;
+
+        for (String text : LINE_BREAK.split(content)) {
+            Line line = new Line(text);
+
+            for (int field = 0; field < fieldCount; field++) {
+                // Bara regler som går före den hittills bästa träffen kan ändra resultatet
+                Rule[] rules = fieldRules.get(field);
+                int limit = Math.min(matchedRule[field], rules.length);
+                for (int rule = 0; rule < limit; rule++) {
+                    Match match = rules[rule].apply(line);
+                    if (match != null) {
+                        if (rule == 0) {
+                            unresolved--;
+                        }
+                        matches[field] = match;
+                        matchedRule[field] = rule;
+                        break;
+                    }
+                }
+            }
+
+            for (int block = 0; block < blockCount; block++) {
+                if (!blockDone[block]) {
+                    blockDone[block] = collectBlock(block, line, blocks);
+                    if (blockDone[block]) {
+                        openBlocks--;
+                    }
+                }
+            }
+
+            if (unresolved == 0 && openBlocks == 0) {
+                break;
+            }
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int field = 0; field < fieldCount; field++) {
+            if (matches[field] != null) {
+                result.put(fieldNames.get(field), matches[field].value);
+            }
+        }
+        for (int block = 0; block < blockCount; block++) {
+            String value = blockValue(blocks[block]);
+            if (value != null && !value.isEmpty()) {
+                result.put(blockNames.get(block), value);
+            }
+        }
+        // Sidovärden från regler gäller bara där fältets egna regler inte gav något
+        for (Match match : matches) {
+            if (match != null) {
+                match.extras.forEach(result::putIfAbsent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Matar en rad till ett blockfält
+     *
+     * @return true när blocket är avslutat
+     */
+    private boolean collectBlock(int block, Line line, StringBuilder[] blocks) {
+        StringBuilder collected = blocks[block];
+        if (collected == null) {
+            for (Pattern marker : blockMarkers.get(block)) {
+                Matcher matcher = marker.matcher(line.text);
+                if (matcher.find()) {
+                    collected = new StringBuilder();
+                    blocks[block] = collected;
+                    String first = line.text.substring(matcher.end()).trim();
+                    int end = first.indexOf(BLOCK_END);
+                    if (end >= 0) {
+                        collected.append(first, 0, end);
+                        return true;
+                    }
+                    if (!first.isEmpty()) {
+                        collected.append(first).append('\n');
+                    }
+                    return false;
+                }
+            }
+            return false;
+        }
+        if (line.text.contains(BLOCK_END)) {
+            return true;
+        }
+        collected.append(line.text).append('\n');
+        return false;
+    }
+
+    private static String blockValue(StringBuilder collected) {
+        if (collected == null) {
+            return null;
+        }
+        String value = collected.toString().trim();
+        int end = value.indexOf(BLOCK_END);
+        return end >= 0 ? value.substring(0, end).trim() : value;
+    }
+
+    /**
+     * En rad i texten med gemener beräknade en gång
+     */
+    public static final class Line {
+        private final String text;
+        private final String lower;
+
+        Line(String text) {
+            this.text = text;
+            this.lower = text.toLowerCase();
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public String lower() {
+            return lower;
+        }
+
+        public boolean containsAny(String... keywords) {
+            for (String keyword : keywords) {
+                if (lower.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean startsWithAny(String... keywords) {
+            for (String keyword : keywords) {
+                if (lower.startsWith(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Texten efter radens första kolon, trimmad, eller null om raden saknar kolon
+         */
+        public String afterColon() {
+            int colon = text.indexOf(':');
+            return colon >= 0 ? text.substring(colon + 1).trim() : null;
+        }
+    }
+
+    /**
+     * Resultatet av en regel, med eventuella sidovärden för andra fält
+     */
+    public static final class Match {
+        private final String value;
+        private final Map<String, String> extras;
+
+        private Match(String value, Map<String, String> extras) {
+            this.value = value;
+            this.extras = extras;
+        }
+
+        public static Match of(String value) {
+            return new Match(value, Collections.emptyMap());
+        }
+
+        /**
+         * @param extras Värden för andra fält, används bara om de fälten saknar egen träff
+         */
+        public static Match of(String value, Map<String, String> extras) {
+            return new Match(value, extras);
+        }
+    }
+
+    /**
+     * En regel prövas mot en rad och returnerar null om den inte matchar
+     */
+    @FunctionalInterface
+    public interface Rule {
+        Match apply(Line line);
+    }
+
+    /**
+     * Regel som gäller rader som uppfyller ett villkor. Returnerar extraktionen null
+     * fortsätter sökningen på nästa rad.
+     */
+    public static Rule when(Predicate<Line> condition, Function<Line, String> extraction) {
+        return line -> {
+            if (!condition.test(line)) {
+                return null;
+            }
+            String value = extraction.apply(line);
+            return value != null ? Match.of(value) : null;
+        };
+    }
+
+    /**
+     * Regel som returnerar första träffen för ett mönster på raden
+     */
+    public static Rule find(Pattern pattern) {
+        return find(pattern, 0);
+    }
+
+    public static Rule find(Pattern pattern, int group) {
+        return line -> {
+            Matcher matcher = pattern.matcher(line.text);
+            return matcher.find() ? Match.of(matcher.group(group).trim()) : null;
+        };
+    }
+
+    /**
+     * Första träffen för ett mönster i en text, eller null
+     */
+    public static String firstMatch(Pattern pattern, String text, int group) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(group) : null;
+    }
+
+    /**
+     * Tar bort alla träffar för mönstren, i tur och ordning, och trimmar efter varje
+     */
+    public static String removeAll(String text, Pattern... patterns) {
+        String result = text;
+        for (Pattern pattern : patterns) {
+            result = pattern.matcher(result).replaceAll("").trim();
+        }
+        return result;
+    }
+
+    /**
+     * Texten fram till första träffen för mönstret, trimmad
+     */
+    public static String before(String text, Pattern pattern) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? text.substring(0, matcher.start()).trim() : text.trim();
+    }
+
+    public static boolean isNullOrEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    public static final class Builder {
+        private final List<String> fieldNames = new ArrayList<>();
+        private final List<Rule[]> fieldRules = new ArrayList<>();
+        private final List<String> blockNames = new ArrayList<>();
+        private final List<Pattern[]> blockMarkers = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Lägger till ett fält med regler i prioritetsordning
+         */
+        public Builder field(String name, Rule... rules) {
+            fieldNames.add(name);
+            fieldRules.add(rules.clone());
+            return this;
+        }
+
+        /**
+         * Lägger till ett blockfält som börjar efter första markören och slutar vid "---".
+         * Markörerna prövas i ordning och matchas utan hänsyn till versaler.
+         */
+        public Builder block(String name, String... markers) {
+            Pattern[] patterns = new Pattern[markers.length];
+            for (int i = 0; i < markers.length; i++) {
+                patterns[i] = Pattern.compile(Pattern.quote(markers[i]), Pattern.CASE_INSENSITIVE);
+            }
+            blockNames.add(name);
+            blockMarkers.add(patterns);
+            return this;
+        }
+
+        public EmailFieldExtractor build() {
+            return new EmailFieldExtractor(this);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.dfrm.service;
 
+import java.io.PrintStream;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.client.GoogleTranslateClient;
@@ -21,6 +22,7 @@ import com.dfrm.repository.TenantRepository;
 import jakarta.mail.BodyPart;
 import jakarta.mail.Folder;
 import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
 import jakarta.mail.Store;
 import jakarta.mail.internet.MimeMultipart;
@@ -30,7 +32,7 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class EmailListener {
+public class EmailListener implements MailboxProcessor {
     
     private final JavaMailProperties mailProperties;
     private final PendingTaskRepository pendingTaskRepository;
@@ -39,10 +41,75 @@ public class EmailListener {
     private final GoogleTranslateClient googleTranslateClient;
     private final TenantRepository tenantRepository;
     private final ApartmentRepository apartmentRepository;
+    private final MailboxSyncService mailboxSyncService;
     
     private static final String TARGET_RECIPIENT = "felanmalan@duggalsfastigheter.se";
     private static final String TARGET_SENDER = "felanmalan@duggalsfastigheter.se";
 
+    // Mönster för fältextraktionen, kompileras en gång
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}\\b");
+    private static final Pattern PHONE_PATTERN = Pattern.compile("\\b(?:\\+?\\d{1,3}[- ]?)?\\d{3,4}[- ]?\\d{2,3}[- ]?\\d{2,4}\\b");
+    private static final Pattern NAME_PATTERN = Pattern.compile("(?i)(?:namn|name)\\s*:\\s*([^:]+?)(?:\\s+e-?post:|\\s+telefon(?:nummer)?:|\\s+adress:|$)");
+    private static final Pattern APARTMENT_PATTERN = Pattern.compile("(?i)(?:lägenhet(?:snummer)?|lgh\\.?|apartment)\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LGH_PATTERN = Pattern.compile("(?i)lgh\\.?\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NR_PATTERN = Pattern.compile("(?i)(?:nr\\.?|#)\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern APARTMENT_NUMBER = Pattern.compile("(\\d+[A-ZÅÄÖa-zåäö]?)");
+    private static final Pattern SHORT_APARTMENT_NUMBER = Pattern.compile("\\d+[A-Za-z]?");
+    private static final Pattern ADDRESS_LABEL = Pattern.compile("(?i)adress:");
+    private static final Pattern ADDRESS_TAIL = Pattern.compile("(?i)adress\\s*:\\s*.*");
+    private static final Pattern NAME_LABEL = Pattern.compile("(?i)namn\\s*:");
+    private static final Pattern EMAIL_TAG = Pattern.compile("(?i)e-?post\\s*:\\s*[^\\s]+@[^\\s]+");
+    private static final Pattern PHONE_TAG = Pattern.compile("(?i)telefon(?:nummer)?\\s*:\\s*\\d+");
+    private static final Pattern APARTMENT_TAG = Pattern.compile("(?i)lägenhet(?:snummer)?\\s*:\\s*\\d+");
+    private static final Pattern APARTMENT_LABEL = Pattern.compile("(?i)lägenhet(?:snummer)?\\s*:");
+    private static final Pattern MESSAGE_LABEL = Pattern.compile("(?i)meddelande:");
+    private static final Pattern NON_PHONE_CHARACTERS = Pattern.compile("[^\\d+\\-\\s]");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Regeltabell för felanmälningar. Reglerna för ett fält står i prioritetsordning,
+     * första regeln som matchar någon rad avgör värdet.
+     */
+    static final EmailFieldExtractor FIELDS = EmailFieldExtractor.builder()
+        .field("name",
+            // "Namn: ..." i början av raden
+            EmailFieldExtractor.when(line -> line.startsWithAny("namn:", "name:"),
+                line -> nameAfterColon(line, ADDRESS_TAIL, EMAIL_TAG, PHONE_TAG, APARTMENT_TAG)),
+            // "Testa Testsson Adress: Testagatan 1 Lägenhetsnummer: 1001 Meddelande"
+            EmailListener::nameBeforeAddress,
+            // "Namn: ..." följt av andra fält på samma rad
+            EmailFieldExtractor.find(NAME_PATTERN, 1),
+            EmailFieldExtractor.when(line -> line.containsAny("namn:", "name:"),
+                line -> nameAfterColon(line, ADDRESS_TAIL, EMAIL_TAG, PHONE_TAG)),
+            // Avsändarfält
+            EmailFieldExtractor.when(line -> line.startsWithAny("från:", "from:", "avsändare:", "sender:"),
+                line -> nameAfterColon(line, ADDRESS_TAIL, EMAIL_TAG, PHONE_TAG)))
+        .field("email",
+            EmailFieldExtractor.when(line -> line.containsAny("e-post:", "email:", "mail:", "e-mail:"),
+                EmailListener::emailFromKeywordLine),
+            EmailFieldExtractor.find(EMAIL_PATTERN))
+        .field("phone",
+            EmailFieldExtractor.when(
+                line -> line.containsAny("telefon", "tel:", "phone:", "mobil:", "mobile:", "telefonnummer:"),
+                EmailListener::phoneFromKeywordLine),
+            EmailFieldExtractor.find(PHONE_PATTERN))
+        .field("apartment",
+            EmailFieldExtractor.when(line -> line.containsAny("lägenhet", "lgh") || line.text().contains("apartment"),
+                EmailListener::apartmentFromKeywordLine),
+            // "lgh 123" eller "lgh. 123" var som helst i texten
+            EmailFieldExtractor.find(LGH_PATTERN, 1),
+            // Alternativa format, t.ex. "Lägenhet: nr 123"
+            EmailFieldExtractor.when(line -> line.containsAny("lägenhet:", "lägenhets nr:", "lgh:", "apartment:"),
+                line -> line.afterColon() != null
+                    ? EmailFieldExtractor.firstMatch(APARTMENT_NUMBER, line.afterColon(), 1)
+                    : null),
+            // "nr. 123" eller "#123"
+            EmailFieldExtractor.find(NR_PATTERN, 1))
+        // Allt från "Meddelande:" fram till "---"
+        .block("description", "meddelande:")
+        .build();
+
     private boolean isDevEnvironment() {
         String[] activeProfiles = environment.getActiveProfiles();
         for (String profile : activeProfiles) {
@@ -53,19 +120,53 @@ public class EmailListener {
         return false;
     }
 
-    // Borttagen automatisk schemaläggning för att endast köra manuellt
+    @Override
+    public String getMailboxName() {
+        return "felanmälan";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return mailProperties != null
+            && mailProperties.getHost() != null
+            && mailProperties.getListeningUsername() != null
+            && mailProperties.getListeningPassword() != null
+            && !mailProperties.getListeningPassword().isEmpty();
+    }
+
+    // Borttagen automatisk schemaläggning för att endast köra manuellt,
+    // MailIngestionService bevakar inkorgen löpande med IMAP IDLE
     public void checkEmails() {
         log.info("Checking emails...");
         
         // Skydda mot null-värden
-        if (mailProperties == null || 
-            mailProperties.getHost() == null || 
-            mailProperties.getListeningUsername() == null || 
-            mailProperties.getListeningPassword() == null) {
+        if (!isConfigured()) {
             log.error("Mail properties are not properly configured: {}", mailProperties);
             return;
         }
         
+        try (Store store = connect(new Properties(), null)) {
+            Folder inbox = store.getFolder("INBOX");
+            inbox.open(Folder.READ_WRITE);
+            syncNewMessages(inbox);
+            inbox.close(false);
+        } catch (Exception e) {
+            log.error("Error checking emails: {}", e.getMessage(), e);
+            if (e.getCause() != null) {
+                log.error("Caused by: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Ansluter till felanmälans inkorg
+     *
+     * @param overrides Sessionsinställningar som ersätter standardvärdena, t.ex. tidsgränser
+     * @param protocolTrace Ström som tar emot protokollspårningen (valfri)
+     * @return Ansluten Store som anroparen ansvarar för att stänga
+     */
+    @Override
+    public Store connect(Properties overrides, PrintStream protocolTrace) throws MessagingException {
         // I utvecklingsmiljö, logga men fortsätt körningen
         boolean isDev = isDevEnvironment();
         if (isDev) {
@@ -75,7 +176,7 @@ public class EmailListener {
         }
         
         // Använd port 993 för IMAPS (inkommande e-post) oavsett konfiguration
-        Properties properties = System.getProperties();
+        Properties properties = new Properties(System.getProperties());
         properties.put("mail.store.protocol", "imaps");
         properties.put("mail.imaps.host", mailProperties.getHost());
         properties.put("mail.imaps.port", "993");
@@ -95,84 +196,113 @@ public class EmailListener {
         properties.put("mail.imaps.connectiontimeout", "20000");
         properties.put("mail.imaps.timeout", "20000");
         
+        // Hämtning av hela meddelanden ska inte markera dem som lästa, det görs efter bearbetning
+        properties.put("mail.imaps.peek", "true");
+        
         // Inaktivera strikta certifikatkontroller för utveckling
         if (isDev) {
             properties.put("mail.imaps.ssl.checkserveridentity", "false");
             log.info("Disabled strict certificate checks for development");
         }
+        properties.putAll(overrides);
 
-        try {
-            log.info("Creating mail session with host: {}, port: 993 (IMAPS)", 
-                mailProperties.getHost());
-                
-            Session session = Session.getInstance(properties);
-            session.setDebug(isDev);
+        log.info("Creating mail session with host: {}, port: 993 (IMAPS)", 
+            mailProperties.getHost());
             
-            log.info("Connecting to mail server with username: {} and password length: {}", 
-                mailProperties.getListeningUsername(), 
-                mailProperties.getListeningPassword() != null ? mailProperties.getListeningPassword().length() : 0);
-            
-            // Använd try-with-resources för att säkerställa att Store stängs ordentligt
-            try (Store store = session.getStore("imaps")) {
-                store.connect(
-                    mailProperties.getHost(),
-                    mailProperties.getListeningPort(), // Använd den specifika porten för lyssning
-                    mailProperties.getListeningUsername(), // Använd det specifika användarnamnet för lyssning
-                    mailProperties.getListeningPassword() // Använd det specifika lösenordet för lyssning
-                );
-                
-                log.info("Successfully connected to mail server");
+        Session session = Session.getInstance(properties);
+        session.setDebug(isDev);
+        if (protocolTrace != null) {
+            session.setDebug(true);
+            session.setDebugOut(protocolTrace);
+        }
+        
+        log.info("Connecting to mail server with username: {} and password length: {}", 
+            mailProperties.getListeningUsername(), 
+            mailProperties.getListeningPassword() != null ? mailProperties.getListeningPassword().length() : 0);
+        
+        Store store = session.getStore("imaps");
+        store.connect(
+            mailProperties.getHost(),
+            mailProperties.getListeningPort(), // Använd den specifika porten för lyssning
+            mailProperties.getListeningUsername(), // Använd det specifika användarnamnet för lyssning
+            mailProperties.getListeningPassword() // Använd det specifika lösenordet för lyssning
+        );
+        
+        log.info("Successfully connected to mail server");
+        return store;
+    }
 
-                Folder inbox = store.getFolder("INBOX");
-                inbox.open(Folder.READ_WRITE);
-                
-                // Hämta alla olästa meddelanden
-                Message[] messages = inbox.search(
-                    new jakarta.mail.search.FlagTerm(
-                        new jakarta.mail.Flags(jakarta.mail.Flags.Flag.SEEN), 
-                        false
-                    )
-                );
-                
-                log.info("Found {} unread messages", messages.length);
-                
-                for (Message message : messages) {
-                    try {
-                        log.info("Processing email with subject: {}", message.getSubject());
-                        
-                        // Bearbeta alla e-postmeddelanden oavsett avsändare
-                        processEmail(message);
-                    } catch (Exception e) {
-                        log.error("Fel vid bearbetning av e-post: {}", e.getMessage(), e);
-                    }
+    /**
+     * Bearbetar alla meddelanden som kommit sedan förra synkningen och markerar dem som lästa.
+     * Synkroniserad så att manuell kontroll och bevakningen inte bearbetar samma meddelande.
+     * Meddelandena tolkas och sparas parallellt, se {@link MailboxSyncService}.
+     *
+     * @param inbox Inkorgen, öppnad med READ_WRITE
+     * @return Antal bearbetade meddelanden
+     */
+    @Override
+    public synchronized int syncNewMessages(Folder inbox) throws MessagingException {
+        return mailboxSyncService.sync(getMailboxName(), inbox,
+            new MailboxSyncService.MessagePipeline<ReceivedReport, PendingTask>() {
+                @Override
+                public ReceivedReport read(Message message) throws Exception {
+                    return readMessage(message);
                 }
-                
-                inbox.close(false);
-            }
-        } catch (Exception e) {
-            log.error("Error checking emails: {}", e.getMessage(), e);
-            if (e.getCause() != null) {
-                log.error("Caused by: {}", e.getCause().getMessage(), e.getCause());
-            }
+
+                @Override
+                public PendingTask parse(ReceivedReport received) {
+                    return parseReport(received);
+                }
+
+                @Override
+                public void persist(PendingTask pendingTask, String sourceMessageId) {
+                    persistReport(pendingTask, sourceMessageId);
+                }
+            });
+    }
+
+    /**
+     * Ämne och innehåll för en felanmälan, lästa från servern
+     */
+    private static class ReceivedReport {
+        private final String subject;
+        private final String content;
+        
+        ReceivedReport(String subject, String content) {
+            this.subject = subject;
+            this.content = content;
         }
     }
 
-    private void processEmail(Message message) throws Exception {
+    private ReceivedReport readMessage(Message message) throws Exception {
+        log.info("Processing email with subject: {}", message.getSubject());
+        return new ReceivedReport(message.getSubject(), extractEmailContent(message));
+    }
+
+    private PendingTask parseReport(ReceivedReport received) {
         log.info("Bearbetar felanmälan...");
         
-        String subject = message.getSubject();
-        String contentText = extractEmailContent(message);
-        
-        Map<String, String> extractedInfo = parseEmailFields(contentText);
+        Map<String, String> extractedInfo = parseEmailFields(received.content);
         
-        PendingTask pendingTask = createPendingTask(extractedInfo, subject);
+        return createPendingTask(extractedInfo, received.subject);
+    }
+
+    private void persistReport(PendingTask pendingTask, String sourceMessageId) {
+        // Meddelandet kan ha bearbetats innan checkpointen hann sparas
+        if (pendingTaskRepository.existsBySourceMessageId(sourceMessageId)) {
+            log.info("Felanmälan från meddelande {} finns redan, hoppar över", sourceMessageId);
+            return;
+        }
         
         pendingTask = enrichTaskData(pendingTask);
+        pendingTask.setSourceMessageId(sourceMessageId);
         
-        saveAndTranslate(pendingTask);
-        
-        // Markera e-postmeddelandet som läst
-        message.setFlag(jakarta.mail.Flags.Flag.SEEN, true);
+        try {
+            saveAndTranslate(pendingTask);
+        } catch (DuplicateKeyException e) {
+            // Sparad av en tidigare synkning som avbröts innan flaggan sattes
+            log.info("Felanmälan från meddelande {} finns redan, hoppar över", sourceMessageId);
+        }
     }
     
     private String extractEmailContent(Message message) throws Exception {
@@ -241,8 +371,8 @@ public class EmailListener {
                     log.info("Hittade hyresgäst med ID: {}", tenant.getId());
                     
                     // Om hyresgästen har en lägenhet, använd den informationen
-                    if (tenant.getApartment() != null) {
-                        String apartmentId = tenant.getApartment().getId();
+                    if (tenant.getApartmentId() != null) {
+                        String apartmentId = tenant.getApartmentId();
                         apartmentRepository.findById(apartmentId)
                             .ifPresent(apartment -> {
                                 pendingTask.setApartmentId(apartment.getId());
@@ -292,33 +422,20 @@ public class EmailListener {
     
     private Map<String, String> extractDetailsFromEmail(String content) {
         log.info("Extraherar detaljer från e-postinnehåll...");
-        Map<String, String> details = new HashMap<>();
         
         // Rensa HTML-innehåll om det finns
         content = cleanHtmlContent(content);
         
         // Ersätt <br> med radbrytningar för att hantera olika format
-        content = content.replaceAll("<br>", "\n").replaceAll("<br/>", "\n").replaceAll("<br />", "\n");
+        content = content.replace("<br>", "\n").replace("<br/>", "\n").replace("<br />", "\n");
         
         log.info("Rensat innehåll med radbrytningar: \n{}", content);
         
-        // Dela upp texten på rader för analys
-        String[] lines = content.split("\\r?\\n");
-            
-            // Extrahera namn
-        extractName(lines, details);
-        
-        // Extrahera e-post
-        extractEmail(lines, details);
-        
-        // Extrahera telefonnummer
-        extractPhone(lines, details);
-        
-        // Extrahera lägenhetsnummer
-        extractApartment(lines, details);
-        
-        // Extrahera meddelande/beskrivning av problemet
-        extractMessage(lines, details);
+        // Namn, e-post, telefon, lägenhet och meddelande extraheras i samma genomgång av raderna
+        Map<String, String> details = FIELDS.extract(content);
+        if (!details.containsKey("description")) {
+            log.info("Inget meddelande hittades mellan 'Meddelande:' och '---'");
+        }
         
         // Logga resultat
         logExtractedDetails(details);
@@ -326,347 +443,94 @@ public class EmailListener {
         return details;
     }
     
-    private void extractName(String[] lines, Map<String, String> details) {
-        // Först, leta direkt efter "namn:" eller "name:" i början av raden
-        for (String line : lines) {
-            if (line.toLowerCase().startsWith("namn:") || line.toLowerCase().startsWith("name:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    String name = parts[1].trim();
-                    // Ta bort eventuell annan information som adress, e-post eller telefon från namn-delen
-                    name = name.replaceAll("(?i)adress\\s*:\\s*.*", "").trim();
-                    name = name.replaceAll("(?i)e-?post\\s*:\\s*[^\\s]+@[^\\s]+", "").trim();
-                    name = name.replaceAll("(?i)telefon(?:nummer)?\\s*:\\s*\\d+", "").trim();
-                    name = name.replaceAll("(?i)lägenhet(?:snummer)?\\s*:\\s*\\d+", "").trim();
-                    details.put("name", name);
-                    log.info("Extraherat namn (standardformat): {}", name);
-                    return;
-                }
-            }
-        }
-        
-        // Hantera format som: "Testa Testsson Adress: Testagatan 1 Lägenhetsnummer: 1001 Meddelande"
-        for (String line : lines) {
-            // Hitta rader som innehåller "Adress:" för att isolera namndelarna
-            if (line.toLowerCase().contains("adress:")) {
-                // Dela upp vid "Adress:" för att få namn-delen
-                String[] parts = line.split("(?i)adress:", 2);
-                if (parts.length > 0 && !parts[0].trim().isEmpty()) {
-                    String name = parts[0].trim();
-                    
-                    // Rensa från andra taggar som kan finnas i namnet
-                    name = name.replaceAll("(?i)namn\\s*:", "").trim();
-                    name = name.replaceAll("(?i)e-?post\\s*:\\s*[^\\s]+@[^\\s]+", "").trim();
-                    name = name.replaceAll("(?i)telefon(?:nummer)?\\s*:\\s*\\d+", "").trim();
-                    
-                    details.put("name", name);
-                    log.info("Extraherat namn från rad med adress: {}", name);
-                    
-                    // Extrahera adress och lägenhetsnummer samtidigt
-                    String addressPart = parts[1];
-                    
-                    // Om adressen innehåller lägenhetsnummer, extrahera båda
-                    if (addressPart.toLowerCase().contains("lägenhet")) {
-                        String[] addressApartmentParts = addressPart.split("(?i)lägenhet(?:snummer)?\\s*:", 2);
-                        
-                        if (addressApartmentParts.length > 0 && !addressApartmentParts[0].trim().isEmpty()) {
-                            details.put("address", addressApartmentParts[0].trim());
-                            log.info("Extraherad adress från samma rad: {}", details.get("address"));
-                        }
-                        
-                        if (addressApartmentParts.length > 1 && !addressApartmentParts[1].trim().isEmpty()) {
-                            // Ta allt fram till ett eventuellt "Meddelande:" eller slutet av raden
-                            String apartmentPart = addressApartmentParts[1].split("(?i)meddelande:", 2)[0].trim();
-                            details.put("apartment", apartmentPart);
-                            log.info("Extraherat lägenhetsnummer från samma rad: {}", details.get("apartment"));
-                        }
-                    } else {
-                        // Om det inte finns lägenhetsnummer, spara bara adressen
-                        details.put("address", addressPart.trim());
-                        log.info("Extraherad adress från samma rad: {}", details.get("address"));
-                    }
-                    
-                    return;
-                }
-            }
-        }
-        
-        // Fortsätt med befintliga metoder om inget hittas ovan
-        // Leta efter komplext format med regex
-        for (String line : lines) {
-            Pattern namePattern = Pattern.compile("(?i)(?:namn|name)\\s*:\\s*([^:]+?)(?:\\s+e-?post:|\\s+telefon(?:nummer)?:|\\s+adress:|$)");
-            Matcher nameMatcher = namePattern.matcher(line);
-            if (nameMatcher.find()) {
-                String name = nameMatcher.group(1).trim();
-                details.put("name", name);
-                log.info("Extraherat namn från komplex rad: {}", name);
-                return;
-            }
-        }
-        
-        // Fallback till att hitta namn i vilken rad som helst som innehåller "namn:"
-        for (String line : lines) {
-            if (line.toLowerCase().contains("namn:") || line.toLowerCase().contains("name:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    String name = parts[1].trim();
-                    // Rensa ytterligare
-                    name = name.replaceAll("(?i)adress\\s*:\\s*.*", "").trim();
-                    name = name.replaceAll("(?i)e-?post\\s*:\\s*[^\\s]+@[^\\s]+", "").trim();
-                    name = name.replaceAll("(?i)telefon(?:nummer)?\\s*:\\s*\\d+", "").trim();
-                    details.put("name", name);
-                    log.info("Extraherat namn (alternativt format): {}", details.get("name"));
-                    return;
-                }
+    /**
+     * Namnet före "Adress:", t.ex. "Testa Testsson Adress: Testagatan 1 Lägenhetsnummer: 1001".
+     * Adress och lägenhetsnummer på samma rad följer med som sidovärden.
+     */
+    private static EmailFieldExtractor.Match nameBeforeAddress(EmailFieldExtractor.Line line) {
+        if (!line.lower().contains("adress:")) {
+            return null;
+        }
+        String[] parts = ADDRESS_LABEL.split(line.text(), 2);
+        if (parts.length < 2 || parts[0].trim().isEmpty()) {
+            return null;
+        }
+        
+        // Rensa från andra taggar som kan finnas i namnet
+        String name = EmailFieldExtractor.removeAll(parts[0].trim(), NAME_LABEL, EMAIL_TAG, PHONE_TAG);
+        
+        Map<String, String> extras = new HashMap<>();
+        String addressPart = parts[1];
+        if (addressPart.toLowerCase().contains("lägenhet")) {
+            String[] addressApartmentParts = APARTMENT_LABEL.split(addressPart, 2);
+            if (!addressApartmentParts[0].trim().isEmpty()) {
+                extras.put("address", addressApartmentParts[0].trim());
             }
-        }
-        
-        // Fallback till avsändarfält
-        for (String line : lines) {
-            if (line.toLowerCase().startsWith("från:") || line.toLowerCase().startsWith("from:") ||
-                line.toLowerCase().startsWith("avsändare:") || line.toLowerCase().startsWith("sender:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    String name = parts[1].trim();
-                    // Rensa
-                    name = name.replaceAll("(?i)adress\\s*:\\s*.*", "").trim();
-                    name = name.replaceAll("(?i)e-?post\\s*:\\s*[^\\s]+@[^\\s]+", "").trim();
-                    name = name.replaceAll("(?i)telefon(?:nummer)?\\s*:\\s*\\d+", "").trim();
-                    details.put("name", name);
-                    log.info("Extraherat namn (avsändarformat): {}", details.get("name"));
-                    return;
-                }
+            if (addressApartmentParts.length > 1 && !addressApartmentParts[1].trim().isEmpty()) {
+                // Ta allt fram till ett eventuellt "Meddelande:" eller slutet av raden
+                extras.put("apartment", MESSAGE_LABEL.split(addressApartmentParts[1], 2)[0].trim());
             }
+        } else {
+            // Om det inte finns lägenhetsnummer, spara bara adressen
+            extras.put("address", addressPart.trim());
         }
-        
-        // Om inget namn hittades och vi har e-post, använd del av e-post som namn
-        if (!details.containsKey("name") && details.containsKey("email")) {
-            String email = details.get("email");
-            String name = email.split("@")[0].replace(".", " ");
-            details.put("name", name);
-            log.info("Konstruerat namn från e-post: {}", name);
-        }
+        return EmailFieldExtractor.Match.of(name, extras);
     }
     
-    private void extractEmail(String[] lines, Map<String, String> details) {
-        // E-post regex mönster
-        Pattern emailPattern = Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}\\b");
-        
-        // Först, försök hitta e-post i en rad som innehåller "E-post:" eller liknande
-            for (String line : lines) {
-            if (line.toLowerCase().contains("e-post:") || 
-                line.toLowerCase().contains("email:") ||
-                line.toLowerCase().contains("mail:") || 
-                line.toLowerCase().contains("e-mail:")) {
-                // Om raden innehåller e-post: text, extrahera e-postadressen specifikt
-                    Matcher emailMatcher = emailPattern.matcher(line);
-                    if (emailMatcher.find()) {
-                    String email = emailMatcher.group();
-                    details.put("email", email);
-                    log.info("Extraherad e-post från rad med e-post-nyckelord: {}", email);
-                    return;
-                }
-                
-                // Fallback till delning på kolon om vi inte hittar med regex
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    String emailCandidate = parts[1].trim();
-                    // Rensa bort allt efter eventuellt mellanslag (om det finns telefonnummer osv)
-                    if (emailCandidate.contains(" ")) {
-                        emailCandidate = emailCandidate.split("\\s+")[0];
-                    }
-                    if (emailCandidate.contains("@")) {
-                        details.put("email", emailCandidate);
-                        log.info("Extraherad e-post (delning på kolon): {}", details.get("email"));
-                        return;
-                    }
-                }
-            }
-        }
-        
-        // Om ovanstående inte fungerar, leta efter vilken rad som helst som innehåller e-postadress
-        for (String line : lines) {
-            Matcher emailMatcher = emailPattern.matcher(line);
-            if (emailMatcher.find()) {
-                details.put("email", emailMatcher.group());
-                log.info("Extraherad e-post (mönstermatchning): {}", details.get("email"));
-                return;
-            }
-        }
+    /**
+     * Texten efter kolon, rensad från andra fält som hamnat på samma rad
+     */
+    private static String nameAfterColon(EmailFieldExtractor.Line line, Pattern... otherFields) {
+        String name = line.afterColon();
+        return EmailFieldExtractor.isNullOrEmpty(name) ? null : EmailFieldExtractor.removeAll(name, otherFields);
     }
     
-    private void extractPhone(String[] lines, Map<String, String> details) {
-        // Telefonnummer regex mönster - mer generell version
-        Pattern phonePattern = Pattern.compile("\\b(?:\\+?\\d{1,3}[- ]?)?\\d{3,4}[- ]?\\d{2,3}[- ]?\\d{2,4}\\b");
-        
-        // Först, försök hitta telefonnummer i rader som uttryckligen anger telefon
-            for (String line : lines) {
-            if (line.toLowerCase().contains("telefon") || 
-                line.toLowerCase().contains("tel:") ||
-                line.toLowerCase().contains("phone:") || 
-                line.toLowerCase().contains("mobil:") ||
-                line.toLowerCase().contains("mobile:") ||
-                line.toLowerCase().contains("telefonnummer:")) {
-                
-                // Använd regex för att hitta telefonnumret i raden
-                Matcher phoneMatcher = phonePattern.matcher(line);
-                if (phoneMatcher.find()) {
-                    String phone = phoneMatcher.group();
-                    details.put("phone", phone);
-                    log.info("Extraherat telefonnummer med regex från telefon-rad: {}", phone);
-                    return;
-                }
-                
-                // Fallback: Split på kolon
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    String phoneCandidate = parts[1].trim();
-                    // Rensa bara siffror och eventuella tecken som vanligtvis finns i telefonnummer
-                    phoneCandidate = phoneCandidate.replaceAll("[^\\d+\\-\\s]", "").trim();
-                    if (!phoneCandidate.isEmpty()) {
-                        details.put("phone", phoneCandidate);
-                        log.info("Extraherat telefonnummer (delning på kolon): {}", phoneCandidate);
-                        return;
-                    }
-                }
-            }
+    private static String emailFromKeywordLine(EmailFieldExtractor.Line line) {
+        String email = EmailFieldExtractor.firstMatch(EMAIL_PATTERN, line.text(), 0);
+        if (email != null) {
+            return email;
         }
         
-        // Om inget telefonnummer hittats explicit, sök hela texten efter telefonnummermönster
-            for (String line : lines) {
-            Matcher phoneMatcher = phonePattern.matcher(line);
-            if (phoneMatcher.find()) {
-                String phone = phoneMatcher.group();
-                details.put("phone", phone);
-                log.info("Extraherat telefonnummer (mönstermatchning): {}", phone);
-                return;
-            }
+        // Fallback till delning på kolon om vi inte hittar med regex
+        String emailCandidate = line.afterColon();
+        if (EmailFieldExtractor.isNullOrEmpty(emailCandidate)) {
+            return null;
+        }
+        // Rensa bort allt efter eventuellt mellanslag (om det finns telefonnummer osv)
+        if (emailCandidate.contains(" ")) {
+            emailCandidate = WHITESPACE.split(emailCandidate)[0];
         }
+        return emailCandidate.contains("@") ? emailCandidate : null;
     }
     
-    private void extractApartment(String[] lines, Map<String, String> details) {
-        // Sök efter lägenhetsnummer i tydligt format
-        Pattern apartmentPattern = Pattern.compile("(?i)(?:lägenhet(?:snummer)?|lgh\\.?|apartment)\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
-        
-        // Först söker vi efter standardformat
-        for (String line : lines) {
-            if (line.toLowerCase().contains("lägenhet") || 
-                line.toLowerCase().contains("lgh") || 
-                line.contains("apartment")) {
-                
-                Matcher apartmentMatcher = apartmentPattern.matcher(line);
-                if (apartmentMatcher.find()) {
-                    String apartmentNumber = apartmentMatcher.group(1).trim();
-                    details.put("apartment", apartmentNumber);
-                    log.info("Extraherat lägenhetsnummer (standardformat): {}", apartmentNumber);
-                    return;
-                }
-                
-                // Om vi inte hittar med regex, kolla efter kolon
-                if (line.contains(":")) {
-                    String[] parts = line.split(":", 2);
-                    if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                        // Plocka ut första delen efter kolon som kan vara numret
-                        String potentialNumber = parts[1].trim().split("\\s+")[0];
-                        // Om det ser ut som ett lägenhetsnummer (siffror, eventuellt med bokstav)
-                        if (potentialNumber.matches("\\d+[A-Za-z]?")) {
-                            details.put("apartment", potentialNumber);
-                            log.info("Extraherat lägenhetsnummer (efter kolon): {}", potentialNumber);
-                            return;
-                        }
-                    }
-                }
-            }
+    private static String phoneFromKeywordLine(EmailFieldExtractor.Line line) {
+        String phone = EmailFieldExtractor.firstMatch(PHONE_PATTERN, line.text(), 0);
+        if (phone != null) {
+            return phone;
         }
         
-        // Sök efter det vanliga formatet "lgh XXX" eller "lgh. XXX" var som helst i text
-        Pattern lghPattern = Pattern.compile("(?i)lgh\\.?\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
-        for (String line : lines) {
-            Matcher lghMatcher = lghPattern.matcher(line);
-            if (lghMatcher.find()) {
-                details.put("apartment", lghMatcher.group(1).trim());
-                log.info("Extraherat lägenhetsnummer (lgh-format): {}", details.get("apartment"));
-                return;
-            }
-        }
-        
-        // Sök efter alternativa format (t.ex. "Lägenhet: 123")
-                for (String line : lines) {
-            if (line.toLowerCase().contains("lägenhet:") || 
-                line.toLowerCase().contains("lägenhets nr:") || 
-                line.toLowerCase().contains("lgh:") || 
-                line.toLowerCase().contains("apartment:")) {
-                
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1) {
-                    // Plocka ut bara siffror och eventuell bokstav
-                    String apartmentCandidate = parts[1].trim();
-                    Pattern numberPattern = Pattern.compile("(\\d+[A-ZÅÄÖa-zåäö]?)");
-                    Matcher numberMatcher = numberPattern.matcher(apartmentCandidate);
-                    
-                    if (numberMatcher.find()) {
-                        details.put("apartment", numberMatcher.group(1));
-                        log.info("Extraherat lägenhetsnummer (alternativt format): {}", details.get("apartment"));
-                        return;
-                    }
-                }
-            }
-        }
-        
-        // Sök efter nummer efter "nr." eller "#" som ofta indikerar lägenhetsnummer
-        Pattern numberPattern = Pattern.compile("(?i)(?:nr\\.?|#)\\s*(\\d+[A-ZÅÄÖa-zåäö]?)", Pattern.CASE_INSENSITIVE);
-        for (String line : lines) {
-            Matcher numberMatcher = numberPattern.matcher(line);
-            if (numberMatcher.find()) {
-                details.put("apartment", numberMatcher.group(1).trim());
-                log.info("Extraherat lägenhetsnummer (nr/# format): {}", details.get("apartment"));
-                return;
-            }
+        // Fallback: behåll bara tecken som vanligtvis finns i telefonnummer
+        String phoneCandidate = line.afterColon();
+        if (EmailFieldExtractor.isNullOrEmpty(phoneCandidate)) {
+            return null;
         }
+        phoneCandidate = NON_PHONE_CHARACTERS.matcher(phoneCandidate).replaceAll("").trim();
+        return phoneCandidate.isEmpty() ? null : phoneCandidate;
     }
     
-    private void extractMessage(String[] lines, Map<String, String> details) {
-        StringBuilder message = new StringBuilder();
-        boolean foundMessageStart = false;
-        
-        // Leta ENDAST efter "Meddelande:" och ta med allt fram till "---"
-        for (String line : lines) {
-            // Om vi hittar början av meddelandet
-            if (!foundMessageStart && line.toLowerCase().contains("meddelande:")) {
-                foundMessageStart = true;
-                
-                // Extrahera bara den del av raden som kommer efter "Meddelande:"
-                String[] parts = line.split("(?i)meddelande:", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    message.append(parts[1].trim()).append("\n");
-                }
-                continue;
-            }
-            
-            // Om vi hittar slutet av meddelandet, avbryt loopen
-            if (foundMessageStart && line.contains("---")) {
-                break;
-            }
-            
-            // Samla in meddelandet bara om vi är mellan "Meddelande:" och "---"
-            if (foundMessageStart) {
-                message.append(line).append("\n");
-            }
+    private static String apartmentFromKeywordLine(EmailFieldExtractor.Line line) {
+        String apartment = EmailFieldExtractor.firstMatch(APARTMENT_PATTERN, line.text(), 1);
+        if (apartment != null) {
+            return apartment.trim();
         }
         
-        String finalMessage = message.toString().trim();
-        
-        // Ytterligare kontroll för att säkerställa att allt efter "---" tas bort
-        if (finalMessage.contains("---")) {
-            finalMessage = finalMessage.split("---")[0].trim();
-        }
-        
-        if (!finalMessage.isEmpty()) {
-            details.put("description", finalMessage);
-        } else {
-            log.info("Inget meddelande hittades mellan 'Meddelande:' och '---'");
+        // Om vi inte hittar med regex, ta första ordet efter kolon om det ser ut som ett lägenhetsnummer
+        String afterColon = line.afterColon();
+        if (EmailFieldExtractor.isNullOrEmpty(afterColon)) {
+            return null;
         }
-        
+        String potentialNumber = WHITESPACE.split(afterColon)[0];
+        return SHORT_APARTMENT_NUMBER.matcher(potentialNumber).matches() ? potentialNumber : null;
     }
     
     private void logExtractedDetails(Map<String, String> details) {
@@ -761,81 +625,20 @@ public class EmailListener {
         }
         
         // Ta bort HTML-taggar
-        String result = content.replaceAll("<[^>]*>", " ");
+        String result = HTML_TAG.matcher(content).replaceAll(" ");
         
         // Ta bort överflödiga mellanslag
-        result = result.replaceAll("\\s+", " ");
+        result = WHITESPACE.matcher(result).replaceAll(" ");
         
         // Konvertera HTML-entiteter
-        result = result.replaceAll("&nbsp;", " ")
-                       .replaceAll("&amp;", "&")
-                       .replaceAll("&lt;", "<")
-                       .replaceAll("&gt;", ">");
+        result = result.replace("&nbsp;", " ")
+                       .replace("&amp;", "&")
+                       .replace("&lt;", "<")
+                       .replace("&gt;", ">");
         
         return result.trim();
     }
 
-    private void extractAddress(String[] lines, Map<String, String> details) {
-        // Försök med standardformat (Adress: xxx)
-        for (String line : lines) {
-            if (line.toLowerCase().startsWith("adress:") || line.toLowerCase().startsWith("address:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1) {
-                    String address = parts[1].trim();
-                    
-                    // Ta bort lägenhetsnummer från adressen om det finns
-                    address = address.replaceAll("(?i)\\s*lgh\\.?\\s*\\d+.*|\\s*lägenhet\\s*\\d+.*", "").trim();
-                    
-                    details.put("address", address);
-                    log.info("Extraherad adress (standardformat): {}", details.get("address"));
-                    return;
-                }
-            }
-        }
-        
-        // Sök efter rader som innehåller adress:
-        for (String line : lines) {
-            if (line.toLowerCase().contains("adress:") || line.toLowerCase().contains("address:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1) {
-                    String address = parts[1].trim();
-                    
-                    // Ta bort lägenhetsnummer från adressen om det finns
-                    address = address.replaceAll("(?i)\\s*lgh\\.?\\s*\\d+.*|\\s*lägenhet\\s*\\d+.*", "").trim();
-                    
-                    details.put("address", address);
-                    log.info("Extraherad adress (innehåller adress:): {}", details.get("address"));
-                    return;
-                }
-            }
-        }
-        
-        // Sök efter adressmönster (gatunamn + nummer)
-        Pattern addressPattern = Pattern.compile("\\b[A-ZÅÄÖa-zåäö]+(?:gatan|vägen|gränden|allén|platsen|torget|backen)\\s+\\d+\\b", Pattern.CASE_INSENSITIVE);
-        
-        for (String line : lines) {
-            Matcher addressMatcher = addressPattern.matcher(line);
-            if (addressMatcher.find()) {
-                details.put("address", addressMatcher.group());
-                log.info("Extraherad adress (mönstermatchning gata): {}", details.get("address"));
-                return;
-            }
-        }
-        
-        // Sök efter mönster med var: eller plats: som ofta indikerar adress
-        for (String line : lines) {
-            if (line.toLowerCase().contains("var:") || line.toLowerCase().contains("plats:") ||
-                line.toLowerCase().contains("location:") || line.toLowerCase().contains("place:")) {
-                String[] parts = line.split(":", 2);
-                if (parts.length > 1 && !parts[1].trim().isEmpty()) {
-                    details.put("address", parts[1].trim());
-                    log.info("Extraherad adress (var/plats format): {}", details.get("address"));
-                    return;
-                }
-            }
-        }
-    }
-
     // Denna metod kan användas för att testa spara i databasen utan att behöva gå genom e-postprocessen
     public void createTestTask() {
         log.info("Skapar testuppgift i databasen...");
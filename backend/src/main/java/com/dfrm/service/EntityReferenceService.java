@@ -3,14 +3,17 @@ package com.dfrm.service;
 import java.time.LocalDate;
 import java.util.ArrayList;
 
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.model.Apartment;
 import com.dfrm.model.Key;
 import com.dfrm.model.Task;
 import com.dfrm.model.Tenant;
-import com.dfrm.repository.ApartmentRepository;
-import com.dfrm.repository.KeyRepository;
 import com.dfrm.repository.TaskRepository;
 import com.dfrm.repository.TenantRepository;
 import com.dfrm.repository.UserRepository;
@@ -28,11 +31,12 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class EntityReferenceService {
     
-    private final ApartmentRepository apartmentRepository;
     private final TenantRepository tenantRepository;
     private final UserRepository userRepository;
     private final TaskRepository taskRepository;
-    private final KeyRepository keyRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PortfolioCacheService portfolioCacheService;
+    private final CollectionVersionService collectionVersionService;
     
     /**
      * Synkroniserar task-references genom att sätta både ID och referens baserat på den information som finns
@@ -41,9 +45,6 @@ public class EntityReferenceService {
      * @return Uppdaterad uppgift med korrekta referenser
      */
     public Task syncTaskReferences(Task task) {
-        // Synkronisera lägenhet och lägenhets-ID
-        syncApartmentReferenceWithTask(task);
-        
         // Synkronisera hyresgäst och hyresgäst-ID
         syncTenantReferenceWithTask(task);
         
@@ -56,26 +57,6 @@ public class EntityReferenceService {
         return task;
     }
     
-    /**
-     * Synkroniserar lägenhet och lägenhets-ID
-     * 
-     * @param task Uppgiften som ska uppdateras
-     */
-    private void syncApartmentReferenceWithTask(Task task) {
-        // Om vi har apartment-referens men inget apartmentId, sätt ID:t
-        if (task.getApartment() != null && (task.getApartmentId() == null || task.getApartmentId().isEmpty())) {
-            task.setApartmentId(task.getApartment().getId());
-            log.debug("Satte apartmentId baserat på apartment-referens: {}", task.getApartmentId());
-        } 
-        // Om vi har apartmentId men ingen apartment-referens, försök att hitta och sätta den
-        else if (task.getApartmentId() != null && !task.getApartmentId().isEmpty() && task.getApartment() == null) {
-            apartmentRepository.findById(task.getApartmentId()).ifPresent(apartment -> {
-                task.setApartment(apartment);
-                log.debug("Satte apartment-referens baserat på apartmentId: {}", apartment.getId());
-            });
-        }
-    }
-    
     /**
      * Synkroniserar hyresgäst och hyresgäst-ID
      * 
@@ -131,7 +112,9 @@ public class EntityReferenceService {
     }
     
     /**
-     * Hanterar relationen mellan lägenhet och hyresgäst
+     * Hanterar relationen mellan lägenhet och hyresgäst.
+     * Lägenheterna uppdateras med en bulkoperation och hyresgästen med en atomisk uppdatering,
+     * utan att dokumenten först läses in.
      * 
      * @param apartment Lägenheten
      * @param tenant Hyresgästen
@@ -142,33 +125,31 @@ public class EntityReferenceService {
             throw new IllegalArgumentException("Både lägenhet och hyresgäst måste anges");
         }
         
-        // Ta bort hyresgästen från tidigare lägenhet om den finns
-        if (tenant.getApartment() != null) {
-            Apartment oldApartment = tenant.getApartment();
-            if (oldApartment.getTenants() != null) {
-                oldApartment.getTenants().remove(tenant);
-                apartmentRepository.save(oldApartment);
-            }
-        }
-        
-        // Initiera tenants-listan om den inte finns
-        if (apartment.getTenants() == null) {
-            apartment.setTenants(new ArrayList<>());
-        }
-        
-        // Ta bort eventuell existerande kopia av hyresgästen för att undvika duplicering
-        apartment.getTenants().removeIf(t -> t.getId().equals(tenant.getId()));
-        
-        // Lägg till hyresgästen i lägenheten
-        apartment.getTenants().add(tenant);
+        // Flytta hyresgästen: ta bort från andra lägenheter och lägg till i denna, i ett anrop
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Apartment.class)
+                .updateMulti(Query.query(Criteria.where("id").ne(apartment.getId()).and("tenantIds").is(tenant.getId())),
+                        new Update().pull("tenantIds", tenant.getId()))
+                .updateOne(byId(apartment.getId()), new Update().addToSet("tenantIds", tenant.getId()))
+                .execute();
         
         // Uppdatera hyresgästens lägenhet
-        tenant.setApartment(apartment);
+        mongoTemplate.updateFirst(byId(tenant.getId()), new Update().set("apartmentId", apartment.getId()), Tenant.class);
+        tenant.setApartmentId(apartment.getId());
+        
+        portfolioCacheService.refreshWhere(Apartment.class,
+                a -> a.getTenantIds() != null && a.getTenantIds().contains(tenant.getId()), apartment.getId());
+        portfolioCacheService.refresh(Tenant.class, tenant.getId());
+        changed(Apartment.class, Tenant.class);
         
-        // Spara hyresgästen
-        tenantRepository.save(tenant);
+        // Spegla ändringen i objektet som returneras
+        if (apartment.getTenantIds() == null) {
+            apartment.setTenantIds(new ArrayList<>());
+        }
+        if (!apartment.getTenantIds().contains(tenant.getId())) {
+            apartment.getTenantIds().add(tenant.getId());
+        }
         
-        // Returnera den uppdaterade lägenheten
+        log.debug("Tilldelade hyresgäst {} till lägenhet {}", tenant.getId(), apartment.getId());
         return apartment;
     }
     
@@ -184,18 +165,29 @@ public class EntityReferenceService {
             throw new IllegalArgumentException("Både lägenhet och hyresgäst måste anges");
         }
         
-        if (apartment.getTenants() != null) {
-            apartment.getTenants().remove(tenant);
-        }
+        mongoTemplate.updateFirst(byId(apartment.getId()), new Update().pull("tenantIds", tenant.getId()), Apartment.class);
+        
+        // Nollställ bara hyresgästens lägenhet om den pekar på just denna lägenhet
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(tenant.getId()).and("apartmentId").is(apartment.getId())),
+                new Update().unset("apartmentId"), Tenant.class);
+        portfolioCacheService.refresh(Apartment.class, apartment.getId());
+        portfolioCacheService.refresh(Tenant.class, tenant.getId());
+        changed(Apartment.class, Tenant.class);
         
-        tenant.setApartment(null);
-        tenantRepository.save(tenant);
+        if (apartment.getTenantIds() != null) {
+            apartment.getTenantIds().remove(tenant.getId());
+        }
+        if (apartment.getId().equals(tenant.getApartmentId())) {
+            tenant.setApartmentId(null);
+        }
         
         return apartment;
     }
     
     /**
-     * Hanterar relationen mellan lägenhet och nyckel
+     * Hanterar relationen mellan lägenhet och nyckel.
+     * Lägenheterna uppdateras med en bulkoperation och nyckeln med en atomisk uppdatering.
      * 
      * @param apartment Lägenheten
      * @param key Nyckeln
@@ -206,33 +198,31 @@ public class EntityReferenceService {
             throw new IllegalArgumentException("Både lägenhet och nyckel måste anges");
         }
         
-        // Ta bort nyckeln från tidigare lägenhet om den finns
-        if (key.getApartment() != null) {
-            Apartment oldApartment = key.getApartment();
-            if (oldApartment.getKeys() != null) {
-                oldApartment.getKeys().remove(key);
-                apartmentRepository.save(oldApartment);
-            }
-        }
-        
-        // Initiera keys-listan om den inte finns
-        if (apartment.getKeys() == null) {
-            apartment.setKeys(new ArrayList<>());
-        }
-        
-        // Ta bort eventuell existerande kopia av nyckeln för att undvika duplicering
-        apartment.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-        
-        // Lägg till nyckeln i lägenheten
-        apartment.getKeys().add(key);
+        // Flytta nyckeln: ta bort från andra lägenheter och lägg till i denna, i ett anrop
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Apartment.class)
+                .updateMulti(Query.query(Criteria.where("id").ne(apartment.getId()).and("keyIds").is(key.getId())),
+                        new Update().pull("keyIds", key.getId()))
+                .updateOne(byId(apartment.getId()), new Update().addToSet("keyIds", key.getId()))
+                .execute();
         
         // Uppdatera nyckelns lägenhet
-        key.setApartment(apartment);
+        mongoTemplate.updateFirst(byId(key.getId()), new Update().set("apartmentId", apartment.getId()), Key.class);
+        key.setApartmentId(apartment.getId());
+        
+        portfolioCacheService.refreshWhere(Apartment.class,
+                a -> a.getKeyIds() != null && a.getKeyIds().contains(key.getId()), apartment.getId());
+        portfolioCacheService.refresh(Key.class, key.getId());
+        changed(Apartment.class, Key.class);
         
-        // Spara nyckeln
-        keyRepository.save(key);
+        // Spegla ändringen i objektet som returneras
+        if (apartment.getKeyIds() == null) {
+            apartment.setKeyIds(new ArrayList<>());
+        }
+        if (!apartment.getKeyIds().contains(key.getId())) {
+            apartment.getKeyIds().add(key.getId());
+        }
         
-        // Returnera den uppdaterade lägenheten
+        log.debug("Tilldelade nyckel {} till lägenhet {}", key.getId(), apartment.getId());
         return apartment;
     }
     
@@ -248,13 +238,89 @@ public class EntityReferenceService {
             throw new IllegalArgumentException("Både lägenhet och nyckel måste anges");
         }
         
-        if (apartment.getKeys() != null) {
-            apartment.getKeys().remove(key);
-        }
+        mongoTemplate.updateFirst(byId(apartment.getId()), new Update().pull("keyIds", key.getId()), Apartment.class);
         
-        key.setApartment(null);
-        keyRepository.save(key);
+        // Nollställ bara nyckelns lägenhet om den pekar på just denna lägenhet
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(key.getId()).and("apartmentId").is(apartment.getId())),
+                new Update().unset("apartmentId"), Key.class);
+        portfolioCacheService.refresh(Apartment.class, apartment.getId());
+        portfolioCacheService.refresh(Key.class, key.getId());
+        changed(Apartment.class, Key.class);
+        
+        if (apartment.getKeyIds() != null) {
+            apartment.getKeyIds().remove(key.getId());
+        }
+        if (apartment.getId().equals(key.getApartmentId())) {
+            key.setApartmentId(null);
+        }
         
         return apartment;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Tar bort alla referenser till en lägenhet från hyresgäster och nycklar.
+     * Används innan lägenheten raderas, en uppdatering per kollektion oavsett antal referenser.
+     * 
+     * @param apartmentId Lägenhetens ID
+     */
+    public void detachApartment(String apartmentId) {
+        Query referencing = Query.query(Criteria.where("apartmentId").is(apartmentId));
+        long tenants = mongoTemplate.updateMulti(referencing, new Update().unset("apartmentId"), Tenant.class)
+                .getModifiedCount();
+        long keys = mongoTemplate.updateMulti(referencing, new Update().unset("apartmentId"), Key.class)
+                .getModifiedCount();
+        portfolioCacheService.refreshWhere(Tenant.class, t -> apartmentId.equals(t.getApartmentId()));
+        portfolioCacheService.refreshWhere(Key.class, k -> apartmentId.equals(k.getApartmentId()));
+        changed(Tenant.class, Key.class);
+        log.debug("Tog bort referenser till lägenhet {} från {} hyresgäster och {} nycklar", apartmentId, tenants, keys);
+    }
+    
+    /**
+     * Tar bort alla referenser till en hyresgäst från lägenheter och nycklar.
+     * Används innan hyresgästen raderas.
+     * 
+     * @param tenantId Hyresgästens ID
+     */
+    public void detachTenant(String tenantId) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("tenantIds").is(tenantId)),
+                new Update().pull("tenantIds", tenantId), Apartment.class);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("tenantId").is(tenantId)),
+                new Update().unset("tenantId"), Key.class);
+        portfolioCacheService.refreshWhere(Apartment.class,
+                a -> a.getTenantIds() != null && a.getTenantIds().contains(tenantId));
+        portfolioCacheService.refreshWhere(Key.class, k -> tenantId.equals(k.getTenantId()));
+        changed(Apartment.class, Key.class);
+        log.debug("Tog bort referenser till hyresgäst {}", tenantId);
+    }
+    
+    /**
+     * Tar bort alla referenser till en nyckel från lägenheter och hyresgäster.
+     * Används innan nyckeln raderas.
+     * 
+     * @param keyId Nyckelns ID
+     */
+    public void detachKey(String keyId) {
+        Query referencing = Query.query(Criteria.where("keyIds").is(keyId));
+        Update pull = new Update().pull("keyIds", keyId);
+        mongoTemplate.updateMulti(referencing, pull, Apartment.class);
+        mongoTemplate.updateMulti(referencing, pull, Tenant.class);
+        portfolioCacheService.refreshWhere(Apartment.class, a -> a.getKeyIds() != null && a.getKeyIds().contains(keyId));
+        portfolioCacheService.refreshWhere(Tenant.class, t -> t.getKeyIds() != null && t.getKeyIds().contains(keyId));
+        changed(Apartment.class, Tenant.class);
+        log.debug("Tog bort referenser till nyckel {}", keyId);
+    }
+    
+    /**
+     * Atomiska uppdateringar går förbi repositoryhändelserna, så versionerna räknas upp här
+     */
+    private void changed(Class<?>... types) {
+        for (Class<?> type : types) {
+            collectionVersionService.bump(type);
+        }
+    }
+    
+    private Query byId(String id) {
+        return Query.query(Criteria.where("id").is(id));
+    }
+}
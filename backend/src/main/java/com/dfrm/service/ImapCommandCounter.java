@@ -0,0 +1,72 @@
+package com.dfrm.service;
+
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Räknar IMAP-kommandon, och därmed rundresor till servern, genom att läsa Jakarta Mails
+ * protokollspårning. Kopplas in med {@code Session.setDebugOut}.
+ * <p>
+ * Klientens kommandon börjar med en tagg som {@code A12 FETCH ...}. Serverns svar på
+ * samma tagg ({@code A12 OK ...}) räknas inte.
+ */
+public class ImapCommandCounter extends OutputStream {
+
+    // Taggen och första ordet räcker för att avgöra radens typ
+    private static final int PREFIX_LENGTH = 16;
+
+    private final AtomicLong commands = new AtomicLong();
+    private final byte[] prefix = new byte[PREFIX_LENGTH];
+    private int prefixLength;
+
+    public long getCommands() {
+        return commands.get();
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            if (isCommand()) {
+                commands.incrementAndGet();
+            }
+            prefixLength = 0;
+        } else if (prefixLength < PREFIX_LENGTH) {
+            prefix[prefixLength++] = (byte) b;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            write(bytes[i]);
+        }
+    }
+
+    private boolean isCommand() {
+        int i = 0;
+        while (i < prefixLength && prefix[i] >= 'A' && prefix[i] <= 'Z') {
+            i++;
+        }
+        int letters = i;
+        while (i < prefixLength && prefix[i] >= '0' && prefix[i] <= '9') {
+            i++;
+        }
+        if (letters == 0 || i == letters || i >= prefixLength || prefix[i] != ' ') {
+            return false;
+        }
+        return !isWord(i + 1, "OK") && !isWord(i + 1, "NO") && !isWord(i + 1, "BAD");
+    }
+
+    private boolean isWord(int offset, String word) {
+        int end = offset + word.length();
+        if (end > prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (prefix[offset + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return end == prefixLength || prefix[end] == ' ' || prefix[end] == '\r';
+    }
+}
@@ -185,8 +185,8 @@ public class ImportService {
             apt.setInternet(true);
             apt.setStorage(true);
             apt.setRooms((int) Math.ceil(area / 20)); // Uppskatta antal rum baserat på yta
-            apt.setTenants(new ArrayList<>());
-            apt.setKeys(new ArrayList<>());
+            apt.setTenantIds(new ArrayList<>());
+            apt.setKeyIds(new ArrayList<>());
             return apartmentRepository.save(apt);
         }
     }
@@ -203,8 +203,8 @@ public class ImportService {
             tenant.setPhone(phone);
             tenant.setMovedInDate(moveInDate);
             
-            if (tenant.getApartment() == null || !tenant.getApartment().getId().equals(apartment.getId())) {
-                tenant.setApartment(apartment);
+            if (tenant.getApartmentId() == null || !tenant.getApartmentId().equals(apartment.getId())) {
+                tenant.setApartmentId(apartment.getId());
             }
             
             return tenantRepository.save(tenant);
@@ -215,23 +215,20 @@ public class ImportService {
             tenant.setEmail(email);
             tenant.setPhone(phone);
             tenant.setMovedInDate(moveInDate);
-            tenant.setApartment(apartment);
-            tenant.setKeys(new ArrayList<>());
+            tenant.setApartmentId(apartment.getId());
+            tenant.setKeyIds(new ArrayList<>());
             
             return tenantRepository.save(tenant);
         }
     }
     
     private void updateApartmentWithTenant(Apartment apartment, Tenant tenant) {
-        if (apartment.getTenants() == null) {
-            apartment.setTenants(new ArrayList<>());
+        if (apartment.getTenantIds() == null) {
+            apartment.setTenantIds(new ArrayList<>());
         }
         
-        boolean tenantExists = apartment.getTenants().stream()
-                .anyMatch(t -> t.getId().equals(tenant.getId()));
-        
-        if (!tenantExists) {
-            apartment.getTenants().add(tenant);
+        if (!apartment.getTenantIds().contains(tenant.getId())) {
+            apartment.getTenantIds().add(tenant.getId());
             apartmentRepository.save(apartment);
         }
     }
@@ -2,14 +2,22 @@ package com.dfrm.service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Interest;
+import com.dfrm.model.InterestSummary;
+import com.dfrm.model.Showing;
 import com.dfrm.model.User;
 import com.dfrm.repository.InterestRepository;
 import com.dfrm.repository.TaskRepository;
@@ -26,6 +34,8 @@ public class InterestService {
     private final EmailService emailService;
     private final UserService userService;
     private final SecurityTokenService securityTokenService;
+    private final KeysetPaginationService paginationService;
+    private final MongoTemplate mongoTemplate;
     
     @Autowired
     private ShowingService showingService;
@@ -37,13 +47,17 @@ public class InterestService {
             TaskRepository taskRepository,
             EmailService emailService,
             UserService userService,
-            SecurityTokenService securityTokenService) {
+            SecurityTokenService securityTokenService,
+            KeysetPaginationService paginationService,
+            MongoTemplate mongoTemplate) {
         this.interestRepository = interestRepository;
         this.interestEmailListener = interestEmailListener;
         this.taskRepository = taskRepository;
         this.emailService = emailService;
         this.userService = userService;
         this.securityTokenService = securityTokenService;
+        this.paginationService = paginationService;
+        this.mongoTemplate = mongoTemplate;
     }
     
     public List<Interest> getAllInterests() {
@@ -60,19 +74,24 @@ public class InterestService {
         log.info("Hämtar alla intresseanmälningar med visningsdata");
         List<Interest> interests = interestRepository.findAll();
         
-        // För varje intresseanmälan, hitta tillhörande visning
+        // Hämta visningarna för alla intresseanmälningar med en enda fråga
+        Map<String, Showing> firstShowingByInterest = new HashMap<>();
+        try {
+            List<String> interestIds = interests.stream().map(Interest::getId).toList();
+            for (Showing showing : showingService.getShowingsByInterestIds(interestIds)) {
+                // Visningarna kommer sorterade, så den tidigaste per intresseanmälan vinner
+                firstShowingByInterest.putIfAbsent(showing.getRelatedInterestId(), showing);
+            }
+        } catch (Exception e) {
+            log.warn("Kunde inte hämta visningsdata för intresseanmälningar: {}", e.getMessage());
+        }
+        
+        // Koppla visningen till respektive intresseanmälan
         for (Interest interest : interests) {
-            try {
-                // Hitta visningar kopplade till denna intresseanmälan
-                List<com.dfrm.model.Showing> showings = showingService.getShowingsByInterestId(interest.getId());
-                
-                // Om det finns visningar, koppla den första till intresseanmälan
-                if (showings != null && !showings.isEmpty()) {
-                    interest.setShowing(showings.get(0));
-                    log.debug("Kopplat visning till intresseanmälan {}: {}", interest.getId(), showings.get(0).getId());
-                }
-            } catch (Exception e) {
-                log.warn("Kunde inte hämta visningsdata för intresseanmälan {}: {}", interest.getId(), e.getMessage());
+            Showing showing = firstShowingByInterest.get(interest.getId());
+            if (showing != null) {
+                interest.setShowing(showing);
+                log.debug("Kopplat visning till intresseanmälan {}: {}", interest.getId(), showing.getId());
             }
         }
         
@@ -80,6 +99,38 @@ public class InterestService {
         return interests;
     }
     
+    /**
+     * Hämtar intresseanmälningar som listrader, nyast först.
+     * Endast fälten i InterestSummary läses från databasen.
+     * 
+     * @param status Status att filtrera på (valfritt)
+     * @return Lista med listrader
+     */
+    public List<InterestSummary> getInterestSummaries(String status) {
+        Query query = new Query();
+        if (status != null && !status.isEmpty()) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        query.fields().include(InterestSummary.FIELDS);
+        query.with(Sort.by(Sort.Direction.DESC, "received"));
+        
+        return mongoTemplate.find(query, InterestSummary.class, mongoTemplate.getCollectionName(Interest.class));
+    }
+    
+    /**
+     * Hämtar en sida med intresseanmälningar som listrader, nyast först
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med intresseanmälningar
+     */
+    public CursorPage<InterestSummary> getInterestPage(String cursor, Integer limit) {
+        Query query = new Query();
+        query.fields().include(InterestSummary.FIELDS);
+        return paginationService.findPage(query, InterestSummary.class, mongoTemplate.getCollectionName(Interest.class),
+                "received", Sort.Direction.DESC, InterestSummary::getReceived, InterestSummary::getId, cursor, limit);
+    }
+    
     public Optional<Interest> getInterestById(String id) {
         return interestRepository.findById(id);
     }
@@ -11,9 +11,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.dfrm.model.TokenClaims;
 import com.dfrm.model.User;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -29,6 +31,10 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long jwtExpiration;
 
+    // Nyckel och parser byggs en gång, båda är trådsäkra
+    private volatile Key signingKey;
+    private volatile JwtParser parser;
+
     public String generateToken(String username) {
         Map<String, Object> claims = new HashMap<>();
         return createToken(claims, username);
@@ -71,8 +77,42 @@ public class JwtService {
     }
 
     private Key getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key key = signingKey;
+        if (key == null) {
+            key = Keys.hmacShaKeyFor(secretKey.getBytes());
+            signingKey = key;
+        }
+        return key;
+    }
+
+    private JwtParser getParser() {
+        JwtParser jwtParser = parser;
+        if (jwtParser == null) {
+            jwtParser = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build();
+            parser = jwtParser;
+        }
+        return jwtParser;
+    }
+
+    /**
+     * Verifierar signaturen och tolkar token en gång. Resultatet används för hela anropet
+     * istället för att token tolkas om för användarnamn, utgångsdatum och roll var för sig.
+     *
+     * @param token JWT-token
+     * @return Tokenens anspråk
+     * @throws SecurityException om token är ogiltig eller har gått ut
+     */
+    public TokenClaims parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        Object role = claims.get("role");
+        Object userId = claims.get("userId");
+        return new TokenClaims(
+                claims.getSubject(),
+                role != null ? role.toString() : null,
+                userId != null ? userId.toString() : null,
+                claims.getExpiration());
     }
 
     public String extractUsername(String token) {
@@ -105,9 +145,7 @@ public class JwtService {
 
     public Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return getParser()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (io.jsonwebtoken.security.SignatureException e) {
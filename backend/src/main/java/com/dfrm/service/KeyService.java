@@ -5,9 +5,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.model.Apartment;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Key;
 import com.dfrm.model.Tenant;
 import com.dfrm.repository.ApartmentRepository;
@@ -23,13 +25,27 @@ public class KeyService {
     private final KeyRepository keyRepository;
     private final ApartmentRepository apartmentRepository;
     private final TenantRepository tenantRepository;
+    private final KeysetPaginationService paginationService;
+    private final EntityReferenceService entityReferenceService;
+    private final PortfolioCacheService portfolioCacheService;
     
     public List<Key> getAllKeys() {
-        return keyRepository.findAll();
+        return portfolioCacheService.getKeys();
+    }
+    
+    /**
+     * Hämtar en sida med nycklar sorterade på ID
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med nycklar
+     */
+    public CursorPage<Key> getKeyPage(String cursor, Integer limit) {
+        return paginationService.findPage(new Query(), Key.class, Key::getId, cursor, limit);
     }
     
     public Optional<Key> getKeyById(String id) {
-        return keyRepository.findById(id);
+        return portfolioCacheService.getKey(id);
     }
     
     public Optional<Key> findBySerieAndNumber(String serie, String number) {
@@ -42,22 +58,8 @@ public class KeyService {
     
     public void deleteKey(String id) {
         keyRepository.findById(id).ifPresent(key -> {
-            // Ta bort nyckelreferensen från lägenheten
-            if (key.getApartment() != null) {
-                Apartment apartment = key.getApartment();
-                apartment.getKeys().remove(key);
-                apartmentRepository.save(apartment);
-            }
-            
-            // Ta bort nyckelreferensen från hyresgästen
-            if (key.getTenant() != null) {
-                Tenant tenant = key.getTenant();
-                // Uppdaterat för att hantera flera nycklar: ta bort just denna nyckel från listan
-                if (tenant.getKeys() != null) {
-                    tenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-                    tenantRepository.save(tenant);
-                }
-            }
+            // Ta bort nyckelreferensen från lägenheter och hyresgäster
+            entityReferenceService.detachKey(key.getId());
             
             keyRepository.deleteById(id);
         });
@@ -68,11 +70,11 @@ public class KeyService {
     }
     
     public List<Key> findByApartmentId(String apartmentId) {
-        return keyRepository.findByApartmentId(apartmentId);
+        return portfolioCacheService.getKeysByApartmentId(apartmentId);
     }
     
     public List<Key> findByTenantId(String tenantId) {
-        return keyRepository.findByTenantId(tenantId);
+        return portfolioCacheService.getKeysByTenantId(tenantId);
     }
 
     public Optional<Key> assignApartment(String keyId, String apartmentId) {
@@ -80,48 +82,26 @@ public class KeyService {
                 .flatMap(key -> apartmentRepository.findById(apartmentId)
                         .map(apartment -> {
                             // Ta bort nyckeln från tidigare lägenhet om den finns
-                            if (key.getApartment() != null) {
-                                Apartment oldApartment = key.getApartment();
-                                oldApartment.getKeys().remove(key);
-                                apartmentRepository.save(oldApartment);
+                            if (key.getApartmentId() != null && !key.getApartmentId().equals(apartment.getId())) {
+                                apartmentRepository.findById(key.getApartmentId()).ifPresent(oldApartment -> {
+                                    oldApartment.getKeyIds().remove(key.getId());
+                                    apartmentRepository.save(oldApartment);
+                                });
                             }
                             
-                            // Spara referensen till hyresgästen om nyckeln har en
-                            Tenant keyTenant = key.getTenant();
-                            
                             // Lägg till nyckeln i den nya lägenheten
-                            key.setApartment(apartment);
-                            if (apartment.getKeys() == null) {
-                                apartment.setKeys(new ArrayList<>());
+                            key.setApartmentId(apartment.getId());
+                            if (apartment.getKeyIds() == null) {
+                                apartment.setKeyIds(new ArrayList<>());
                             }
-                            if (!apartment.getKeys().contains(key)) {
-                                apartment.getKeys().add(key);
+                            if (!apartment.getKeyIds().contains(key.getId())) {
+                                apartment.getKeyIds().add(key.getId());
                             }
                             
                             // Om nyckeln har en hyresgäst, se till att hyresgästen också läggs till i lägenheten
-                            if (keyTenant != null) {
-                                // Om hyresgästen redan har en lägenhet som är ANNAN än den nya
-                                if (keyTenant.getApartment() != null && !keyTenant.getApartment().getId().equals(apartment.getId())) {
-                                    // Ta bort hyresgästen från den gamla lägenheten
-                                    Apartment oldTenantApartment = keyTenant.getApartment();
-                                    if (oldTenantApartment.getTenants() != null) {
-                                        oldTenantApartment.getTenants().remove(keyTenant);
-                                        apartmentRepository.save(oldTenantApartment);
-                                    }
-                                }
-                                
-                                // Sätt den nya lägenheten som hyresgästens lägenhet
-                                keyTenant.setApartment(apartment);
-                                
-                                // Lägg till hyresgästen i lägenhetens hyresgästlista om den inte redan finns där
-                                if (apartment.getTenants() == null) {
-                                    apartment.setTenants(new ArrayList<>());
-                                }
-                                if (!apartment.getTenants().contains(keyTenant)) {
-                                    apartment.getTenants().add(keyTenant);
-                                }
-                                
-                                tenantRepository.save(keyTenant);
+                            if (key.getTenantId() != null) {
+                                tenantRepository.findById(key.getTenantId())
+                                        .ifPresent(keyTenant -> moveTenantToApartment(keyTenant, apartment));
                             }
                             
                             apartmentRepository.save(apartment);
@@ -134,58 +114,35 @@ public class KeyService {
                 .flatMap(key -> tenantRepository.findById(tenantId)
                         .map(tenant -> {
                             // Ta bort nyckeln från tidigare hyresgäst om den finns
-                            if (key.getTenant() != null) {
-                                Tenant oldTenant = key.getTenant();
-                                if (oldTenant.getKeys() != null) {
-                                    oldTenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-                                    tenantRepository.save(oldTenant);
-                                }
+                            if (key.getTenantId() != null && !key.getTenantId().equals(tenant.getId())) {
+                                tenantRepository.findById(key.getTenantId()).ifPresent(oldTenant -> {
+                                    if (oldTenant.getKeyIds() != null) {
+                                        oldTenant.getKeyIds().remove(key.getId());
+                                        tenantRepository.save(oldTenant);
+                                    }
+                                });
                             }
                             
-                            // Spara referensen till lägenheten om nyckeln har en
-                            Apartment keyApartment = key.getApartment();
-                            
                             // Tilldela nyckeln till den nya hyresgästen
-                            key.setTenant(tenant);
+                            key.setTenantId(tenant.getId());
                             
                             // Initiera keys-listan om den är null
-                            if (tenant.getKeys() == null) {
-                                tenant.setKeys(new ArrayList<>());
+                            if (tenant.getKeyIds() == null) {
+                                tenant.setKeyIds(new ArrayList<>());
                             }
                             
                             // Lägg bara till nyckeln om den inte redan finns i listan
-                            if (tenant.getKeys().stream().noneMatch(k -> k.getId().equals(key.getId()))) {
-                                tenant.getKeys().add(key);
+                            if (!tenant.getKeyIds().contains(key.getId())) {
+                                tenant.getKeyIds().add(key.getId());
                             }
                             
                             // Om hyresgästen inte redan är associerad med nyckelns lägenhet
                             // och nyckeln har en lägenhet, uppdatera dessa relationer också
-                            if (keyApartment != null) {
-                                // Om hyresgästen redan har en lägenhet som är ANNAN än nyckelns
-                                if (tenant.getApartment() != null && !tenant.getApartment().getId().equals(keyApartment.getId())) {
-                                    // Ta bort hyresgästen från den gamla lägenheten
-                                    Apartment oldApartment = tenant.getApartment();
-                                    if (oldApartment.getTenants() != null) {
-                                        oldApartment.getTenants().remove(tenant);
-                                        apartmentRepository.save(oldApartment);
-                                    }
-                                }
-                                
-                                // Sätt nyckelns lägenhet som hyresgästens lägenhet
-                                tenant.setApartment(keyApartment);
-                                
-                                // Lägg till hyresgästen i lägenhetens tenant-lista
-                                if (keyApartment.getTenants() == null) {
-                                    keyApartment.setTenants(new ArrayList<>());
-                                }
-                                
-                                boolean alreadyExists = keyApartment.getTenants().stream()
-                                    .anyMatch(t -> t.getId().equals(tenant.getId()));
-                                    
-                                if (!alreadyExists) {
-                                    keyApartment.getTenants().add(tenant);
+                            if (key.getApartmentId() != null) {
+                                apartmentRepository.findById(key.getApartmentId()).ifPresent(keyApartment -> {
+                                    moveTenantToApartment(tenant, keyApartment);
                                     apartmentRepository.save(keyApartment);
-                                }
+                                });
                             }
                             
                             tenantRepository.save(tenant);
@@ -196,12 +153,13 @@ public class KeyService {
     public Optional<Key> removeApartment(String keyId) {
         return keyRepository.findById(keyId)
                 .map(key -> {
-                    if (key.getApartment() != null) {
-                        Apartment apartment = key.getApartment();
-                        apartment.getKeys().remove(key);
-                        apartmentRepository.save(apartment);
+                    if (key.getApartmentId() != null) {
+                        apartmentRepository.findById(key.getApartmentId()).ifPresent(apartment -> {
+                            apartment.getKeyIds().remove(key.getId());
+                            apartmentRepository.save(apartment);
+                        });
                     }
-                    key.setApartment(null);
+                    key.setApartmentId(null);
                     return keyRepository.save(key);
                 });
     }
@@ -209,15 +167,16 @@ public class KeyService {
     public Optional<Key> removeTenant(String keyId) {
         return keyRepository.findById(keyId)
                 .map(key -> {
-                    if (key.getTenant() != null) {
-                        Tenant tenant = key.getTenant();
-                        // Ta bort nyckeln från hyresgästens lista
-                        if (tenant.getKeys() != null) {
-                            tenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-                            tenantRepository.save(tenant);
-                        }
+                    if (key.getTenantId() != null) {
+                        tenantRepository.findById(key.getTenantId()).ifPresent(tenant -> {
+                            // Ta bort nyckeln från hyresgästens lista
+                            if (tenant.getKeyIds() != null) {
+                                tenant.getKeyIds().remove(key.getId());
+                                tenantRepository.save(tenant);
+                            }
+                        });
                     }
-                    key.setTenant(null);
+                    key.setTenantId(null);
                     return keyRepository.save(key);
                 });
     }
@@ -245,8 +204,8 @@ public class KeyService {
                         
                         // Behåll original-ID och relationer
                         updatedKey.setId(id);
-                        updatedKey.setApartment(existingKey.getApartment());
-                        updatedKey.setTenant(existingKey.getTenant());
+                        updatedKey.setApartmentId(existingKey.getApartmentId());
+                        updatedKey.setTenantId(existingKey.getTenantId());
                         
                         // Spara och returnera uppdaterad nyckel
                         return keyRepository.save(updatedKey);
@@ -256,4 +215,34 @@ public class KeyService {
                     }
                 });
     }
-} 
\ No newline at end of file
+
+    /**
+     * Flyttar hyresgästen till lägenheten och tar bort den från en eventuell tidigare lägenhet.
+     * Lägenheten sparas inte här, det gör anroparen.
+     */
+    private void moveTenantToApartment(Tenant tenant, Apartment apartment) {
+        // Om hyresgästen redan har en lägenhet som är ANNAN än den nya
+        if (tenant.getApartmentId() != null && !tenant.getApartmentId().equals(apartment.getId())) {
+            // Ta bort hyresgästen från den gamla lägenheten
+            apartmentRepository.findById(tenant.getApartmentId()).ifPresent(oldApartment -> {
+                if (oldApartment.getTenantIds() != null) {
+                    oldApartment.getTenantIds().remove(tenant.getId());
+                    apartmentRepository.save(oldApartment);
+                }
+            });
+        }
+        
+        // Sätt den nya lägenheten som hyresgästens lägenhet
+        tenant.setApartmentId(apartment.getId());
+        
+        // Lägg till hyresgästen i lägenhetens hyresgästlista om den inte redan finns där
+        if (apartment.getTenantIds() == null) {
+            apartment.setTenantIds(new ArrayList<>());
+        }
+        if (!apartment.getTenantIds().contains(tenant.getId())) {
+            apartment.getTenantIds().add(tenant.getId());
+        }
+        
+        tenantRepository.save(tenant);
+    }
+}
@@ -0,0 +1,198 @@
+package com.dfrm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.CursorPage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cursor-baserad (keyset) paginering för listendpoints.
+ * Nästa sida hämtas med ett intervallvillkor på sorteringsfältet och _id istället
+ * för skip, så kostnaden per sida är konstant oavsett hur långt in i listan man är.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeysetPaginationService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String ID_FIELD = "id";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Hämtar en sida sorterad enbart på _id
+     *
+     * @param query Basfråga med eventuella filter
+     * @param type Dokumentklass
+     * @param idValue Funktion som hämtar dokumentets ID
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Önskad sidstorlek (valfritt)
+     * @return En sida med resultat
+     */
+    public <T> CursorPage<T> findPage(Query query, Class<T> type, Function<T, String> idValue,
+                                      String cursor, Integer limit) {
+        return findPage(query, type, null, Sort.Direction.ASC, null, idValue, cursor, limit);
+    }
+
+    /**
+     * Hämtar en sida sorterad på ett fält med _id som sekundär nyckel
+     *
+     * @param query Basfråga med eventuella filter
+     * @param type Dokumentklass
+     * @param sortField Fält att sortera på, null för att sortera enbart på _id
+     * @param direction Sorteringsordning
+     * @param sortValue Funktion som hämtar sorteringsfältets värde
+     * @param idValue Funktion som hämtar dokumentets ID
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Önskad sidstorlek (valfritt)
+     * @return En sida med resultat
+     */
+    public <T> CursorPage<T> findPage(Query query, Class<T> type, String sortField, Sort.Direction direction,
+                                      Function<T, Object> sortValue, Function<T, String> idValue,
+                                      String cursor, Integer limit) {
+        return findPage(query, type, null, sortField, direction, sortValue, idValue, cursor, limit);
+    }
+
+    /**
+     * Hämtar en sida från en namngiven kollektion, för läsmodeller som inte är
+     * mappade till en egen kollektion (t.ex. projicerade sammanfattningar)
+     *
+     * @param collection Kollektion att läsa från, null för dokumentklassens egen
+     */
+    public <T> CursorPage<T> findPage(Query query, Class<T> type, String collection, String sortField,
+                                      Sort.Direction direction, Function<T, Object> sortValue,
+                                      Function<T, String> idValue, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(buildKeysetCriteria(decodeCursor(cursor), sortField, direction));
+        }
+
+        if (sortField != null) {
+            query.with(Sort.by(direction, sortField, ID_FIELD));
+        } else {
+            query.with(Sort.by(direction, ID_FIELD));
+        }
+        query.limit(pageSize + 1);
+
+        List<T> items = new ArrayList<>(collection != null
+            ? mongoTemplate.find(query, type, collection)
+            : mongoTemplate.find(query, type));
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            T last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(idValue.apply(last), sortValue != null ? sortValue.apply(last) : null);
+        }
+
+        log.debug("Hämtade sida med {} {} (hasMore={})", items.size(), type.getSimpleName(), hasMore);
+        return new CursorPage<>(items, nextCursor, hasMore, pageSize);
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Bygger villkoret "efter cursorn" i given sorteringsordning.
+     * MongoDB sorterar null först, vilket hanteras explicit.
+     */
+    private Criteria buildKeysetCriteria(DecodedCursor cursor, String sortField, Sort.Direction direction) {
+        boolean ascending = direction == Sort.Direction.ASC;
+
+        if (sortField == null) {
+            return ascending
+                ? Criteria.where(ID_FIELD).gt(cursor.id)
+                : Criteria.where(ID_FIELD).lt(cursor.id);
+        }
+
+        Criteria sameValueNextId = ascending
+            ? Criteria.where(sortField).is(cursor.value).and(ID_FIELD).gt(cursor.id)
+            : Criteria.where(sortField).is(cursor.value).and(ID_FIELD).lt(cursor.id);
+
+        if (cursor.value == null) {
+            if (ascending) {
+                return new Criteria().orOperator(sameValueNextId, Criteria.where(sortField).ne(null));
+            }
+            return sameValueNextId;
+        }
+
+        if (ascending) {
+            return new Criteria().orOperator(Criteria.where(sortField).gt(cursor.value), sameValueNextId);
+        }
+        return new Criteria().orOperator(
+            Criteria.where(sortField).lt(cursor.value),
+            sameValueNextId,
+            Criteria.where(sortField).is(null));
+    }
+
+    private String encodeCursor(String id, Object value) {
+        String encodedValue;
+        if (value == null) {
+            encodedValue = "n:";
+        } else if (value instanceof LocalDateTime) {
+            encodedValue = "t:" + value;
+        } else if (value instanceof LocalDate) {
+            encodedValue = "d:" + value;
+        } else {
+            encodedValue = "s:" + value;
+        }
+        String raw = id + "\n" + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DecodedCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('\n');
+            String id = raw.substring(0, separator);
+            String tag = raw.substring(separator + 1, separator + 3);
+            String value = raw.substring(separator + 3);
+
+            Object parsed = switch (tag) {
+                case "n:" -> null;
+                case "t:" -> LocalDateTime.parse(value);
+                case "d:" -> LocalDate.parse(value);
+                case "s:" -> value;
+                default -> throw new IllegalArgumentException("Okänd värdetyp i cursor");
+            };
+            return new DecodedCursor(id, parsed);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Ogiltig cursor: " + cursor);
+        }
+    }
+
+    private static class DecodedCursor {
+        private final String id;
+        private final Object value;
+
+        DecodedCursor(String id, Object value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+}
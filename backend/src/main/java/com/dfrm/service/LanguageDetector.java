@@ -0,0 +1,168 @@
+package com.dfrm.service;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.Language;
+
+/**
+ * Lokal språkdetektering för svenska, engelska, polska och ukrainska med tecken-trigram.
+ * Varje språk har en profil med vanliga trigram, texten poängsätts mot profilerna och
+ * språk-specifika bokstäver (å, ł, ї osv.) väger extra.
+ * <p>
+ * Detekteringen allokerar inget och tar mikrosekunder. När resultatet är osäkert returneras
+ * null så att anroparen kan fråga Google Translate istället.
+ */
+@Service
+public class LanguageDetector {
+
+    private static final char BOUNDARY = ' ';
+    // Minsta poäng för att ett resultat ska räknas, korta texter ger för lite underlag
+    private static final int MIN_SCORE = 4;
+    private static final int SPECIAL_LETTER_WEIGHT = 3;
+
+    // Vanliga trigram per språk, '_' markerar ordgräns
+    private static final long[] SV = profile(
+        "_oc och ch_ _at att tt_ _de det et_ _är är_ en_ _en _so som om_ _fö för ör_ _på på_ _me med "
+        + "ed_ _ha har ar_ _in int nte te_ _ka kan an_ _vi vi_ _ja jag ag_ _du du_ _ti til ill ll_ "
+        + "_sk ska kal _ma man _ni ni_ _hä häl äls lsn sni nin _va var _ef eft fte ter _ly lyg _el "
+        + "ell lle _ty tyv yvä vär _ta tac ack ck_ _hy hyr _lä läg ägs ghe het _fi fin nns ns_ _ko "
+        + "kom omm mme _vä vän änl nli lig iga ga_ _tv tvä ätt _ke _ej _gä _ne _mv _ju ärr _no "
+        + "nde nda _kö kök _ba bad adr _fu fun unk nge gar ern rna na_ _hu hur ur_ _ge ger ånd");
+    private static final long[] EN = profile(
+        "_th the he_ _an and nd_ ing ng_ _to to_ _of of_ ion tio _in in_ ent _is is_ er_ ed_ _a_ _yo "
+        + "you ou_ _wi wit ith th_ hat at_ tha _fo for or_ _be _it it_ re_ _re ere her _ha ave _we "
+        + "we_ ly_ _pl lea eas ase se_ _ca _no not ot_ was _wa all ll_ _wh whe hen _ar are _ki kin "
+        + "ind _th thi his _ap apa par art rtm tme nt_ _ro roo oom om_ _ne nee eed _wo wor ork oul "
+        + "uld ld_ _co _bu but ut_ _on on_ _do _ge _ha hav _se _he hel elp _ab abo bou out _fr fro");
+    private static final long[] PL = profile(
+        "_ni nie ie_ _si się ię_ _w_ _na na_ _z_ _je jes est st_ _że że_ _do do_ _po prz rze ze_ _pr "
+        + "ani nia ia_ _sz wie ych ch_ ego go_ _dz dzi zie owa wan cze czy _cz rzy _co _mi _ma _ja "
+        + "jak ak_ _ta tak _pa pan _dl dla la_ ść_ ści _mo moż oże _wo ied edz ają ją_ wać "
+        + "ać_ _mi mie esz szk zka kan _ła łaz azi ien eni nki ki_ ęku kuj ków "
+        + "ów_ _od ode _kt któ tór ór_ _ro rob _ok okn kno _ws wsz szy zys _są są_ emy my_");
+    private static final long[] UK = profile(
+        "_пр про ро_ _на на_ _не не_ _в_ _і_ _у_ _що що_ _це це_ _по ння ня_ _за за_ ати ти_ ого го_ "
+        + "_як як_ _ми _ви _до до_ ува ють ть_ ки_ ли_ _бу буд удь дь_ _ка иві _зд дра ста _є_ ії_ "
+        + "ія_ _ві від ід_ ися ся_ _сп асп спа сиб иби бі_ ьно _ме мен ене мно _кв ква вар арт ти_ "
+        + "ірк _бу був _ма має ає_ _та та_ _от ами ми_ _мо мож оже же_ ною ою_ _їх _її _пі піс ісл "
+        + "сля _че чер ере _ст _ро роб обо ота _ко кім ім_ _ба бат _ду дуж уже _до доб обр бри ий_");
+
+    private final double minConfidence;
+
+    public LanguageDetector(@Value("${dfrm.language-detection.min-confidence:0.5}") double minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Detekterar språket i en text
+     *
+     * @param text Texten vars språk ska detekteras
+     * @return Språket, eller null om texten är för kort eller resultatet för osäkert
+     */
+    public Language detect(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+
+        int sv = 0;
+        int en = 0;
+        int pl = 0;
+        int uk = 0;
+        boolean ukrainianLetters = false;
+        char c1 = BOUNDARY;
+        char c2 = BOUNDARY;
+
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c3 = i < length ? normalize(text.charAt(i)) : BOUNDARY;
+            if (c3 == BOUNDARY && c2 == BOUNDARY) {
+                continue; // Flera ordgränser i rad räknas som en
+            }
+
+            switch (c3) {
+                case 'å', 'ä', 'ö' -> sv += SPECIAL_LETTER_WEIGHT;
+                case 'ą', 'ę', 'ł', 'ś', 'ź', 'ż', 'ć', 'ń' -> pl += SPECIAL_LETTER_WEIGHT;
+                case 'і', 'ї', 'є', 'ґ' -> {
+                    uk += SPECIAL_LETTER_WEIGHT;
+                    ukrainianLetters = true;
+                }
+                // Ryska bokstäver, ukrainska trigram ska inte räknas som säkra
+                case 'ы', 'э', 'ъ', 'ё' -> uk -= SPECIAL_LETTER_WEIGHT;
+                default -> { }
+            }
+
+            // Trigram med ordgräns i mitten finns inte i profilerna. Enbokstavsord som "_w_"
+            // och "_і_" har bokstaven i mitten och poängsätts när ordgränsen efter dem läses.
+            if (c2 != BOUNDARY) {
+                long trigram = ((long) c1 << 32) | ((long) c2 << 16) | c3;
+                if (Arrays.binarySearch(SV, trigram) >= 0) {
+                    sv++;
+                }
+                if (Arrays.binarySearch(EN, trigram) >= 0) {
+                    en++;
+                }
+                if (Arrays.binarySearch(PL, trigram) >= 0) {
+                    pl++;
+                }
+                if (Arrays.binarySearch(UK, trigram) >= 0) {
+                    uk++;
+                }
+            }
+
+            c1 = c2;
+            c2 = c3;
+        }
+
+        Language best = Language.SV;
+        int bestScore = sv;
+        int secondScore = Integer.MIN_VALUE;
+        if (en > bestScore) {
+            secondScore = bestScore;
+            best = Language.EN;
+            bestScore = en;
+        } else {
+            secondScore = Math.max(secondScore, en);
+        }
+        if (pl > bestScore) {
+            secondScore = bestScore;
+            best = Language.PL;
+            bestScore = pl;
+        } else {
+            secondScore = Math.max(secondScore, pl);
+        }
+        if (uk > bestScore) {
+            secondScore = bestScore;
+            best = Language.UK;
+            bestScore = uk;
+        } else {
+            secondScore = Math.max(secondScore, uk);
+        }
+
+        // Kyrillisk text utan ukrainska bokstäver är troligen ryska, låt Google avgöra
+        if (bestScore < MIN_SCORE || (best == Language.UK && !ukrainianLetters)) {
+            return null;
+        }
+        double confidence = (double) (bestScore - Math.max(secondScore, 0)) / bestScore;
+        return confidence >= minConfidence ? best : null;
+    }
+
+    private static char normalize(char c) {
+        return Character.isLetter(c) ? Character.toLowerCase(c) : BOUNDARY;
+    }
+
+    private static long[] profile(String trigrams) {
+        return Arrays.stream(trigrams.trim().split("\\s+"))
+            .mapToLong(trigram -> {
+                String normalized = trigram.replace('_', BOUNDARY);
+                return ((long) normalized.charAt(0) << 32)
+                    | ((long) normalized.charAt(1) << 16)
+                    | normalized.charAt(2);
+            })
+            .sorted()
+            .distinct()
+            .toArray();
+    }
+}
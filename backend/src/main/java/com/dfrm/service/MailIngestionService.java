@@ -0,0 +1,304 @@
+package com.dfrm.service;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tar emot e-post löpande istället för vid manuella kontroller. Varje inkorg har en egen
+ * långlivad IMAP-anslutning i IDLE-läge, så att servern meddelar nya meddelanden direkt
+ * och de bearbetas inom någon sekund.
+ * <p>
+ * Efter anslutning synkas inkorgen från sin checkpoint ({@link MailboxSyncService}), sedan
+ * bara när servern rapporterar en ändring. Bryts anslutningen återansluter bevakningen med
+ * exponentiell backoff. Servrar utan IDLE pollas med ett fast intervall.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailIngestionService {
+
+    private final List<MailboxProcessor> mailboxes;
+    private final MetricsService metricsService;
+
+    @Value("${dfrm.mail.ingestion.enabled:true}")
+    private boolean enabled;
+
+    // Servrar kopplar ner IDLE efter 30 minuter och brandväggar ofta tidigare
+    @Value("${dfrm.mail.ingestion.keepalive-seconds:300}")
+    private long keepaliveSeconds;
+
+    @Value("${dfrm.mail.ingestion.poll-seconds:60}")
+    private long pollSeconds;
+
+    @Value("${dfrm.mail.ingestion.backoff.initial-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${dfrm.mail.ingestion.backoff.max-ms:300000}")
+    private long maxBackoffMs;
+
+    // Räkna IMAP-anrop per meddelande via protokollspårningen, för felsökning eftersom varje rad formateras
+    @Value("${dfrm.mail.ingestion.count-round-trips:false}")
+    private boolean countRoundTrips;
+
+    private final List<MailboxWatcher> watchers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService keepaliveExecutor;
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Löpande e-postbevakning är avstängd");
+            return;
+        }
+
+        running = true;
+        for (MailboxProcessor mailbox : mailboxes) {
+            if (!mailbox.isConfigured()) {
+                log.warn("Inkorgen {} saknar konfiguration och bevakas inte", mailbox.getMailboxName());
+                continue;
+            }
+            MailboxWatcher watcher = new MailboxWatcher(mailbox);
+            watchers.add(watcher);
+            metricsService.registerGauge("mail.ingestion." + mailbox.getMailboxName() + ".connected",
+                    () -> watcher.connected ? 1 : 0);
+            metricsService.registerGauge("mail.ingestion." + mailbox.getMailboxName() + ".roundTripsPerMessage",
+                    () -> watcher.roundTripsPerMessage);
+
+            Thread thread = new Thread(watcher, "mail-idle-" + mailbox.getMailboxName());
+            thread.setDaemon(true);
+            watcher.thread = thread;
+            thread.start();
+        }
+
+        if (!watchers.isEmpty()) {
+            keepaliveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mail-keepalive");
+                thread.setDaemon(true);
+                return thread;
+            });
+            keepaliveExecutor.scheduleWithFixedDelay(() -> watchers.forEach(MailboxWatcher::keepAlive),
+                    keepaliveSeconds, keepaliveSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (keepaliveExecutor != null) {
+            keepaliveExecutor.shutdownNow();
+        }
+        watchers.forEach(MailboxWatcher::shutdown);
+    }
+
+    /**
+     * Bevakning av en inkorg. Körs i en egen tråd som blockerar i IDLE.
+     */
+    private class MailboxWatcher implements Runnable {
+
+        private final MailboxProcessor mailbox;
+        private final ImapCommandCounter commandCounter = new ImapCommandCounter();
+        private volatile Thread thread;
+        private volatile Store store;
+        private volatile Folder inbox;
+        private volatile boolean connected;
+        // IMAP-anrop per meddelande i senaste synkningen som hade nya meddelanden
+        private volatile double roundTripsPerMessage;
+
+        MailboxWatcher(MailboxProcessor mailbox) {
+            this.mailbox = mailbox;
+        }
+
+        @Override
+        public void run() {
+            String name = mailbox.getMailboxName();
+            long backoffMs = initialBackoffMs;
+
+            while (running) {
+                try {
+                    open();
+                    connected = true;
+                    log.info("Bevakar inkorgen {}", name);
+
+                    // Meddelanden kan ha kommit medan anslutningen var nere
+                    process();
+                    // Nollställs först när en synkning lyckats, annars växer väntetiden inte
+                    // för en server som tar emot anslutningen men sedan fallerar
+                    backoffMs = initialBackoffMs;
+
+                    boolean idleSupported = supportsIdle(store);
+                    if (!idleSupported) {
+                        log.warn("Servern för inkorgen {} saknar IDLE, pollar var {} sekund", name, pollSeconds);
+                    }
+                    while (running && inbox.isOpen()) {
+                        if (idleSupported) {
+                            idle(inbox);
+                        } else if (!sleep(TimeUnit.SECONDS.toMillis(pollSeconds))) {
+                            break;
+                        }
+                        process();
+                    }
+                } catch (Exception e) {
+                    if (running) {
+                        metricsService.increment("mail.ingestion." + name + ".failures");
+                        log.warn("Bevakningen av inkorgen {} avbröts: {}", name, e.getMessage());
+                    }
+                } finally {
+                    connected = false;
+                    close();
+                }
+
+                if (running) {
+                    // Halva väntetiden är slumpad så att inkorgarna inte återansluter i takt
+                    long delayMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+                    log.info("Återansluter till inkorgen {} om {} ms", name, delayMs);
+                    if (!sleep(delayMs)) {
+                        break;
+                    }
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                    metricsService.increment("mail.ingestion." + name + ".reconnects");
+                }
+            }
+            log.info("Bevakningen av inkorgen {} har stoppats", name);
+        }
+
+        private void open() throws MessagingException {
+            // Läs-tidsgränsen måste vara längre än tiden mellan keepalive, annars bryts IDLE
+            Properties overrides = new Properties();
+            overrides.put("mail.imaps.timeout",
+                    String.valueOf(TimeUnit.SECONDS.toMillis(keepaliveSeconds + 60)));
+            PrintStream protocolTrace = countRoundTrips
+                    ? new PrintStream(commandCounter, false, StandardCharsets.US_ASCII)
+                    : null;
+            store = mailbox.connect(overrides, protocolTrace);
+            Folder folder = store.getFolder("INBOX");
+            folder.open(Folder.READ_WRITE);
+            inbox = folder;
+        }
+
+        private void process() throws MessagingException {
+            String name = mailbox.getMailboxName();
+            long commandsBefore = commandCounter.getCommands();
+            long started = System.nanoTime();
+            int processed = mailbox.syncNewMessages(inbox);
+            if (processed == 0) {
+                return;
+            }
+
+            long elapsed = System.nanoTime() - started;
+            metricsService.increment("mail.ingestion." + name + ".processed", processed);
+            metricsService.recordTime("mail.ingestion." + name + ".sync", elapsed, TimeUnit.NANOSECONDS);
+            if (countRoundTrips) {
+                long commands = commandCounter.getCommands() - commandsBefore;
+                metricsService.increment("mail.ingestion." + name + ".commands", commands);
+                roundTripsPerMessage = (double) commands / processed;
+                log.info("Bearbetade {} meddelanden i inkorgen {} på {} ms med {} IMAP-anrop ({} per meddelande)",
+                        processed, name, TimeUnit.NANOSECONDS.toMillis(elapsed), commands,
+                        String.format("%.1f", roundTripsPerMessage));
+            }
+        }
+
+        /**
+         * Skickar NOOP så att anslutningen hålls vid liv. Avbryter samtidigt pågående IDLE,
+         * som sedan startas om av bevakningstråden.
+         */
+        void keepAlive() {
+            Folder folder = inbox;
+            if (!connected || folder == null) {
+                return;
+            }
+            try {
+                // getMessageCount på en öppen mapp skickar NOOP till servern
+                folder.getMessageCount();
+            } catch (Exception e) {
+                log.debug("Keepalive mot inkorgen {} misslyckades: {}", mailbox.getMailboxName(), e.getMessage());
+            }
+        }
+
+        void shutdown() {
+            close();
+            Thread current = thread;
+            if (current != null) {
+                current.interrupt();
+            }
+        }
+
+        private void close() {
+            Folder folder = inbox;
+            inbox = null;
+            if (folder != null && folder.isOpen()) {
+                try {
+                    folder.close(false);
+                } catch (Exception e) {
+                    log.debug("Kunde inte stänga inkorgen {}: {}", mailbox.getMailboxName(), e.getMessage());
+                }
+            }
+            Store current = store;
+            store = null;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (Exception e) {
+                    log.debug("Kunde inte stänga anslutningen till {}: {}", mailbox.getMailboxName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Jakarta Mail finns i två implementationer på classpath (com.sun.mail och Angus) med
+    // olika IMAP-klasser, så IDLE anropas via reflektion istället för att binda mot en av dem
+
+    private static boolean supportsIdle(Store store) {
+        try {
+            Object supported = store.getClass().getMethod("hasCapability", String.class).invoke(store, "IDLE");
+            return Boolean.TRUE.equals(supported);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Blockerar i IDLE tills servern rapporterar en ändring eller keepalive avbryter
+     */
+    private static void idle(Folder folder) throws MessagingException {
+        try {
+            folder.getClass().getMethod("idle", boolean.class).invoke(folder, true);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof MessagingException messagingException) {
+                throw messagingException;
+            }
+            throw new MessagingException("IDLE misslyckades", e);
+        } catch (ReflectiveOperationException e) {
+            throw new MessagingException("IDLE stöds inte av " + folder.getClass().getName(), e);
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.dfrm.service;
+
+import java.io.PrintStream;
+import java.util.Properties;
+
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+
+/**
+ * En inkorg som bevakas av {@link MailIngestionService}.
+ * Implementeras av lyssnarna för felanmälningar och intresseanmälningar.
+ */
+public interface MailboxProcessor {
+
+    /**
+     * Namn på inkorgen, används i loggar, trådnamn och mätvärden
+     */
+    String getMailboxName();
+
+    boolean isConfigured();
+
+    /**
+     * Ansluter till inkorgens IMAP-server
+     *
+     * @param overrides Sessionsinställningar som ersätter standardvärdena
+     * @param protocolTrace Ström som tar emot protokollspårningen, t.ex. en
+     *                      {@link ImapCommandCounter} (valfri)
+     * @return Ansluten Store som anroparen ansvarar för att stänga
+     */
+    Store connect(Properties overrides, PrintStream protocolTrace) throws MessagingException;
+
+    /**
+     * Bearbetar alla meddelanden som kommit sedan förra synkningen
+     *
+     * @param inbox Inkorgen, öppnad med READ_WRITE
+     * @return Antal bearbetade meddelanden
+     */
+    int syncNewMessages(Folder inbox) throws MessagingException;
+}
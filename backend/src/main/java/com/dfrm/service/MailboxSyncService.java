@@ -0,0 +1,424 @@
+package com.dfrm.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.MailboxCheckpoint;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.search.FlagTerm;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Inkrementell synkning av en inkorg med en sparad checkpoint per inkorg.
+ * Varje synkning hämtar bara meddelanden med UID större än det senast bearbetade, så
+ * kostnaden beror på mängden ny e-post och inte på inkorgens storlek.
+ * <p>
+ * Checkpointen flyttas fram efter varje meddelande. Varje meddelande får ett käll-ID
+ * (inkorg, UIDVALIDITY och UID) som lagras på det som skapas, så att ett meddelande
+ * som bearbetats men inte hunnit checkpointas känns igen och inte skapas två gånger.
+ * <p>
+ * Meddelandena bearbetas i en pipeline ({@link MessagePipeline}): de läses i tur och ordning
+ * i synkningens tråd, tolkas på en pool med en tråd per processor och sparas på en egen pool
+ * för databas- och översättningsanrop. Läst-flaggan och checkpointen sätts i UID-ordning och
+ * först när meddelandet är sparat, så ett fel mitt i en batch ger samma garantier som förut.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailboxSyncService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MetricsService metricsService;
+
+    private static final Map<Class<?>, Optional<FetchProfile.Item>> FULL_MESSAGE_ITEMS = new ConcurrentHashMap<>();
+
+    // Antal meddelanden som förhämtas och bearbetas åt gången
+    @Value("${dfrm.mail.sync.batch-size:50}")
+    private int batchSize;
+
+    // Större meddelanden hämtas inte i sin helhet i förväg
+    @Value("${dfrm.mail.sync.prefetch-max-bytes:1048576}")
+    private int prefetchMaxBytes;
+
+    // Antal försök innan ett meddelande som inte går att bearbeta hoppas över
+    @Value("${dfrm.mail.sync.max-attempts:3}")
+    private int maxAttempts;
+
+    // Trådar för tolkning, 0 betyder en per processor
+    @Value("${dfrm.mail.pipeline.parse-threads:0}")
+    private int parseThreads;
+
+    // Trådar för berikning, översättning och sparande, som mest väntar på I/O
+    @Value("${dfrm.mail.pipeline.persist-threads:8}")
+    private int persistThreads;
+
+    private ExecutorService parseExecutor;
+    private ExecutorService persistExecutor;
+
+    /**
+     * Bearbetning av ett meddelande i tre steg
+     *
+     * @param <R> Meddelandets innehåll, läst från servern
+     * @param <P> Tolkat resultat som ska sparas
+     */
+    public interface MessagePipeline<R, P> {
+
+        /**
+         * Läser ämne, avsändare och innehåll. Körs i synkningens tråd eftersom
+         * IMAP-anslutningen inte kan användas från flera trådar.
+         */
+        R read(Message message) throws Exception;
+
+        /**
+         * Tolkar innehållet. Körs parallellt och får inte använda meddelandet.
+         *
+         * @return Resultatet, eller null om meddelandet inte ska sparas
+         */
+        P parse(R received) throws Exception;
+
+        /**
+         * Berikar, kontrollerar dubbletter och sparar. Körs parallellt och ska vara
+         * idempotent för samma käll-ID.
+         */
+        void persist(P parsed, String sourceMessageId) throws Exception;
+    }
+
+    /**
+     * Ett meddelande som är under bearbetning
+     */
+    private static class InFlight {
+        private final Message message;
+        private final long uid;
+        private final String sourceMessageId;
+        private final CompletableFuture<Void> result;
+
+        InFlight(Message message, long uid, String sourceMessageId, CompletableFuture<Void> result) {
+            this.message = message;
+            this.uid = uid;
+            this.sourceMessageId = sourceMessageId;
+            this.result = result;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage<T> {
+        T call() throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        int parsers = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        parseExecutor = Executors.newFixedThreadPool(parsers, daemonThreads("mail-parse-"));
+        persistExecutor = Executors.newFixedThreadPool(persistThreads, daemonThreads("mail-persist-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parseExecutor.shutdown();
+        persistExecutor.shutdown();
+    }
+
+    /**
+     * Bearbetar alla meddelanden som kommit sedan förra synkningen
+     *
+     * @param mailbox Inkorgens namn, nyckel för checkpointen
+     * @param inbox Inkorgen, öppnad med READ_WRITE
+     * @param pipeline Bearbetning av ett enskilt meddelande
+     * @return Antal bearbetade meddelanden
+     */
+    public <R, P> int sync(String mailbox, Folder inbox, MessagePipeline<R, P> pipeline) throws MessagingException {
+        if (!(inbox instanceof UIDFolder uidFolder)) {
+            throw new MessagingException("Inkorgen " + mailbox + " stöder inte UID");
+        }
+
+        long uidValidity = uidFolder.getUIDValidity();
+        MailboxCheckpoint checkpoint = mongoTemplate.findById(mailbox, MailboxCheckpoint.class);
+        boolean initial = checkpoint == null || checkpoint.getUidValidity() != uidValidity;
+
+        Message[] messages;
+        if (initial) {
+            // Ingen giltig checkpoint: olästa meddelanden bearbetas en gång som tidigare och
+            // checkpointen sätts till inkorgens nuvarande slut
+            log.info("Ingen giltig checkpoint för inkorgen {} (UIDVALIDITY {}), går igenom olästa meddelanden",
+                    mailbox, uidValidity);
+            checkpoint = new MailboxCheckpoint(mailbox, uidValidity, lastExistingUid(inbox, uidFolder), 0, 0,
+                    new ArrayList<>(), 0, LocalDateTime.now());
+            messages = inbox.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+        } else {
+            messages = uidFolder.getMessagesByUID(checkpoint.getLastUid() + 1, UIDFolder.LASTUID);
+        }
+
+        int processed = 0;
+        if (!initial && checkpoint.getRetryUids() != null && !checkpoint.getRetryUids().isEmpty()) {
+            processed += retryFailed(mailbox, uidFolder, checkpoint, pipeline);
+        }
+
+        // Meddelandena kommer i sekvensordning och UID:n växer med sekvensnumret
+        long firstNewUid = initial ? 0 : checkpoint.getLastUid() + 1;
+        batches:
+        for (int start = 0; start < messages.length; start += batchSize) {
+            Message[] batch = Arrays.copyOfRange(messages, start, Math.min(messages.length, start + batchSize));
+            prefetch(inbox, uidFolder, batch, firstNewUid);
+
+            // Läs i ordning och lämna över till poolerna, nästa meddelande läses medan förra tolkas
+            List<InFlight> inFlight = new ArrayList<>(batch.length);
+            for (Message message : batch) {
+                long uid = uidFolder.getUID(message);
+                // "UID n:*" returnerar alltid sista meddelandet, även om dess UID är lägre än n
+                if (!initial && uid <= checkpoint.getLastUid()) {
+                    continue;
+                }
+                String sourceMessageId = mailbox + ":" + uidValidity + ":" + uid;
+                inFlight.add(new InFlight(message, uid, sourceMessageId, submit(pipeline, message, sourceMessageId)));
+            }
+
+            // Läst-flagga och checkpoint i UID-ordning, först när meddelandet är sparat
+            for (int i = 0; i < inFlight.size(); i++) {
+                InFlight item = inFlight.get(i);
+                try {
+                    item.result.join();
+                    item.message.setFlag(Flags.Flag.SEEN, true);
+                    processed++;
+                } catch (Exception e) {
+                    Throwable cause = unwrap(e);
+                    int attempts = checkpoint.getFailedUid() == item.uid ? checkpoint.getFailedAttempts() + 1 : 1;
+                    metricsService.increment("mail.sync." + mailbox + ".failures");
+                    if (initial && maxAttempts > 1) {
+                        // Checkpointen ligger redan vid inkorgens slut, så meddelandet sparas
+                        // i listan som provas igen vid nästa synkning
+                        log.error("Kunde inte bearbeta meddelande {}, provas igen vid nästa synkning: {}",
+                                item.sourceMessageId, cause.getMessage(), cause);
+                        checkpoint.getRetryUids().add(item.uid);
+                        checkpoint.setRetryAttempts(1);
+                        save(checkpoint);
+                        continue;
+                    }
+                    if (!initial && attempts < maxAttempts) {
+                        // Stanna här så att meddelandet provas igen vid nästa synkning. Senare
+                        // meddelanden som redan sparats känns igen på käll-ID:t nästa gång.
+                        log.error("Kunde inte bearbeta meddelande {} (försök {} av {}): {}",
+                                item.sourceMessageId, attempts, maxAttempts, cause.getMessage(), cause);
+                        checkpoint.setFailedUid(item.uid);
+                        checkpoint.setFailedAttempts(attempts);
+                        save(checkpoint);
+                        awaitRemaining(inFlight.subList(i + 1, inFlight.size()));
+                        break batches;
+                    }
+                    log.error("Hoppar över meddelande {} som inte gick att bearbeta: {}",
+                            item.sourceMessageId, cause.getMessage(), cause);
+                    metricsService.increment("mail.sync." + mailbox + ".skipped");
+                }
+
+                checkpoint.setLastUid(Math.max(checkpoint.getLastUid(), item.uid));
+                checkpoint.setFailedUid(0);
+                checkpoint.setFailedAttempts(0);
+                save(checkpoint);
+            }
+        }
+
+        if (initial) {
+            save(checkpoint);
+        }
+        log.debug("Synkade inkorgen {}: {} nya meddelanden, checkpoint UID {}",
+                mailbox, processed, checkpoint.getLastUid());
+        return processed;
+    }
+
+    /**
+     * Provar igen meddelanden som misslyckades vid den första genomgången. Varje synkning
+     * räknas som ett försök för hela listan, det som återstår efter sista försöket hoppas över.
+     *
+     * @return Antal bearbetade meddelanden
+     */
+    private <R, P> int retryFailed(String mailbox, UIDFolder uidFolder, MailboxCheckpoint checkpoint,
+            MessagePipeline<R, P> pipeline) throws MessagingException {
+        List<Long> uids = checkpoint.getRetryUids();
+        Message[] messages = uidFolder.getMessagesByUID(uids.stream().mapToLong(Long::longValue).toArray());
+        int attempts = checkpoint.getRetryAttempts() + 1;
+        List<Long> remaining = new ArrayList<>();
+        int processed = 0;
+        for (int i = 0; i < messages.length; i++) {
+            long uid = uids.get(i);
+            if (messages[i] == null) {
+                // Meddelandet har tagits bort ur inkorgen
+                continue;
+            }
+            String sourceMessageId = mailbox + ":" + checkpoint.getUidValidity() + ":" + uid;
+            try {
+                submit(pipeline, messages[i], sourceMessageId).join();
+                messages[i].setFlag(Flags.Flag.SEEN, true);
+                processed++;
+            } catch (Exception e) {
+                Throwable cause = unwrap(e);
+                metricsService.increment("mail.sync." + mailbox + ".failures");
+                if (attempts < maxAttempts) {
+                    log.error("Kunde inte bearbeta meddelande {} (försök {} av {}): {}",
+                            sourceMessageId, attempts, maxAttempts, cause.getMessage(), cause);
+                    remaining.add(uid);
+                } else {
+                    log.error("Hoppar över meddelande {} som inte gick att bearbeta: {}",
+                            sourceMessageId, cause.getMessage(), cause);
+                    metricsService.increment("mail.sync." + mailbox + ".skipped");
+                }
+            }
+        }
+        checkpoint.setRetryUids(remaining);
+        checkpoint.setRetryAttempts(remaining.isEmpty() ? 0 : attempts);
+        save(checkpoint);
+        return processed;
+    }
+
+    /**
+     * Läser meddelandet i den här tråden och startar tolkning och sparande på poolerna
+     */
+    private <R, P> CompletableFuture<Void> submit(MessagePipeline<R, P> pipeline, Message message,
+            String sourceMessageId) {
+        R received;
+        try {
+            received = pipeline.read(message);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture
+                .supplyAsync(() -> unchecked(() -> pipeline.parse(received)), parseExecutor)
+                .thenAcceptAsync(parsed -> {
+                    if (parsed != null) {
+                        unchecked(() -> {
+                            pipeline.persist(parsed, sourceMessageId);
+                            return null;
+                        });
+                    }
+                }, persistExecutor);
+    }
+
+    /**
+     * Väntar in meddelanden som redan lämnats över, så att inget sparas efter att synkningen avslutats
+     */
+    private static void awaitRemaining(List<InFlight> remaining) {
+        for (InFlight item : remaining) {
+            item.result.handle((result, error) -> null).join();
+        }
+    }
+
+    private static <T> T unchecked(Stage<T> stage) {
+        try {
+            return stage.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Hämtar kuvert, flaggor, struktur och UID för hela batchen i ett anrop, och därefter
+     * hela innehållet för meddelanden under storleksgränsen. Utan detta hämtas ämne,
+     * struktur och varje textdel med ett eget anrop per meddelande när de läses.
+     * Större meddelanden (bilagor) läser sina textdelar vid behov som tidigare.
+     */
+    private void prefetch(Folder inbox, UIDFolder uidFolder, Message[] batch, long firstNewUid)
+            throws MessagingException {
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.FLAGS);
+        profile.add(FetchProfile.Item.CONTENT_INFO);
+        profile.add(UIDFolder.FetchProfileItem.UID);
+        inbox.fetch(batch, profile);
+
+        FetchProfile.Item fullMessage = fullMessageItem(inbox);
+        if (fullMessage == null || prefetchMaxBytes <= 0) {
+            return;
+        }
+        List<Message> small = new ArrayList<>();
+        for (Message message : batch) {
+            int size = message.getSize(); // Hämtas tillsammans med kuvertet
+            if (size >= 0 && size <= prefetchMaxBytes && uidFolder.getUID(message) >= firstNewUid) {
+                small.add(message);
+            }
+        }
+        if (!small.isEmpty()) {
+            FetchProfile contentProfile = new FetchProfile();
+            contentProfile.add(fullMessage);
+            inbox.fetch(small.toArray(new Message[0]), contentProfile);
+        }
+    }
+
+    /**
+     * IMAP-implementationens FetchProfileItem.MESSAGE, som hämtar och tolkar hela meddelandet
+     * lokalt. Slås upp via reflektion eftersom både com.sun.mail och Angus finns på classpath.
+     */
+    private static FetchProfile.Item fullMessageItem(Folder inbox) {
+        return FULL_MESSAGE_ITEMS.computeIfAbsent(inbox.getClass(), type -> {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Class<?> nested : current.getDeclaredClasses()) {
+                    if ("FetchProfileItem".equals(nested.getSimpleName())) {
+                        try {
+                            return Optional.of((FetchProfile.Item) nested.getField("MESSAGE").get(null));
+                        } catch (ReflectiveOperationException | ClassCastException e) {
+                            return Optional.empty();
+                        }
+                    }
+                }
+            }
+            return Optional.empty();
+        }).orElse(null);
+    }
+
+    /**
+     * UID för det senaste meddelandet i inkorgen, 0 om den är tom
+     */
+    private static long lastExistingUid(Folder inbox, UIDFolder uidFolder) throws MessagingException {
+        long uidNext = uidFolder.getUIDNext();
+        if (uidNext > 0) {
+            return uidNext - 1;
+        }
+        int count = inbox.getMessageCount();
+        return count > 0 ? uidFolder.getUID(inbox.getMessage(count)) : 0;
+    }
+
+    private void save(MailboxCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        mongoTemplate.save(checkpoint);
+    }
+}
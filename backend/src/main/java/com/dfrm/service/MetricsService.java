@@ -0,0 +1,88 @@
+package com.dfrm.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Enkel mätvärdesregistrering för drift: räknare, mätare och tidtagning.
+ * Värdena exponeras via /api/admin/metrics.
+ */
+@Service
+public class MetricsService {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gaugeSuppliers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).increment();
+    }
+
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    public long count(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0L;
+    }
+
+    /**
+     * Mätare som ökas och minskas av anroparen, t.ex. antal utlånade anslutningar
+     */
+    public AtomicLong gauge(String name) {
+        return gauges.computeIfAbsent(name, n -> new AtomicLong());
+    }
+
+    /**
+     * Mätare vars värde läses från en funktion när värdena hämtas
+     */
+    public void registerGauge(String name, Supplier<? extends Number> supplier) {
+        gaugeSuppliers.put(name, supplier);
+    }
+
+    public void recordTime(String name, long duration, TimeUnit unit) {
+        timers.computeIfAbsent(name, n -> new Timer()).record(unit.toNanos(duration));
+    }
+
+    /**
+     * Ögonblicksbild av alla mätvärden, sorterade på namn
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+        gaugeSuppliers.forEach((name, supplier) -> snapshot.put(name, supplier.get()));
+        timers.forEach((name, timer) -> snapshot.put(name, timer.toMap()));
+        return snapshot;
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            Map<String, Object> values = new TreeMap<>();
+            values.put("count", n);
+            values.put("meanMs", n > 0 ? totalNanos.sum() / n / 1_000_000.0 : 0.0);
+            values.put("maxMs", maxNanos.get() / 1_000_000.0);
+            return values;
+        }
+    }
+}
@@ -6,10 +6,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.client.GoogleTranslateClient;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.PendingTask;
+import com.dfrm.model.PendingTaskSummary;
 import com.dfrm.model.Task;
 import com.dfrm.model.TaskStatus;
 import com.dfrm.model.User;
@@ -32,6 +38,9 @@ public class PendingTaskService {
     private final ApartmentRepository apartmentRepository;
     private final EmailListener emailListener;
     private final GoogleTranslateClient translateClient;
+    private final KeysetPaginationService paginationService;
+    private final ReferenceResolver referenceResolver;
+    private final MongoTemplate mongoTemplate;
     
     /**
      * Hjälpmetod som kontrollerar om en text innehåller något av de angivna nyckelorden
@@ -51,24 +60,57 @@ public class PendingTaskService {
     }
     
     public List<PendingTask> getAllPendingTasks() {
-        return pendingTaskRepository.findAll();
+        return referenceResolver.resolveTasks(pendingTaskRepository.findAll());
+    }
+    
+    /**
+     * Hämtar väntande uppgifter som listrader, nyast först.
+     * Endast fälten i PendingTaskSummary läses från databasen.
+     * 
+     * @param status Status att filtrera på (valfritt)
+     * @return Lista med listrader
+     */
+    public List<PendingTaskSummary> getPendingTaskSummaries(String status) {
+        Query query = new Query();
+        if (status != null && !status.isEmpty()) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        query.fields().include(PendingTaskSummary.FIELDS);
+        query.with(Sort.by(Sort.Direction.DESC, "received"));
+        
+        return mongoTemplate.find(query, PendingTaskSummary.class, mongoTemplate.getCollectionName(PendingTask.class));
+    }
+    
+    /**
+     * Hämtar en sida med e-postrapporter (väntande uppgifter utan Task-objekt), nyast först
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med e-postrapporter
+     */
+    public CursorPage<PendingTask> getEmailReportPage(String cursor, Integer limit) {
+        Query query = new Query(Criteria.where("taskId").is(null).and("description").ne(null));
+        CursorPage<PendingTask> page = paginationService.findPage(query, PendingTask.class, "received",
+                Sort.Direction.DESC, PendingTask::getReceived, PendingTask::getId, cursor, limit);
+        referenceResolver.resolveTasks(page.getItems());
+        return page;
     }
     
     public Optional<PendingTask> getPendingTaskById(String id) {
-        return pendingTaskRepository.findById(id);
+        return referenceResolver.resolveTask(pendingTaskRepository.findById(id));
     }
     
     public List<PendingTask> getTasksByRequestedTenant(String tenantId) {
-        return pendingTaskRepository.findByRequestedByTenantId(tenantId);
+        return referenceResolver.resolveTasks(pendingTaskRepository.findByRequestedByTenantId(tenantId));
     }
     
     public List<PendingTask> getTasksByRequestedApartment(String apartmentId) {
-        return pendingTaskRepository.findByRequestedByApartmentId(apartmentId);
+        return referenceResolver.resolveTasks(pendingTaskRepository.findByRequestedByApartmentId(apartmentId));
     }
     
     public List<PendingTask> findPendingTasksForReview() {
         // Hämta alla obehandlade uppgifter
-        List<PendingTask> pendingTasks = pendingTaskRepository.findByReviewedByIsNull();
+        List<PendingTask> pendingTasks = referenceResolver.resolveTasks(pendingTaskRepository.findByReviewedByIsNull());
         
         // Explicit exkludera alla typer av intresseanmälningar - väntande uppgifter ska BARA innehålla felanmälningar
         List<PendingTask> filteredTasks = pendingTasks.stream()
@@ -181,7 +223,7 @@ public class PendingTaskService {
     }
     
     public Task approveTask(String id, User reviewedBy, String reviewComments) {
-        Optional<PendingTask> pendingTaskOpt = pendingTaskRepository.findById(id);
+        Optional<PendingTask> pendingTaskOpt = referenceResolver.resolveTask(pendingTaskRepository.findById(id));
         if (pendingTaskOpt.isEmpty()) {
             throw new IllegalArgumentException("Pending task not found");
         }
@@ -220,7 +262,7 @@ public class PendingTaskService {
     }
     
     public PendingTask rejectTask(String id, User reviewedBy, String reviewComments) {
-        Optional<PendingTask> pendingTaskOpt = pendingTaskRepository.findById(id);
+        Optional<PendingTask> pendingTaskOpt = referenceResolver.resolveTask(pendingTaskRepository.findById(id));
         if (pendingTaskOpt.isEmpty()) {
             throw new IllegalArgumentException("Pending task not found");
         }
@@ -377,7 +419,7 @@ public class PendingTaskService {
     
     public List<PendingTask> findApprovedTasks() {
         // Hämta alla uppgifter istället för att filtrera på reviewedBy
-        List<PendingTask> allTasks = pendingTaskRepository.findAll();
+        List<PendingTask> allTasks = referenceResolver.resolveTasks(pendingTaskRepository.findAll());
         System.out.println("Hittade totalt " + allTasks.size() + " uppgifter");
         
         // Logga varje uppgift för att se vad som finns
@@ -419,7 +461,7 @@ public class PendingTaskService {
      * @return Lista med väntande uppgifter
      */
     public List<PendingTask> findPendingTasksByStatus(String status) {
-        return pendingTaskRepository.findByStatus(status);
+        return referenceResolver.resolveTasks(pendingTaskRepository.findByStatus(status));
     }
     
     public void checkEmails() {
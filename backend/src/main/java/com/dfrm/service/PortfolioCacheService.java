@@ -0,0 +1,295 @@
+package com.dfrm.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.Apartment;
+import com.dfrm.model.EntityChangeEvent;
+import com.dfrm.model.Key;
+import com.dfrm.model.Tenant;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Minnescache för fastighetsbeståndet: lägenheter, hyresgäster och nycklar.
+ * Läsningar går mot en oföränderlig ögonblicksbild utan låsning. Varje ändring bygger en ny
+ * ögonblicksbild (copy-on-write) där bara de berörda dokumenten har bytts ut.
+ * <p>
+ * Sparningar och borttagningar via repositories fångas upp automatiskt. Uppdateringar direkt
+ * via MongoTemplate måste anmälas med {@link #refresh} eller {@link #refreshWhere}.
+ * Ändringar från andra instanser kommer in som {@link EntityChangeEvent}.
+ * <p>
+ * Objekten som returneras delas mellan anrop och får inte ändras. Den som ska uppdatera
+ * en entitet hämtar den från repositoryt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioCacheService {
+
+    private static final List<Class<?>> CACHED_TYPES = List.of(Apartment.class, Tenant.class, Key.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), 0);
+
+    public List<Apartment> getApartments() {
+        return new ArrayList<>(entities(Apartment.class).values());
+    }
+
+    public Optional<Apartment> getApartment(String id) {
+        return Optional.ofNullable(id).map(entities(Apartment.class)::get);
+    }
+
+    public List<Tenant> getTenants() {
+        return new ArrayList<>(entities(Tenant.class).values());
+    }
+
+    public Optional<Tenant> getTenant(String id) {
+        return Optional.ofNullable(id).map(entities(Tenant.class)::get);
+    }
+
+    public List<Key> getKeys() {
+        return new ArrayList<>(entities(Key.class).values());
+    }
+
+    public Optional<Key> getKey(String id) {
+        return Optional.ofNullable(id).map(entities(Key.class)::get);
+    }
+
+    public List<Key> getKeysByApartmentId(String apartmentId) {
+        return entities(Key.class).values().stream()
+                .filter(key -> apartmentId != null && apartmentId.equals(key.getApartmentId()))
+                .collect(Collectors.toList());
+    }
+
+    public List<Key> getKeysByTenantId(String tenantId) {
+        return entities(Key.class).values().stream()
+                .filter(key -> tenantId != null && tenantId.equals(key.getTenantId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Versionen räknas upp vid varje ny ögonblicksbild
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Läser om enskilda dokument från databasen, t.ex. efter en atomisk uppdatering
+     *
+     * @param type Entitetsklass
+     * @param ids ID:n som ska läsas om, dokument som inte längre finns tas bort
+     */
+    public void refresh(Class<?> type, Collection<String> ids) {
+        if (!isCached(type) || ids == null || ids.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Map<String, ?> current = snapshot.entities.get(type);
+            if (current == null) {
+                // Inte inläst ännu, läses in i sin helhet vid första läsning
+                return;
+            }
+            List<?> fresh = mongoTemplate.find(Query.query(Criteria.where("id").in(ids)), type);
+            Map<String, Object> updated = new LinkedHashMap<>(current);
+            ids.forEach(updated::remove);
+            fresh.forEach(entity -> updated.put(idOf(entity), entity));
+            publish(type, updated);
+        }
+    }
+
+    public void refresh(Class<?> type, String... ids) {
+        refresh(type, Arrays.asList(ids));
+    }
+
+    /**
+     * Läser om alla cachade dokument som matchar ett villkor, plus eventuella extra ID:n.
+     * Villkoret prövas mot cachens nuvarande innehåll, alltså tillståndet före ändringen.
+     *
+     * @param type Entitetsklass
+     * @param predicate Villkor för vilka cachade dokument som berörs
+     * @param extraIds Ytterligare ID:n som ska läsas om
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void refreshWhere(Class<T> type, Predicate<T> predicate, String... extraIds) {
+        Map<String, ?> current = snapshot.entities.get(type);
+        if (current == null) {
+            return;
+        }
+        Set<String> ids = new LinkedHashSet<>(Arrays.asList(extraIds));
+        current.forEach((id, entity) -> {
+            if (predicate.test((T) entity)) {
+                ids.add(id);
+            }
+        });
+        refresh(type, ids);
+    }
+
+    /**
+     * Släpper en hel entitetstyp, den läses in på nytt vid nästa läsning
+     */
+    public void invalidate(Class<?> type) {
+        synchronized (writeLock) {
+            if (snapshot.entities.containsKey(type)) {
+                publish(type, null);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (writeLock) {
+            snapshot = new Snapshot(Map.of(), snapshot.version + 1);
+        }
+        log.debug("Portföljcachen tömd");
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        Class<?> type = event.getSource().getClass();
+        if (!isCached(type)) {
+            return;
+        }
+        // Läs en egen kopia från dokumentet så att anroparens objekt inte delas med cachen
+        Object entity = mongoTemplate.getConverter().read(type, event.getDocument());
+        synchronized (writeLock) {
+            Map<String, ?> current = snapshot.entities.get(type);
+            if (current == null) {
+                return;
+            }
+            Map<String, Object> updated = new LinkedHashMap<>(current);
+            updated.put(idOf(entity), entity);
+            publish(type, updated);
+        }
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        Class<?> type = event.getType();
+        if (!isCached(type)) {
+            return;
+        }
+        String id = idFromQuery(event.getSource());
+        if (id == null) {
+            // Borttagning på annat än ID, läs om hela typen vid behov
+            invalidate(type);
+            return;
+        }
+        synchronized (writeLock) {
+            Map<String, ?> current = snapshot.entities.get(type);
+            if (current == null || !current.containsKey(id)) {
+                return;
+            }
+            Map<String, Object> updated = new LinkedHashMap<>(current);
+            updated.remove(id);
+            publish(type, updated);
+        }
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        Class<?> type = event.getEntityType();
+        if (!isCached(type)) {
+            return;
+        }
+        if (event.isCollectionWide()) {
+            invalidate(type);
+        } else {
+            refresh(type, event.getDocumentId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, T> entities(Class<T> type) {
+        Map<String, ?> current = snapshot.entities.get(type);
+        if (current != null) {
+            return (Map<String, T>) current;
+        }
+        synchronized (writeLock) {
+            current = snapshot.entities.get(type);
+            if (current == null) {
+                Map<String, Object> loaded = new LinkedHashMap<>();
+                for (T entity : mongoTemplate.findAll(type)) {
+                    loaded.put(idOf(entity), entity);
+                }
+                publish(type, loaded);
+                log.debug("Läste in {} {} till portföljcachen", loaded.size(), type.getSimpleName());
+                current = snapshot.entities.get(type);
+            }
+            return (Map<String, T>) current;
+        }
+    }
+
+    /**
+     * Byter ut ögonblicksbilden. Anropas alltid med writeLock hållet.
+     */
+    private void publish(Class<?> type, Map<String, Object> entities) {
+        Map<Class<?>, Map<String, ?>> copy = new HashMap<>(snapshot.entities);
+        if (entities == null) {
+            copy.remove(type);
+        } else {
+            copy.put(type, Collections.unmodifiableMap(entities));
+        }
+        snapshot = new Snapshot(copy, snapshot.version + 1);
+    }
+
+    private static boolean isCached(Class<?> type) {
+        return CACHED_TYPES.contains(type);
+    }
+
+    private static String idOf(Object entity) {
+        if (entity instanceof Apartment apartment) {
+            return apartment.getId();
+        } else if (entity instanceof Tenant tenant) {
+            return tenant.getId();
+        } else if (entity instanceof Key key) {
+            return key.getId();
+        }
+        throw new IllegalArgumentException("Okänd entitetstyp: " + entity.getClass());
+    }
+
+    private static String idFromQuery(Document query) {
+        if (query == null || query.size() != 1) {
+            return null;
+        }
+        Object id = query.get("_id");
+        if (id instanceof ObjectId objectId) {
+            return objectId.toHexString();
+        }
+        return id instanceof String stringId ? stringId : null;
+    }
+
+    private static class Snapshot {
+        private final Map<Class<?>, Map<String, ?>> entities;
+        private final long version;
+
+        Snapshot(Map<Class<?>, Map<String, ?>> entities, long version) {
+            this.entities = entities;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.dfrm.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.EntityChangeEvent;
+import com.dfrm.model.User;
+import com.dfrm.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache för inloggade användare, nycklad på e-post.
+ * JwtAuthenticationFilter slår upp användaren här istället för i databasen vid varje anrop.
+ * Posterna lever en begränsad tid och tas bort direkt när användaren ändras, tas bort
+ * eller inaktiveras, lokalt via UserService och från andra instanser via change streams.
+ */
+@Service
+@Slf4j
+public class PrincipalCacheService {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<String, CachedPrincipal> cache;
+
+    public PrincipalCacheService(
+            UserRepository userRepository,
+            @Value("${dfrm.auth.principal-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${dfrm.auth.principal-cache.max-size:1000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        // LRU-ordning, äldsta posten tas bort när cachen är full
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Hämtar användaren för en e-postadress, från cachen om posten fortfarande är giltig
+     *
+     * @param email Användarens e-post
+     * @return Användarens UserDetails, tomt om användaren inte finns
+     */
+    public Optional<UserDetails> getPrincipal(String email) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedPrincipal cached = cache.get(email);
+            if (cached != null && cached.expiresAt > now) {
+                return Optional.of(cached.userDetails);
+            }
+        }
+
+        Optional<User> user = userRepository.findByEmail(email);
+        if (user.isEmpty()) {
+            evict(email);
+            return Optional.empty();
+        }
+
+        UserDetails userDetails = UserDetailsServiceImpl.toUserDetails(user.get());
+        synchronized (cache) {
+            cache.put(email, new CachedPrincipal(user.get().getId(), userDetails, now + ttlMillis));
+        }
+        return Optional.of(userDetails);
+    }
+
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.remove(email);
+        }
+    }
+
+    /**
+     * Tar bort användaren oavsett e-post, t.ex. efter att e-postadressen bytts
+     */
+    public void evictUser(String userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.values().removeIf(cached -> userId.equals(cached.userId));
+        }
+        log.debug("Tog bort användare {} ur principal-cachen", userId);
+    }
+
+    public void evictAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!event.concerns(User.class)) {
+            return;
+        }
+        if (event.isCollectionWide()) {
+            evictAll();
+        } else {
+            evictUser(event.getDocumentId());
+        }
+    }
+
+    private static class CachedPrincipal {
+        private final String userId;
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        CachedPrincipal(String userId, UserDetails userDetails, long expiresAt) {
+            this.userId = userId;
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.dfrm.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kör explain på repositoryfrågorna och rapporterar vilka som gör
+ * en fullständig kollektionsskanning (COLLSCAN).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QueryPlanService {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Beskriver en repositoryfråga som den skickas till MongoDB
+     */
+    private static class QueryProbe {
+        private final String name;
+        private final String collection;
+        private final Document filter;
+        private final Document sort;
+
+        QueryProbe(String name, String collection, Document filter, Document sort) {
+            this.name = name;
+            this.collection = collection;
+            this.filter = filter;
+            this.sort = sort;
+        }
+    }
+
+    private static List<QueryProbe> buildProbes() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        ObjectId sampleId = new ObjectId();
+        List<QueryProbe> probes = new ArrayList<>();
+
+        // TaskRepository
+        probes.add(new QueryProbe("TaskRepository.findByStatus", "tasks",
+            new Document("status", "PENDING"), null));
+        probes.add(new QueryProbe("TaskRepository.findByPriority", "tasks",
+            new Document("priority", "HIGH"), null));
+        probes.add(new QueryProbe("TaskRepository.findByApartmentId", "tasks",
+            new Document("apartmentId", sampleId.toHexString()), null));
+        probes.add(new QueryProbe("TaskRepository.findByTenantId", "tasks",
+            new Document("tenantId", sampleId.toHexString()), null));
+        probes.add(new QueryProbe("TaskRepository.findByDueDateBetween", "tasks",
+            new Document("dueDate", new Document("$gt", today.minusDays(30)).append("$lt", today)), null));
+        probes.add(new QueryProbe("TaskRepository.findByDueDateBeforeAndStatusNotIn", "tasks",
+            new Document("dueDate", new Document("$lt", today))
+                .append("status", new Document("$nin", List.of("COMPLETED", "APPROVED"))), null));
+        probes.add(new QueryProbe("TaskRepository.findByIsRecurring", "tasks",
+            new Document("isRecurring", true), null));
+
+        // PendingTaskRepository
+        probes.add(new QueryProbe("PendingTaskRepository.findByStatus", "pending_tasks",
+            new Document("status", "NEW"), null));
+        probes.add(new QueryProbe("PendingTaskRepository.findByReviewedByIsNull", "pending_tasks",
+            new Document("reviewedBy", null), null));
+        probes.add(new QueryProbe("PendingTaskRepository.findByReviewedByIsNotNullOrderByReviewedAtDesc", "pending_tasks",
+            new Document("reviewedBy", new Document("$ne", null)), new Document("reviewedAt", -1)));
+        probes.add(new QueryProbe("PendingTaskRepository.findByRequestedAtAfter", "pending_tasks",
+            new Document("requestedAt", new Document("$gt", now.minusDays(30))), null));
+        probes.add(new QueryProbe("PendingTaskRepository.findByTaskId", "pending_tasks",
+            new Document("taskId", sampleId.toHexString()), null));
+
+        // InterestRepository
+        probes.add(new QueryProbe("InterestRepository.findByStatusOrderByReceivedDesc", "interests",
+            new Document("status", "NEW"), new Document("received", -1)));
+        probes.add(new QueryProbe("InterestRepository.findByStatusNotOrderByReviewedAtDesc", "interests",
+            new Document("status", new Document("$ne", "NEW")), new Document("reviewedAt", -1)));
+        probes.add(new QueryProbe("InterestRepository.findByEmail", "interests",
+            new Document("email", "exempel@example.com"), null));
+        probes.add(new QueryProbe("InterestRepository.existsByHashId", "interests",
+            new Document("hashId", "hash"), null));
+
+        // ShowingRepository
+        probes.add(new QueryProbe("ShowingRepository.findByStatus", "showings",
+            new Document("status", "SCHEDULED"), null));
+        probes.add(new QueryProbe("ShowingRepository.findByDateTimeBetween", "showings",
+            new Document("dateTime", new Document("$gt", now).append("$lt", now.plusDays(30))), null));
+        probes.add(new QueryProbe("ShowingRepository.findByAssignedToIdAndStatus", "showings",
+            new Document("assignedTo.$id", sampleId).append("status", "SCHEDULED"), null));
+        probes.add(new QueryProbe("ShowingRepository.findByRelatedInterestId", "showings",
+            new Document("relatedInterestId", sampleId.toHexString()), null));
+        probes.add(new QueryProbe("ShowingRepository.findByRelatedInterestIdIn", "showings",
+            new Document("relatedInterestId", new Document("$in", List.of(sampleId.toHexString()))),
+            new Document("dateTime", 1).append("createdAt", 1).append("_id", 1)));
+
+        // TaskMessageRepository
+        probes.add(new QueryProbe("TaskMessageRepository.findByTaskIdOrderByTimestampAsc", "task_messages",
+            new Document("taskId", sampleId.toHexString()), new Document("timestamp", 1)));
+
+        // KeyRepository
+        probes.add(new QueryProbe("KeyRepository.findBySerieAndNumber", "keys",
+            new Document("serie", "A").append("number", "1"), null));
+        probes.add(new QueryProbe("KeyRepository.findByApartmentId", "keys",
+            new Document("apartmentId", sampleId.toHexString()), null));
+        probes.add(new QueryProbe("KeyRepository.findByTenantId", "keys",
+            new Document("tenantId", sampleId.toHexString()), null));
+
+        // TenantRepository
+        probes.add(new QueryProbe("TenantRepository.findByEmail", "tenants",
+            new Document("email", "exempel@example.com"), null));
+        probes.add(new QueryProbe("TenantRepository.findByPersonnummer", "tenants",
+            new Document("personnummer", "000000-0000"), null));
+        probes.add(new QueryProbe("TenantRepository.findByLastName", "tenants",
+            new Document("lastName", "Andersson"), null));
+
+        // ApartmentRepository
+        probes.add(new QueryProbe("ApartmentRepository.findByStreetAndNumberAndApartmentNumber", "apartments",
+            new Document("street", "Valhallavägen").append("number", "1").append("apartmentNumber", "1001"), null));
+        probes.add(new QueryProbe("ApartmentRepository.findByCity", "apartments",
+            new Document("city", "Karlskrona"), null));
+
+        // UserRepository
+        probes.add(new QueryProbe("UserRepository.findByEmail", "users",
+            new Document("email", "exempel@example.com"), null));
+
+        return probes;
+    }
+
+    /**
+     * Kör explain på alla registrerade repositoryfrågor
+     *
+     * @return En rapport per fråga med vinnande plan och om den gör COLLSCAN
+     */
+    public List<Map<String, Object>> explainRepositoryQueries() {
+        List<Map<String, Object>> report = new ArrayList<>();
+
+        for (QueryProbe probe : buildProbes()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("query", probe.name);
+            entry.put("collection", probe.collection);
+
+            try {
+                Document find = new Document("find", probe.collection).append("filter", probe.filter);
+                if (probe.sort != null) {
+                    find.append("sort", probe.sort);
+                }
+                Document explain = mongoTemplate.getDb().runCommand(
+                    new Document("explain", find).append("verbosity", "queryPlanner"));
+
+                Document queryPlanner = explain.get("queryPlanner", Document.class);
+                Document winningPlan = queryPlanner != null ? queryPlanner.get("winningPlan", Document.class) : null;
+
+                Set<String> stages = new LinkedHashSet<>();
+                Set<String> indexNames = new LinkedHashSet<>();
+                collectStages(winningPlan, stages, indexNames);
+
+                boolean collscan = stages.contains("COLLSCAN");
+                entry.put("stages", stages);
+                entry.put("indexes", indexNames);
+                entry.put("collscan", collscan);
+
+                if (collscan) {
+                    log.warn("Frågan {} gör COLLSCAN på {}", probe.name, probe.collection);
+                }
+            } catch (Exception e) {
+                log.error("Kunde inte köra explain för {}: {}", probe.name, e.getMessage());
+                entry.put("error", e.getMessage());
+            }
+
+            report.add(entry);
+        }
+
+        return report;
+    }
+
+    /**
+     * Går igenom planträdet och samlar stegnamn och använda index
+     */
+    private void collectStages(Object node, Set<String> stages, Set<String> indexNames) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage != null) {
+                stages.add(stage.toString());
+            }
+            Object indexName = document.get("indexName");
+            if (indexName != null) {
+                indexNames.add(indexName.toString());
+            }
+            for (Object value : document.values()) {
+                collectStages(value, stages, indexNames);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                collectStages(value, stages, indexNames);
+            }
+        }
+    }
+}
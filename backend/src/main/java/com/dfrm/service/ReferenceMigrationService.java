@@ -0,0 +1,154 @@
+package com.dfrm.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migrerar relationer som tidigare lagrades som DBRef till rena ID-fält.
+ * Körs vid uppstart och rör bara dokument som fortfarande har det gamla fältet,
+ * så migreringen kan köras vid varje start.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceMigrationService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final List<FieldMigration> MIGRATIONS = List.of(
+        new FieldMigration("apartments", "tenants", "tenantIds", true),
+        new FieldMigration("apartments", "keys", "keyIds", true),
+        new FieldMigration("tenants", "apartment", "apartmentId", false),
+        new FieldMigration("tenants", "keys", "keyIds", true),
+        new FieldMigration("keys", "apartment", "apartmentId", false),
+        new FieldMigration("keys", "tenant", "tenantId", false),
+        new FieldMigration("tasks", "apartment", "apartmentId", false),
+        new FieldMigration("pending_tasks", "task", "taskId", false),
+        new FieldMigration("showings", "relatedInterest", "relatedInterestId", false)
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final PortfolioCacheService portfolioCacheService;
+    private final CollectionVersionService collectionVersionService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateReferences() {
+        int total = 0;
+        for (FieldMigration migration : MIGRATIONS) {
+            try {
+                int migrated = migrate(migration);
+                total += migrated;
+                if (migrated > 0) {
+                    log.info("Migrerade {} dokument i {}: {} -> {}",
+                        migrated, migration.collection, migration.oldField, migration.newField);
+                }
+            } catch (Exception e) {
+                log.error("Kunde inte migrera {}.{}: {}", migration.collection, migration.oldField, e.getMessage());
+            }
+        }
+        
+        // Dokumenten skrevs direkt mot kollektionerna, förbi cachen
+        if (total > 0) {
+            portfolioCacheService.invalidateAll();
+            collectionVersionService.bumpAll();
+        }
+    }
+
+    private int migrate(FieldMigration migration) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(migration.collection);
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        int migrated = 0;
+
+        for (Document doc : collection.find(Filters.exists(migration.oldField))
+                .projection(Projections.include(migration.oldField, migration.newField))) {
+            Document update = new Document("$unset", new Document(migration.oldField, ""));
+
+            Object converted = migration.list
+                ? toIdList(doc.get(migration.oldField))
+                : toId(doc.get(migration.oldField));
+            // Ett redan satt ID-fält skrivs inte över, t.ex. apartmentId på uppgifter
+            if (doc.get(migration.newField) == null && converted != null) {
+                update.append("$set", new Document(migration.newField, converted));
+            }
+
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", doc.get("_id")), update));
+            if (batch.size() >= BATCH_SIZE) {
+                migrated += flush(collection, batch);
+            }
+        }
+
+        migrated += flush(collection, batch);
+        return migrated;
+    }
+
+    private int flush(MongoCollection<Document> collection, List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int count = collection.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        batch.clear();
+        return count;
+    }
+
+    private List<String> toIdList(Object value) {
+        List<String> ids = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                String id = toId(item);
+                if (id != null && !ids.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Plockar ut ID:t ur en DBRef, ett inbäddat dokument eller ett rått ID
+     */
+    private String toId(Object value) {
+        Object id = value;
+        if (value instanceof DBRef ref) {
+            id = ref.getId();
+        } else if (value instanceof Document doc) {
+            id = doc.containsKey("$id") ? doc.get("$id") : doc.get("_id");
+        }
+
+        if (id instanceof ObjectId objectId) {
+            return objectId.toHexString();
+        }
+        return id != null ? id.toString() : null;
+    }
+
+    private static class FieldMigration {
+        private final String collection;
+        private final String oldField;
+        private final String newField;
+        private final boolean list;
+
+        FieldMigration(String collection, String oldField, String newField, boolean list) {
+            this.collection = collection;
+            this.oldField = oldField;
+            this.newField = newField;
+            this.list = list;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dfrm.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.Apartment;
+import com.dfrm.model.Interest;
+import com.dfrm.model.Key;
+import com.dfrm.model.PendingTask;
+import com.dfrm.model.Task;
+import com.dfrm.model.Tenant;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hämtar refererade entiteter batchvis.
+ * Samlar ihop alla ID:n som en lista refererar till och hämtar dem med en
+ * enda $in-fråga per kollektion, istället för en fråga per referens.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceResolver {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Hämtar entiteter av given typ för en samling ID:n med en fråga
+     *
+     * @param type Entitetsklass
+     * @param ids ID:n att hämta, null-värden och dubbletter ignoreras
+     * @param idGetter Funktion som hämtar entitetens ID
+     * @return Entiteter indexerade på ID
+     */
+    public <T> Map<String, T> findByIds(Class<T> type, Collection<String> ids, Function<T, String> idGetter) {
+        Set<String> uniqueIds = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        if (uniqueIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<T> entities = mongoTemplate.find(new Query(Criteria.where("id").in(uniqueIds)), type);
+        log.debug("Hämtade {} av {} {} med en $in-fråga", entities.size(), uniqueIds.size(), type.getSimpleName());
+
+        return entities.stream().collect(Collectors.toMap(idGetter, Function.identity(), (a, b) -> a));
+    }
+
+    public Map<String, Apartment> findApartments(Collection<String> ids) {
+        return findByIds(Apartment.class, ids, Apartment::getId);
+    }
+
+    public Map<String, Tenant> findTenants(Collection<String> ids) {
+        return findByIds(Tenant.class, ids, Tenant::getId);
+    }
+
+    public Map<String, Key> findKeys(Collection<String> ids) {
+        return findByIds(Key.class, ids, Key::getId);
+    }
+
+    public Map<String, Interest> findInterests(Collection<String> ids) {
+        return findByIds(Interest.class, ids, Interest::getId);
+    }
+
+    public Map<String, Task> findTasks(Collection<String> ids) {
+        return findByIds(Task.class, ids, Task::getId);
+    }
+
+    /**
+     * Fyller i task-objektet på en lista med väntande uppgifter med en enda fråga
+     *
+     * @param pendingTasks Väntande uppgifter att komplettera
+     * @return Samma lista, med task ifyllt där det finns en referens
+     */
+    public List<PendingTask> resolveTasks(List<PendingTask> pendingTasks) {
+        Map<String, Task> tasks = findTasks(pendingTasks.stream().map(PendingTask::getTaskId).toList());
+        for (PendingTask pendingTask : pendingTasks) {
+            if (pendingTask.getTaskId() != null) {
+                // Ett saknat dokument lämnar taskId orört
+                Task task = tasks.get(pendingTask.getTaskId());
+                if (task != null) {
+                    pendingTask.setTask(task);
+                }
+            }
+        }
+        return pendingTasks;
+    }
+
+    /**
+     * Fyller i task-objektet på en enskild väntande uppgift
+     */
+    public Optional<PendingTask> resolveTask(Optional<PendingTask> pendingTask) {
+        pendingTask.ifPresent(p -> resolveTasks(List.of(p)));
+        return pendingTask;
+    }
+}
@@ -26,6 +26,7 @@ public class SecurityTokenService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final PrincipalCacheService principalCacheService;
     
     private static final long EXPIRATION_TIME_MINUTES = 60; // 60 minuter
 
@@ -119,6 +120,7 @@ public class SecurityTokenService {
         // Uppdatera lösenord
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCacheService.evictUser(user.getId());
         
         // Markera token som använd
         securityToken.setUsed(true);
@@ -144,6 +146,7 @@ public class SecurityTokenService {
         // Uppdatera e-postadress
         user.setEmail(securityToken.getNewEmail());
         userRepository.save(user);
+        principalCacheService.evictUser(user.getId());
         
         // Markera token som använd
         securityToken.setUsed(true);
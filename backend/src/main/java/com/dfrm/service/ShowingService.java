@@ -3,12 +3,16 @@ package com.dfrm.service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Interest;
 import com.dfrm.model.Showing;
 import com.dfrm.model.User;
@@ -23,19 +27,37 @@ public class ShowingService {
     
     private final ShowingRepository showingRepository;
     private final InterestRepository interestRepository;
+    private final KeysetPaginationService paginationService;
+    
+    // Tidigaste visningen först, ID:t avgör vid lika tid så att ordningen är stabil
+    private static final Sort SHOWING_ORDER = Sort.by("dateTime", "createdAt", "id");
     
     @Autowired
     private UserService userService;
     
-    public ShowingService(ShowingRepository showingRepository, InterestRepository interestRepository) {
+    public ShowingService(ShowingRepository showingRepository, InterestRepository interestRepository,
+                          KeysetPaginationService paginationService) {
         this.showingRepository = showingRepository;
         this.interestRepository = interestRepository;
+        this.paginationService = paginationService;
     }
     
     public List<Showing> getAllShowings() {
         return showingRepository.findAll();
     }
     
+    /**
+     * Hämtar en sida med visningar sorterade på visningstid
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med visningar
+     */
+    public CursorPage<Showing> getShowingPage(String cursor, Integer limit) {
+        return paginationService.findPage(new Query(), Showing.class, "dateTime", Sort.Direction.ASC,
+                Showing::getDateTime, Showing::getId, cursor, limit);
+    }
+    
     public Optional<Showing> getShowingById(String id) {
         return showingRepository.findById(id);
     }
@@ -61,6 +83,20 @@ public class ShowingService {
         return showingRepository.findByRelatedInterestId(interestId);
     }
     
+    /**
+     * Hämtar visningar för flera intresseanmälningar med en fråga
+     * 
+     * @param interestIds Intresseanmälningarnas ID:n
+     * @return Lista med visningar kopplade till någon av intresseanmälningarna, tidigaste först
+     */
+    public List<Showing> getShowingsByInterestIds(Collection<String> interestIds) {
+        if (interestIds == null || interestIds.isEmpty()) {
+            return List.of();
+        }
+        log.debug("Hämtar visningar för {} intresseanmälningar", interestIds.size());
+        return showingRepository.findByRelatedInterestIdIn(interestIds, SHOWING_ORDER);
+    }
+    
     public Showing createShowing(Showing showing) {
         // Sätt skapandedatum
         showing.setCreatedAt(LocalDateTime.now());
@@ -87,7 +123,7 @@ public class ShowingService {
                 .status("SCHEDULED")
                 .apartmentAddress(interest.getApartment())
                 .assignedTo(assignedTo)
-                .relatedInterest(interest)
+                .relatedInterestId(interest.getId())
                 .contactName(interest.getName())
                 .contactEmail(interest.getEmail())
                 .contactPhone(interest.getPhone())
@@ -3,29 +3,29 @@ package com.dfrm.service;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import com.dfrm.model.Task;
-
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Hjälpklass för att hantera olika typer av filtrering för uppgifter.
- * Denna klass avser att centralisera och standardisera filtreringslogiken.
+ * Översätter filtreringsparametrarna till en MongoDB-fråga så att
+ * filtreringen sker i databasen istället för i minnet.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TaskFilterService {
 
+    private static final List<String> COMPLETED_STATUSES = List.of("COMPLETED", "APPROVED");
+
     /**
-     * Filtrerar en lista med uppgifter baserat på filtreringsparametrar
-     * 
-     * @param tasks Lista med uppgifter att filtrera
+     * Bygger en MongoDB-fråga baserat på filtreringsparametrar
+     *
      * @param status Uppgiftsstatus att filtrera på (valfritt)
      * @param priority Prioritet att filtrera på (valfritt)
      * @param tenantId Hyresgäst-ID att filtrera på (valfritt)
@@ -35,134 +35,90 @@ public class TaskFilterService {
      * @param startDate Startdatum för datumintervall (valfritt)
      * @param endDate Slutdatum för datumintervall (valfritt)
      * @param isOverdue Om true, inkludera endast förfallna uppgifter (valfritt)
-     * @return Filtrerad lista med uppgifter
+     * @return Fråga som matchar alla angivna filter
      */
-    public List<Task> filterTasks(List<Task> tasks, 
-                                 String status, 
-                                 String priority, 
-                                 String tenantId, 
-                                 String apartmentId,
-                                 String assignedToUserId,
-                                 String assignedByUserId,
-                                 LocalDate startDate,
-                                 LocalDate endDate,
-                                 Boolean isOverdue) {
-        
-        log.debug("Filtrerar {} uppgifter med parametrar: status={}, priority={}, tenantId={}, apartmentId={}, " +
+    public Query buildQuery(String status,
+                            String priority,
+                            String tenantId,
+                            String apartmentId,
+                            String assignedToUserId,
+                            String assignedByUserId,
+                            LocalDate startDate,
+                            LocalDate endDate,
+                            Boolean isOverdue) {
+
+        log.debug("Bygger uppgiftsfråga med parametrar: status={}, priority={}, tenantId={}, apartmentId={}, " +
                  "assignedToUserId={}, assignedByUserId={}, startDate={}, endDate={}, isOverdue={}",
-                 tasks.size(), status, priority, tenantId, apartmentId, assignedToUserId, 
+                 status, priority, tenantId, apartmentId, assignedToUserId,
                  assignedByUserId, startDate, endDate, isOverdue);
-        
-        // Om inga filtreringsparametrar angivits, returnera den ursprungliga listan
-        if (areAllFiltersEmpty(status, priority, tenantId, apartmentId, assignedToUserId, 
-                              assignedByUserId, startDate, endDate, isOverdue)) {
-            return tasks;
+
+        List<Criteria> criteria = buildCriteria(status, priority, tenantId, apartmentId,
+                                                assignedToUserId, assignedByUserId,
+                                                startDate, endDate, isOverdue);
+
+        Query query = new Query();
+        if (!criteria.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criteria));
         }
-        
-        // Bygg upp en lista med predikat baserat på de angivna filtreringsparametrarna
-        List<Predicate<Task>> predicates = buildPredicates(status, priority, tenantId, apartmentId, 
-                                                     assignedToUserId, assignedByUserId, 
-                                                     startDate, endDate, isOverdue);
-        
-        // Applicera alla predikat på listan av uppgifter
-        List<Task> filteredTasks = tasks.stream()
-                .filter(predicates.stream().reduce(x -> true, Predicate::and))
-                .collect(Collectors.toList());
-        
-        log.debug("Filtrering resulterade i {} uppgifter", filteredTasks.size());
-        
-        return filteredTasks;
+        return query;
     }
-    
+
     /**
-     * Kontrollerar om alla filtreringsparametrar är null eller tomma
+     * Bygger upp en lista med villkor baserat på de angivna filtreringsparametrarna
      */
-    private boolean areAllFiltersEmpty(String status, String priority, String tenantId, String apartmentId,
-                                    String assignedToUserId, String assignedByUserId, 
-                                    LocalDate startDate, LocalDate endDate, Boolean isOverdue) {
-        return (status == null || status.isEmpty()) &&
-               (priority == null || priority.isEmpty()) &&
-               (tenantId == null || tenantId.isEmpty()) &&
-               (apartmentId == null || apartmentId.isEmpty()) &&
-               (assignedToUserId == null || assignedToUserId.isEmpty()) &&
-               (assignedByUserId == null || assignedByUserId.isEmpty()) &&
-               startDate == null && endDate == null && isOverdue == null;
+    private List<Criteria> buildCriteria(String status, String priority, String tenantId, String apartmentId,
+                                         String assignedToUserId, String assignedByUserId,
+                                         LocalDate startDate, LocalDate endDate, Boolean isOverdue) {
+
+        List<Criteria> criteria = new ArrayList<>();
+
+        // Likhetsvillkor för enkla fält
+        addEquals(criteria, "status", status);
+        addEquals(criteria, "priority", priority);
+        addEquals(criteria, "tenantId", tenantId);
+        addEquals(criteria, "apartmentId", apartmentId);
+        addEquals(criteria, "assignedToUserId", assignedToUserId);
+        addEquals(criteria, "assignedByUserId", assignedByUserId);
+
+        // Datumintervall, där båda ändarna är valfria
+        if (startDate != null || endDate != null) {
+            Criteria dueDate = Criteria.where("dueDate");
+            if (startDate != null) {
+                dueDate = dueDate.gte(startDate);
+            }
+            if (endDate != null) {
+                dueDate = dueDate.lte(endDate);
+            }
+            criteria.add(dueDate);
+        }
+
+        // Förfallna uppgifter: förfallodatum passerat och inte slutförda
+        if (Boolean.TRUE.equals(isOverdue)) {
+            criteria.add(overdueCriteria());
+        }
+
+        return criteria;
     }
-    
+
     /**
-     * Bygger upp en lista med predikat baserat på de angivna filtreringsparametrarna
+     * Villkor för förfallna uppgifter: förfallodatum passerat och inte slutförda
      */
-    private List<Predicate<Task>> buildPredicates(String status, String priority, String tenantId, String apartmentId,
-                                             String assignedToUserId, String assignedByUserId, 
-                                             LocalDate startDate, LocalDate endDate, Boolean isOverdue) {
-        
-        List<Predicate<Task>> predicates = new ArrayList<>();
-        
-        // Lägg till predikat för status
-        if (status != null && !status.isEmpty()) {
-            predicates.add(task -> status.equals(task.getStatus()));
-        }
-        
-        // Lägg till predikat för priority
-        if (priority != null && !priority.isEmpty()) {
-            predicates.add(task -> priority.equals(task.getPriority()));
-        }
-        
-        // Lägg till predikat för tenantId
-        if (tenantId != null && !tenantId.isEmpty()) {
-            predicates.add(task -> tenantId.equals(task.getTenantId()));
-        }
-        
-        // Lägg till predikat för apartmentId
-        if (apartmentId != null && !apartmentId.isEmpty()) {
-            predicates.add(task -> apartmentId.equals(task.getApartmentId()));
-        }
-        
-        // Lägg till predikat för assignedToUserId
-        if (assignedToUserId != null && !assignedToUserId.isEmpty()) {
-            predicates.add(task -> assignedToUserId.equals(task.getAssignedToUserId()));
-        }
-        
-        // Lägg till predikat för assignedByUserId
-        if (assignedByUserId != null && !assignedByUserId.isEmpty()) {
-            predicates.add(task -> assignedByUserId.equals(task.getAssignedByUserId()));
-        }
-        
-        // Lägg till predikat för datumintervall
-        if (startDate != null && endDate != null) {
-            predicates.add(task -> {
-                if (task.getDueDate() == null) {
-                    return false;
-                }
-                return !task.getDueDate().isBefore(startDate) && !task.getDueDate().isAfter(endDate);
-            });
-        } else if (startDate != null) {
-            predicates.add(task -> {
-                if (task.getDueDate() == null) {
-                    return false;
-                }
-                return !task.getDueDate().isBefore(startDate);
-            });
-        } else if (endDate != null) {
-            predicates.add(task -> {
-                if (task.getDueDate() == null) {
-                    return false;
-                }
-                return !task.getDueDate().isAfter(endDate);
-            });
-        }
-        
-        // Lägg till predikat för förfallna uppgifter
-        if (isOverdue != null && isOverdue) {
-            LocalDate today = LocalDate.now();
-            List<String> completedStatuses = List.of("COMPLETED", "APPROVED");
-            predicates.add(task -> 
-                task.getDueDate() != null && 
-                task.getDueDate().isBefore(today) && 
-                !completedStatuses.contains(task.getStatus())
-            );
+    public Criteria overdueCriteria() {
+        return new Criteria().andOperator(
+            Criteria.where("dueDate").lt(LocalDate.now()),
+            Criteria.where("status").nin(COMPLETED_STATUSES));
+    }
+
+    /**
+     * Villkor för uppgifter som ännu inte är slutförda
+     */
+    public Criteria openCriteria() {
+        return Criteria.where("status").nin(COMPLETED_STATUSES);
+    }
+
+    private void addEquals(List<Criteria> criteria, String field, String value) {
+        if (value != null && !value.isEmpty()) {
+            criteria.add(Criteria.where(field).is(value));
         }
-        
-        return predicates;
     }
-} 
\ No newline at end of file
+}
@@ -1,13 +1,18 @@
 package com.dfrm.service;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.dfrm.client.GoogleTranslateClient;
@@ -28,6 +33,10 @@ public class TaskMessageService {
     private final TaskMessageRepository taskMessageRepository;
     private final UserRepository userRepository;
     private final GoogleTranslateClient googleTranslateClient;
+    private final MongoTemplate mongoTemplate;
+    
+    // Pågående översättningar per meddelande och språk, samtidiga läsare delar samma anrop
+    private final Map<String, CompletableFuture<Optional<String>>> pendingTranslations = new ConcurrentHashMap<>();
     
     /**
      * Hämtar alla meddelanden för en specifik uppgift
@@ -39,6 +48,109 @@ public class TaskMessageService {
         return taskMessageRepository.findByTaskIdOrderByTimestampAsc(taskId);
     }
     
+    /**
+     * Hämtar alla meddelanden för en uppgift översatta till läsarens språk.
+     * Meddelanden översätts först när någon läser dem på ett nytt språk, översättningen
+     * sparas sedan på meddelandet så att nästa läsare får den direkt.
+     * 
+     * @param taskId ID för uppgiften
+     * @param languageCode Läsarens språkkod, utan språk returneras meddelandena oöversatta
+     * @return Lista med meddelanden
+     */
+    public List<TaskMessage> getMessagesByTaskId(String taskId, String languageCode) {
+        List<TaskMessage> messages = getMessagesByTaskId(taskId);
+        Language target = findLanguage(languageCode);
+        if (target == null) {
+            return messages;
+        }
+        
+        // Starta alla saknade översättningar innan någon väntas in, så att de går parallellt
+        Map<TaskMessage, CompletableFuture<Optional<String>>> missing = new LinkedHashMap<>();
+        for (TaskMessage message : messages) {
+            if (needsTranslation(message, target)) {
+                missing.put(message, translationFor(message, target));
+            }
+        }
+        
+        missing.forEach((message, future) -> future.join().ifPresent(translated -> {
+            Map<String, String> translations = message.getTranslations() != null
+                ? new HashMap<>(message.getTranslations())
+                : new HashMap<>();
+            translations.put(target.getCode(), translated);
+            message.setTranslations(translations);
+        }));
+        if (!missing.isEmpty()) {
+            log.debug("Översatte {} meddelanden för uppgift {} till {}", missing.size(), taskId, target.getCode());
+        }
+        return messages;
+    }
+    
+    private boolean needsTranslation(TaskMessage message, Language target) {
+        return message.getId() != null
+            && message.getLanguage() != null
+            && message.getLanguage() != target
+            && message.getContent() != null
+            && (message.getTranslations() == null || !message.getTranslations().containsKey(target.getCode()));
+    }
+    
+    /**
+     * Returnerar en pågående översättning om det finns en, annars startas en ny.
+     * Lyckade översättningar sparas atomiskt på meddelandet, misslyckade sparas inte
+     * så att nästa läsning försöker igen.
+     */
+    private CompletableFuture<Optional<String>> translationFor(TaskMessage message, Language target) {
+        String key = message.getId() + ":" + target.getCode();
+        CompletableFuture<Optional<String>> pending = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> existing = pendingTranslations.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+        
+        googleTranslateClient
+            .translateAsync(message.getContent(), message.getLanguage().getCode(), target.getCode())
+            .thenApply(translated -> {
+                translated.ifPresent(text -> saveTranslation(message, target, text));
+                return translated;
+            })
+            .exceptionally(e -> {
+                log.error("Fel vid översättning av meddelande {}", message.getId(), e);
+                return Optional.empty();
+            })
+            .thenAccept(result -> {
+                pendingTranslations.remove(key, pending);
+                pending.complete(result);
+            });
+        return pending;
+    }
+    
+    /**
+     * Sparar en översättning utan att skriva över andra språk som sparas samtidigt.
+     * $set på en nyckel i translations misslyckas om fältet är null, så en tom map
+     * skapas först i det fallet, och bara om ingen annan hunnit göra det.
+     */
+    private void saveTranslation(TaskMessage message, Language target, String translated) {
+        Update update = new Update().set("translations." + target.getCode(), translated);
+        Query withTranslations = Query.query(Criteria.where("id").is(message.getId()).and("translations").ne(null));
+        if (mongoTemplate.updateFirst(withTranslations, update, TaskMessage.class).getMatchedCount() > 0) {
+            return;
+        }
+        Query withoutTranslations = Query.query(Criteria.where("id").is(message.getId()).and("translations").is(null));
+        mongoTemplate.updateFirst(withoutTranslations, new Update().set("translations", Map.of()), TaskMessage.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(message.getId())), update, TaskMessage.class);
+    }
+    
+    private static Language findLanguage(String languageCode) {
+        if (languageCode == null) {
+            return null;
+        }
+        for (Language lang : Language.values()) {
+            if (lang.getCode().equals(languageCode)) {
+                return lang;
+            }
+        }
+        return null;
+    }
+    
     /**
      * Skapar ett nytt meddelande för en uppgift
      * 
@@ -82,36 +194,8 @@ public class TaskMessageService {
                 .language(language)
                 .build();
         
-        // Använd GoogleTranslateClient för att översätta meddelandet till alla språk
-        try {
-            // Skapa en lista med alla språk som ska översättas till
-            List<String> targetLanguages = Arrays.stream(Language.values())
-                .map(Language::getCode)
-                .collect(Collectors.toList());
-            
-            // Använd den nya metoden för att översätta till alla språk på en gång
-            Map<String, String> translations = googleTranslateClient.translateToMultipleLanguages(
-                content, 
-                language.getCode(), 
-                targetLanguages
-            );
-            
-            // Ta bort källspråket från översättningarna, eftersom det redan är originaltexten
-            translations.remove(language.getCode());
-            
-            message.setTranslations(translations);
-            log.info("Message translated to {} languages", translations.size());
-        } catch (Exception e) {
-            log.error("Fel vid översättning av meddelande", e);
-            // Om översättningen misslyckas, använd originalinnehållet för alla språk
-            Map<String, String> fallbackTranslations = new HashMap<>();
-            for (Language targetLanguage : Language.values()) {
-                if (targetLanguage != language) {
-                    fallbackTranslations.put(targetLanguage.getCode(), content);
-                }
-            }
-            message.setTranslations(fallbackTranslations);
-        }
+        // Översättningar görs först när någon läser meddelandet på ett annat språk
+        message.setTranslations(new HashMap<>());
         
         // Spara och returnera meddelandet
         return taskMessageRepository.save(message);
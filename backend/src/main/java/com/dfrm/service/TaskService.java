@@ -5,11 +5,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.dfrm.client.GoogleTranslateClient;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Task;
+import com.dfrm.model.TaskSummary;
 import com.dfrm.repository.ApartmentRepository;
 import com.dfrm.repository.TaskRepository;
 import com.dfrm.repository.TenantRepository;
@@ -31,6 +36,8 @@ public class TaskService {
     private final GoogleTranslateClient translateClient;
     private final TaskFilterService taskFilterService;
     private final EntityReferenceService entityReferenceService;
+    private final MongoTemplate mongoTemplate;
+    private final KeysetPaginationService paginationService;
     
     /**
      * Hämtar alla uppgifter med valfria filtreringsparametrar
@@ -42,26 +49,12 @@ public class TaskService {
      * @return Lista med filtrerade uppgifter
      */
     public List<Task> getAllTasks(String status, String priority, String tenantId, String apartmentId) {
-        // Hämta alla uppgifter från databasen
-        List<Task> allTasks = taskRepository.findAll();
-        
-        // Använd filterservice för att filtrera uppgifterna
-        return taskFilterService.filterTasks(
-            allTasks, 
-            status, 
-            priority, 
-            tenantId, 
-            apartmentId,
-            null, // assignedToUserId
-            null, // assignedByUserId
-            null, // startDate
-            null, // endDate
-            null  // isOverdue
-        );
+        return getFilteredTasks(status, priority, tenantId, apartmentId, null, null, null, null, null);
     }
     
     /**
-     * En utökad version av getAllTasks som stödjer alla filtreringsparametrar
+     * En utökad version av getAllTasks som stödjer alla filtreringsparametrar.
+     * Samtliga filter översätts till en enda databasfråga.
      */
     public List<Task> getFilteredTasks(
             String status, 
@@ -74,26 +67,7 @@ public class TaskService {
             LocalDate endDate,
             Boolean isOverdue) {
         
-        // Använd repository-metoder för att optimera databashämtning om möjligt
-        List<Task> initialTasks;
-        
-        if (status != null && !status.isEmpty()) {
-            initialTasks = taskRepository.findByStatus(status);
-        } else if (priority != null && !priority.isEmpty()) {
-            initialTasks = taskRepository.findByPriority(priority);
-        } else if (tenantId != null && !tenantId.isEmpty()) {
-            initialTasks = taskRepository.findByTenantId(tenantId);
-        } else if (apartmentId != null && !apartmentId.isEmpty()) {
-            initialTasks = taskRepository.findByApartmentId(apartmentId);
-        } else if (startDate != null && endDate != null) {
-            initialTasks = taskRepository.findByDueDateBetween(startDate, endDate);
-        } else {
-            initialTasks = taskRepository.findAll();
-        }
-        
-        // Använd filterservice för att utföra resterande filtrering
-        return taskFilterService.filterTasks(
-            initialTasks, 
+        Query query = taskFilterService.buildQuery(
             status, 
             priority, 
             tenantId, 
@@ -104,6 +78,65 @@ public class TaskService {
             endDate,
             isOverdue
         );
+        
+        List<Task> tasks = mongoTemplate.find(query, Task.class);
+        log.debug("Uppgiftsfrågan returnerade {} uppgifter", tasks.size());
+        return tasks;
+    }
+    
+    /**
+     * Hämtar filtrerade uppgifter som listrader.
+     * Endast fälten i TaskSummary läses från databasen.
+     */
+    public List<TaskSummary> getTaskSummaries(
+            String status, 
+            String priority, 
+            String tenantId, 
+            String apartmentId,
+            String assignedToUserId,
+            String assignedByUserId,
+            LocalDate startDate,
+            LocalDate endDate,
+            Boolean isOverdue) {
+        
+        Query query = taskFilterService.buildQuery(
+            status, priority, tenantId, apartmentId,
+            assignedToUserId, assignedByUserId,
+            startDate, endDate, isOverdue
+        );
+        query.fields().include(TaskSummary.FIELDS);
+        
+        return mongoTemplate.find(query, TaskSummary.class, mongoTemplate.getCollectionName(Task.class));
+    }
+    
+    /**
+     * Hämtar en sida med filtrerade uppgifter sorterade på förfallodatum
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med uppgifter som listrader
+     */
+    public CursorPage<TaskSummary> getTaskPage(
+            String status, 
+            String priority, 
+            String tenantId, 
+            String apartmentId,
+            String assignedToUserId,
+            String assignedByUserId,
+            LocalDate startDate,
+            LocalDate endDate,
+            Boolean isOverdue,
+            String cursor,
+            Integer limit) {
+        
+        Query query = taskFilterService.buildQuery(
+            status, priority, tenantId, apartmentId,
+            assignedToUserId, assignedByUserId,
+            startDate, endDate, isOverdue
+        );
+        query.fields().include(TaskSummary.FIELDS);
+        return paginationService.findPage(query, TaskSummary.class, mongoTemplate.getCollectionName(Task.class),
+                "dueDate", Sort.Direction.ASC, TaskSummary::getDueDate, TaskSummary::getId, cursor, limit);
     }
     
     public Optional<Task> getTaskById(String id) {
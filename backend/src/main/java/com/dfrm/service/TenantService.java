@@ -8,9 +8,10 @@ import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import com.dfrm.model.Apartment;
+import com.dfrm.model.CursorPage;
 import com.dfrm.model.Key;
 import com.dfrm.model.Tenant;
 import com.dfrm.repository.ApartmentRepository;
@@ -27,15 +28,29 @@ public class TenantService {
     private final TenantRepository tenantRepository;
     private final ApartmentRepository apartmentRepository;
     private final KeyRepository keyRepository;
+    private final KeysetPaginationService paginationService;
+    private final EntityReferenceService entityReferenceService;
+    private final PortfolioCacheService portfolioCacheService;
     
     private static final Logger log = LoggerFactory.getLogger(TenantService.class);
     
     public List<Tenant> getAllTenants() {
-        return tenantRepository.findAll();
+        return portfolioCacheService.getTenants();
+    }
+    
+    /**
+     * Hämtar en sida med hyresgäster sorterade på ID
+     * 
+     * @param cursor Cursor från föregående sida (valfritt)
+     * @param limit Sidstorlek (valfritt)
+     * @return En sida med hyresgäster
+     */
+    public CursorPage<Tenant> getTenantPage(String cursor, Integer limit) {
+        return paginationService.findPage(new Query(), Tenant.class, Tenant::getId, cursor, limit);
     }
     
     public Optional<Tenant> getTenantById(String id) {
-        return tenantRepository.findById(id);
+        return portfolioCacheService.getTenant(id);
     }
     
     public Optional<Tenant> getTenantByPersonnummer(String personnummer) {
@@ -48,21 +63,8 @@ public class TenantService {
     
     public void deleteTenant(String id) {
         tenantRepository.findById(id).ifPresent(tenant -> {
-            // Ta bort hyresgästen från lägenheten om den finns
-            if (tenant.getApartment() != null) {
-                Apartment apartment = tenant.getApartment();
-                apartment.getTenants().remove(tenant);
-                apartmentRepository.save(apartment);
-            }
-            
-            // Ta bort hyresgästens referens från alla nycklar om de finns
-            if (tenant.getKeys() != null && !tenant.getKeys().isEmpty()) {
-                for (Key key : new ArrayList<>(tenant.getKeys())) {
-                    key.setTenant(null);
-                    keyRepository.save(key);
-                }
-                tenant.getKeys().clear();
-            }
+            // Ta bort hyresgästens referenser från lägenheter och nycklar
+            entityReferenceService.detachTenant(tenant.getId());
             
             tenantRepository.deleteById(id);
         });
@@ -84,38 +86,9 @@ public class TenantService {
         return tenantRepository.findById(tenantId)
                 .flatMap(tenant -> apartmentRepository.findById(apartmentId)
                         .map(apartment -> {
-                            // Ta bort hyresgästen från tidigare lägenhet om den finns
-                            if (tenant.getApartment() != null) {
-                                Apartment oldApartment = tenant.getApartment();
-                                oldApartment.getTenants().remove(tenant);
-                                apartmentRepository.save(oldApartment);
-                            }
-
-                            // Lägg till hyresgästen i den nya lägenheten
-                            tenant.setApartment(apartment);
-                            
-                            // Säkerställ att lägenheten har en lista med hyresgäster
-                            if (apartment.getTenants() == null) {
-                                apartment.setTenants(new ArrayList<>());
-                            }
-                            
-                            // Ta först bort hyresgästen om den redan finns (för att undvika dubbletter)
-                            apartment.getTenants().removeIf(t -> t.getId().equals(tenant.getId()));
-                            
-                            // Lägg till hyresgästen i lägenheten
-                            apartment.getTenants().add(tenant);
-
-                            // Spara först lägenheten för att uppdatera dess hyresgästlista
-                            Apartment savedApartment = apartmentRepository.save(apartment);
-                            
-                            // Säkerställ att hyresgästen har en uppdaterad referens till lägenheten
-                            tenant.setApartment(savedApartment);
-                            
-                            // Spara och returnera den uppdaterade hyresgästen
-                            Tenant savedTenant = tenantRepository.save(tenant);
-                            
-                            // Returnera den slutliga hyresgästen efter att alla relationer uppdaterats
-                            return savedTenant;
+                            // Flytta hyresgästen med atomiska uppdateringar istället för att spara hela dokumenten
+                            entityReferenceService.assignTenantToApartment(apartment, tenant);
+                            return tenant;
                         }));
     }
 
@@ -124,27 +97,20 @@ public class TenantService {
                 .flatMap(tenant -> keyRepository.findById(keyId)
                         .map(key -> {
                             // Ta bort nyckeln från tidigare hyresgäst om den finns
-                            if (key.getTenant() != null) {
-                                Tenant oldTenant = key.getTenant();
-                                // Säkerställ att nyckelreferensen tas bort från gamla hyresgästens lista
-                                if (oldTenant.getKeys() != null) {
-                                    oldTenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-                                    tenantRepository.save(oldTenant);
-                                }
-                            }
+                            removeKeyFromPreviousTenant(key, tenant);
 
                             // Tilldela nyckeln till den nya hyresgästen
                             // Initiera keys-listan om den är null
-                            if (tenant.getKeys() == null) {
-                                tenant.setKeys(new ArrayList<>());
+                            if (tenant.getKeyIds() == null) {
+                                tenant.setKeyIds(new ArrayList<>());
                             }
                             
                             // Lägg bara till nyckeln om den inte redan finns i listan
-                            if (tenant.getKeys().stream().noneMatch(k -> k.getId().equals(key.getId()))) {
-                                tenant.getKeys().add(key);
+                            if (!tenant.getKeyIds().contains(key.getId())) {
+                                tenant.getKeyIds().add(key.getId());
                             }
                             
-                            key.setTenant(tenant);
+                            key.setTenantId(tenant.getId());
 
                             keyRepository.save(key);
                             return tenantRepository.save(tenant);
@@ -154,12 +120,13 @@ public class TenantService {
     public Optional<Tenant> removeApartment(String tenantId) {
         return tenantRepository.findById(tenantId)
                 .map(tenant -> {
-                    if (tenant.getApartment() != null) {
-                        Apartment apartment = tenant.getApartment();
-                        apartment.getTenants().remove(tenant);
-                        apartmentRepository.save(apartment);
+                    if (tenant.getApartmentId() != null) {
+                        apartmentRepository.findById(tenant.getApartmentId()).ifPresent(apartment -> {
+                            apartment.getTenantIds().remove(tenant.getId());
+                            apartmentRepository.save(apartment);
+                        });
                     }
-                    tenant.setApartment(null);
+                    tenant.setApartmentId(null);
                     return tenantRepository.save(tenant);
                 });
     }
@@ -169,13 +136,13 @@ public class TenantService {
                 .flatMap(tenant -> keyRepository.findById(keyId)
                         .map(key -> {
                             // Ta bort nyckeln från hyresgästens lista
-                            if (tenant.getKeys() != null) {
-                                tenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
+                            if (tenant.getKeyIds() != null) {
+                                tenant.getKeyIds().remove(key.getId());
                             }
                             
                             // Återställ tenant-referensen i nyckeln
-                            if (key.getTenant() != null && key.getTenant().getId().equals(tenant.getId())) {
-                                key.setTenant(null);
+                            if (tenant.getId().equals(key.getTenantId())) {
+                                key.setTenantId(null);
                                 keyRepository.save(key);
                             }
                             
@@ -186,14 +153,14 @@ public class TenantService {
     public Optional<Tenant> removeAllKeys(String tenantId) {
         return tenantRepository.findById(tenantId)
                 .map(tenant -> {
-                    if (tenant.getKeys() != null && !tenant.getKeys().isEmpty()) {
+                    if (tenant.getKeyIds() != null && !tenant.getKeyIds().isEmpty()) {
                         // Ta bort tenant-referensen från alla nycklar
-                        for (Key key : tenant.getKeys()) {
-                            key.setTenant(null);
+                        for (Key key : keyRepository.findAllById(tenant.getKeyIds())) {
+                            key.setTenantId(null);
                             keyRepository.save(key);
                         }
                         // Rensa nyckel-listan
-                        tenant.getKeys().clear();
+                        tenant.getKeyIds().clear();
                     }
                     return tenantRepository.save(tenant);
                 });
@@ -225,8 +192,8 @@ public class TenantService {
                         // Konvertera tillbaka till Tenant-objekt men behåll relationer
                         Tenant updatedTenant = objectMapper.convertValue(tenantMap, Tenant.class);
                         updatedTenant.setId(existingTenant.getId());
-                        updatedTenant.setApartment(existingTenant.getApartment());
-                        updatedTenant.setKeys(existingTenant.getKeys());
+                        updatedTenant.setApartmentId(existingTenant.getApartmentId());
+                        updatedTenant.setKeyIds(existingTenant.getKeyIds());
                         
                         return tenantRepository.save(updatedTenant);
                     } catch (Exception e) {
@@ -241,25 +208,19 @@ public class TenantService {
                 .flatMap(tenant -> keyRepository.findById(keyId)
                         .map(key -> {
                             // Ta bort nyckeln från tidigare hyresgäst om den finns
-                            if (key.getTenant() != null) {
-                                Tenant oldTenant = key.getTenant();
-                                if (oldTenant.getKeys() != null) {
-                                    oldTenant.getKeys().removeIf(k -> k.getId().equals(key.getId()));
-                                    tenantRepository.save(oldTenant);
-                                }
-                            }
+                            removeKeyFromPreviousTenant(key, tenant);
                             
                             // Tilldela nyckeln till den nya hyresgästen
-                            key.setTenant(tenant);
+                            key.setTenantId(tenant.getId());
                             
                             // Initiera keys-listan om den är null
-                            if (tenant.getKeys() == null) {
-                                tenant.setKeys(new ArrayList<>());
+                            if (tenant.getKeyIds() == null) {
+                                tenant.setKeyIds(new ArrayList<>());
                             }
                             
                             // Lägg bara till nyckeln om den inte redan finns i listan
-                            if (tenant.getKeys().stream().noneMatch(k -> k.getId().equals(key.getId()))) {
-                                tenant.getKeys().add(key);
+                            if (!tenant.getKeyIds().contains(key.getId())) {
+                                tenant.getKeyIds().add(key.getId());
                             }
                             
                             keyRepository.save(key);
@@ -270,4 +231,18 @@ public class TenantService {
     public Optional<Tenant> findTenantByEmail(String email) {
         return tenantRepository.findByEmail(email);
     }
+
+    /**
+     * Tar bort nyckeln från den hyresgäst som tidigare hade den, om det är en annan hyresgäst
+     */
+    private void removeKeyFromPreviousTenant(Key key, Tenant newTenant) {
+        if (key.getTenantId() != null && !key.getTenantId().equals(newTenant.getId())) {
+            tenantRepository.findById(key.getTenantId()).ifPresent(oldTenant -> {
+                if (oldTenant.getKeyIds() != null) {
+                    oldTenant.getKeyIds().remove(key.getId());
+                    tenantRepository.save(oldTenant);
+                }
+            });
+        }
+    }
 } 
\ No newline at end of file
@@ -1,7 +1,14 @@
 package com.dfrm.service;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
@@ -17,11 +24,36 @@ public class TokenDecryptionService {
 
     private static final Logger log = LoggerFactory.getLogger(TokenDecryptionService.class);
     
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final Pattern EXP_PATTERN = Pattern.compile("\"exp\"\\s*:\\s*(\\d+)");
+    
+    // Cipher är inte trådsäker men dyr att skapa, så varje tråd återanvänder sin egen
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (Exception e) {
+            throw new IllegalStateException("AES-chiffer saknas", e);
+        }
+    });
+    
     @Value("${token.decryption.key:default-secret-key-change-in-production}")
     private String secretKey;
     
+    @Value("${token.decryption.max-ttl-seconds:3600}")
+    private long maxTtlSeconds;
+    
+    private final Map<String, DecryptedToken> decryptedTokens;
+    private final Map<String, KeyMaterial> keyMaterialBySalt;
+    
+    public TokenDecryptionService(@Value("${token.decryption.cache-size:1000}") int cacheSize) {
+        this.decryptedTokens = boundedMap(cacheSize);
+        this.keyMaterialBySalt = boundedMap(cacheSize);
+    }
+    
     /**
-     * Försöker dekryptera en krypterad token från frontend
+     * Försöker dekryptera en krypterad token från frontend.
+     * Frontend skickar samma krypterade token under hela sessionen, så resultatet cachas
+     * på en hash av chiffertexten tills JWT-tokenens utgångstid har passerat.
      * @param encryptedToken den krypterade tokenen
      * @return den dekrypterade tokenen eller null om det inte gick att dekryptera
      */
@@ -30,6 +62,31 @@ public class TokenDecryptionService {
             return null;
         }
         
+        String cacheKey = sha256(encryptedToken);
+        long now = System.currentTimeMillis();
+        synchronized (decryptedTokens) {
+            DecryptedToken cached = decryptedTokens.get(cacheKey);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    return cached.token;
+                }
+                decryptedTokens.remove(cacheKey);
+            }
+        }
+        
+        String decryptedString = decrypt(encryptedToken);
+        if (decryptedString != null) {
+            long expiresAt = Math.min(expirationOf(decryptedString), now + maxTtlSeconds * 1000);
+            if (expiresAt > now) {
+                synchronized (decryptedTokens) {
+                    decryptedTokens.put(cacheKey, new DecryptedToken(decryptedString, expiresAt));
+                }
+            }
+        }
+        return decryptedString;
+    }
+    
+    private String decrypt(String encryptedToken) {
         try {
             // CryptoJS.AES dekryptering
             // Detta matchar krypteringen som används i frontend i secureStorage.js
@@ -40,24 +97,14 @@ public class TokenDecryptionService {
             byte[] salt = new byte[8];
             System.arraycopy(cipherData, 8, salt, 0, 8);
             
-            // Generera nyckel och IV
-            byte[] keyAndIv = getKeyAndIV(secretKey.getBytes(StandardCharsets.UTF_8), salt);
-            byte[] key = new byte[32]; // 256 bit nyckel
-            byte[] iv = new byte[16];  // 128 bit IV
-            System.arraycopy(keyAndIv, 0, key, 0, key.length);
-            System.arraycopy(keyAndIv, key.length, iv, 0, iv.length);
+            // Nyckel och IV härleds bara en gång per salt
+            KeyMaterial keyMaterial = getKeyMaterial(salt);
             
-            // Skapa AES-chiffer
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key, "AES");
-            IvParameterSpec ivParameterSpec = new IvParameterSpec(iv);
-            
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, ivParameterSpec);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, keyMaterial.key, keyMaterial.iv);
             
             // Dekryptera data (hoppa över "Salted__" + salt)
-            byte[] encryptedBytes = new byte[cipherData.length - 16];
-            System.arraycopy(cipherData, 16, encryptedBytes, 0, encryptedBytes.length);
-            byte[] decrypted = cipher.doFinal(encryptedBytes);
+            byte[] decrypted = cipher.doFinal(cipherData, 16, cipherData.length - 16);
             
             // Konvertera resultatet till JSON
             String decryptedString = new String(decrypted, StandardCharsets.UTF_8);
@@ -75,6 +122,63 @@ public class TokenDecryptionService {
         }
     }
     
+    private KeyMaterial getKeyMaterial(byte[] salt) {
+        String saltKey = HexFormat.of().formatHex(salt);
+        synchronized (keyMaterialBySalt) {
+            KeyMaterial cached = keyMaterialBySalt.get(saltKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        // Generera nyckel och IV
+        byte[] keyAndIv = getKeyAndIV(secretKey.getBytes(StandardCharsets.UTF_8), salt);
+        KeyMaterial keyMaterial = new KeyMaterial(
+            new SecretKeySpec(keyAndIv, 0, 32, "AES"),   // 256 bit nyckel
+            new IvParameterSpec(keyAndIv, 32, 16));      // 128 bit IV
+        synchronized (keyMaterialBySalt) {
+            keyMaterialBySalt.put(saltKey, keyMaterial);
+        }
+        return keyMaterial;
+    }
+    
+    /**
+     * Läser utgångstiden (exp) ur JWT-tokenens payload utan att verifiera signaturen.
+     * Signaturen verifieras av JwtService, här behövs bara hur länge resultatet får cachas.
+     */
+    private long expirationOf(String jwt) {
+        try {
+            String[] parts = jwt.split("\\.");
+            if (parts.length < 2) {
+                return 0;
+            }
+            String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            Matcher matcher = EXP_PATTERN.matcher(payload);
+            return matcher.find() ? Long.parseLong(matcher.group(1)) * 1000 : 0;
+        } catch (Exception e) {
+            log.debug("Kunde inte läsa utgångstid från token: {}", e.getMessage());
+            return 0;
+        }
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algoritmen finns inte", e);
+        }
+    }
+    
+    private static <V> Map<String, V> boundedMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+    
     /**
      * Genererar nyckel och IV från salt och lösenord med OpenSSL EVP_BytesToKey
      * Detta matchar CryptoJS.AES implementationen
@@ -132,4 +236,24 @@ public class TokenDecryptionService {
         // CryptoJS.AES krypterade strängar börjar med "U2Fs" vilket är base64-kodad "Salted__"
         return token != null && token.startsWith("U2Fs");
     }
+    
+    private static class DecryptedToken {
+        private final String token;
+        private final long expiresAt;
+        
+        DecryptedToken(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    private static class KeyMaterial {
+        private final SecretKeySpec key;
+        private final IvParameterSpec iv;
+        
+        KeyMaterial(SecretKeySpec key, IvParameterSpec iv) {
+            this.key = key;
+            this.iv = iv;
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.dfrm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.dfrm.model.TranslationMemoryEntry;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Översättningsminne framför Google Translate. Identiska texter översätts bara en gång:
+ * resultatet sparas i Mongo och de senast använda hålls dessutom i minnet.
+ * Träffar i minnet eller i databasen går aldrig ut på nätet.
+ */
+@Service
+@Slf4j
+public class TranslationMemoryService {
+
+    // Målspråk för sparade språkdetekteringar
+    private static final String DETECTION = "detect";
+    private static final String ANY_LANGUAGE = "auto";
+
+    private final MongoTemplate mongoTemplate;
+    private final MetricsService metricsService;
+    private final Map<String, String> recent;
+
+    public TranslationMemoryService(
+            MongoTemplate mongoTemplate,
+            MetricsService metricsService,
+            @Value("${dfrm.translation.memory.max-size:2000}") int maxSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.metricsService = metricsService;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        metricsService.registerGauge("translation.memory.size", () -> {
+            synchronized (recent) {
+                return recent.size();
+            }
+        });
+        metricsService.registerGauge("translation.memory.hitRate", () -> {
+            long hits = metricsService.count("translation.memory.hits.local")
+                    + metricsService.count("translation.memory.hits.mongo");
+            long total = hits + metricsService.count("translation.memory.misses");
+            return total == 0 ? 0.0 : (double) hits / total;
+        });
+    }
+
+    /**
+     * Slår upp en tidigare översättning
+     *
+     * @return Översättningen, tomt om texten inte har översatts förut
+     */
+    public Optional<String> findTranslation(String text, String sourceLanguage, String targetLanguage) {
+        return find(key(text, sourceLanguage, targetLanguage));
+    }
+
+    public void saveTranslation(String text, String sourceLanguage, String targetLanguage, String translation) {
+        save(key(text, sourceLanguage, targetLanguage), sourceLanguage, targetLanguage, translation);
+    }
+
+    /**
+     * Slår upp en tidigare språkdetektering
+     *
+     * @return Språkkoden, tomt om texten inte har detekterats förut
+     */
+    public Optional<String> findDetectedLanguage(String text) {
+        return find(key(text, ANY_LANGUAGE, DETECTION));
+    }
+
+    public void saveDetectedLanguage(String text, String languageCode) {
+        save(key(text, ANY_LANGUAGE, DETECTION), ANY_LANGUAGE, DETECTION, languageCode);
+    }
+
+    private Optional<String> find(String key) {
+        synchronized (recent) {
+            String cached = recent.get(key);
+            if (cached != null) {
+                metricsService.increment("translation.memory.hits.local");
+                return Optional.of(cached);
+            }
+        }
+
+        try {
+            TranslationMemoryEntry entry = mongoTemplate.findById(key, TranslationMemoryEntry.class);
+            if (entry != null && entry.getResult() != null) {
+                metricsService.increment("translation.memory.hits.mongo");
+                remember(key, entry.getResult());
+                return Optional.of(entry.getResult());
+            }
+        } catch (Exception e) {
+            // Minnet är en optimering, vid databasfel översätts texten som vanligt
+            log.warn("Kunde inte läsa översättningsminnet: {}", e.getMessage());
+        }
+
+        metricsService.increment("translation.memory.misses");
+        return Optional.empty();
+    }
+
+    private void save(String key, String sourceLanguage, String targetLanguage, String result) {
+        if (result == null || result.isEmpty()) {
+            return;
+        }
+        remember(key, result);
+        try {
+            mongoTemplate.save(new TranslationMemoryEntry(key, sourceLanguage, targetLanguage, result, LocalDateTime.now()));
+        } catch (Exception e) {
+            log.warn("Kunde inte spara i översättningsminnet: {}", e.getMessage());
+        }
+    }
+
+    private void remember(String key, String result) {
+        synchronized (recent) {
+            recent.put(key, result);
+        }
+    }
+
+    private static String key(String text, String sourceLanguage, String targetLanguage) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String hash = HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+            return hash + ":" + sourceLanguage + ":" + targetLanguage;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algoritmen finns inte", e);
+        }
+    }
+}
@@ -12,6 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TranslationService {
     
+    private final LanguageDetector languageDetector;
+    
     // Denna klass kan utökas för att hantera olika typer av översättning
     // För närvarande används den bara som en placeholder
     
@@ -44,7 +46,8 @@ public class TranslationService {
     public Language detectLanguage(String text) {
         log.info("TranslationService: Detecting language for text: {}", 
             text.length() > 50 ? text.substring(0, 50) + "..." : text);
-        // Under utveckling antar vi att all text är på svenska
-        return Language.SV;
+        // Lokal detektering, svenska om texten är för kort eller språket osäkert
+        Language detected = languageDetector.detect(text);
+        return detected != null ? detected : Language.SV;
     }
 } 
\ No newline at end of file
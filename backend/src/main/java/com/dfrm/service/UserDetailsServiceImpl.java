@@ -23,6 +23,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         com.dfrm.model.User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Användare hittades inte: " + email));
 
+        return toUserDetails(user);
+    }
+
+    /**
+     * Bygger Spring Securitys UserDetails från en användare
+     */
+    public static UserDetails toUserDetails(com.dfrm.model.User user) {
         return new org.springframework.security.core.userdetails.User(
                 user.getEmail(),
                 user.getPassword(),
@@ -17,6 +17,7 @@ import lombok.RequiredArgsConstructor;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCacheService principalCacheService;
 
     public User createUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
@@ -46,6 +47,7 @@ public class UserService {
 
     public void deleteUser(String id) {
         userRepository.deleteById(id);
+        principalCacheService.evictUser(id);
     }
 
     public User updateUser(User user) {
@@ -57,7 +59,11 @@ public class UserService {
         // Sätt updatedAt
         user.setUpdatedAt(LocalDateTime.now());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        
+        // Roll, aktiv-status, lösenord eller e-post kan ha ändrats
+        principalCacheService.evictUser(savedUser.getId());
+        return savedUser;
     }
 
     public boolean existsByEmail(String email) {
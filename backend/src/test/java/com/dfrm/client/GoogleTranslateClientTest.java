@@ -0,0 +1,125 @@
+package com.dfrm.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dfrm.service.LanguageDetector;
+import com.dfrm.service.MetricsService;
+import com.dfrm.service.TranslationMemoryService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Översättning till flera språk mot en lokal stub av Google Translate med fast svarstid.
+ * Stubben räknar hur många anrop som pågår samtidigt, så att parallelliseringen i
+ * translateToMultipleLanguages kan kontrolleras utan att mäta väggklockstid.
+ */
+class GoogleTranslateClientTest {
+
+    private static final long STUB_LATENCY_MS = 150;
+    private static final List<String> TARGETS = List.of("en", "pl", "uk");
+    private static final Pattern TARGET = Pattern.compile("\"target\"\\s*:\\s*\"(\\w+)\"");
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    // Stubben svarar först när så många anrop har kommit in, eller efter en sekund
+    private volatile CountDownLatch arrivals = new CountDownLatch(0);
+    private final TranslationMemoryService translationMemory = mock(TranslationMemoryService.class);
+    private HttpServer stub;
+    private GoogleTranslateClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/language/translate/v2", this::translate);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.start();
+
+        when(translationMemory.findTranslation(anyString(), anyString(), anyString())).thenReturn(Optional.empty());
+        client = new GoogleTranslateClient(translationMemory, new LanguageDetector(0.5), new MetricsService());
+        ReflectionTestUtils.setField(client, "apiKey", "test");
+        ReflectionTestUtils.setField(client, "baseUrl",
+                "http://127.0.0.1:" + stub.getAddress().getPort() + "/language/translate/v2");
+        ReflectionTestUtils.setField(client, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(client, "maxInFlight", 8);
+        ReflectionTestUtils.setField(client, "failureThreshold", 5);
+        ReflectionTestUtils.setField(client, "openSeconds", 30L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        stub.stop(0);
+    }
+
+    @Test
+    void translatesTargetLanguagesConcurrently() {
+        for (String target : TARGETS) {
+            client.translate("Det läcker från kranen", "sv", target);
+        }
+        // Ett språk i taget har aldrig mer än ett anrop ute mot stubben
+        assertThat(peakInFlight.get()).isEqualTo(1);
+        peakInFlight.set(0);
+
+        arrivals = new CountDownLatch(TARGETS.size());
+        Map<String, String> translations = client.translateToMultipleLanguages("Det läcker från kranen", "sv", TARGETS);
+
+        assertThat(requests.get()).isEqualTo(2 * TARGETS.size());
+        assertThat(translations).containsEntry("sv", "Det läcker från kranen")
+                .containsEntry("en", "[en] Det läcker från kranen")
+                .containsEntry("pl", "[pl] Det läcker från kranen")
+                .containsEntry("uk", "[uk] Det läcker från kranen");
+        // Anrop i följd skulle var för sig vänta ut spärren och aldrig vara ute samtidigt
+        assertThat(peakInFlight.get()).as("samtidiga anrop mot stubben").isEqualTo(TARGETS.size());
+    }
+
+    private void translate(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher target = TARGET.matcher(body);
+        String language = target.find() ? target.group(1) : "?";
+        arrivals.countDown();
+        try {
+            arrivals.await(1, TimeUnit.SECONDS);
+            Thread.sleep(STUB_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        byte[] response = ("{\"data\":{\"translations\":[{\"translatedText\":\"[" + language
+                + "] Det läcker från kranen\"}]}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
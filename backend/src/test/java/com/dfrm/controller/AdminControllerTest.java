@@ -0,0 +1,73 @@
+package com.dfrm.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.dfrm.service.MetricsService;
+import com.dfrm.service.QueryPlanService;
+
+/**
+ * Mätvärdena under /api/admin/metrics ska bara visas för administratörer,
+ * med samma behörighet som frågeplanerna.
+ */
+@SpringJUnitConfig(AdminControllerTest.Config.class)
+class AdminControllerTest {
+
+    @Configuration
+    @EnableMethodSecurity
+    static class Config {
+
+        @Bean
+        MetricsService metricsService() {
+            return new MetricsService();
+        }
+
+        @Bean
+        AdminController adminController(MetricsService metricsService) {
+            return new AdminController(mock(QueryPlanService.class), metricsService);
+        }
+    }
+
+    @Autowired
+    private AdminController adminController;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    void returnsMetricsSnapshotToAdmin() {
+        metricsService.increment("translate.memory.hits", 3);
+        metricsService.registerGauge("translate.circuit.state", () -> 0);
+
+        Map<String, Object> metrics = adminController.getMetrics().getBody();
+
+        assertThat(metrics).containsEntry("translate.memory.hits", 3L)
+                .containsEntry("translate.circuit.state", 0);
+    }
+
+    @Test
+    @WithMockUser(authorities = "SUPERADMIN")
+    void returnsMetricsToSuperadmin() {
+        assertThat(adminController.getMetrics().getStatusCode().is2xxSuccessful()).isTrue();
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    void deniesMetricsToOtherUsers() {
+        assertThatThrownBy(() -> adminController.getMetrics()).isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> adminController.getQueryPlans()).isInstanceOf(AccessDeniedException.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.dfrm.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Lägenheten lagras som apartmentId men ska fortfarande gå att läsa och skicka som
+ * "apartment", som ett ID eller ett objekt med id.
+ */
+class TaskTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+
+    @Test
+    void serializesApartmentIdAlsoAsApartment() {
+        Task task = Task.builder().id("task-1").apartmentId("apartment-1").build();
+
+        JsonNode json = objectMapper.valueToTree(task);
+
+        assertThat(json.get("apartment").asText()).isEqualTo("apartment-1");
+        assertThat(json.get("apartmentId").asText()).isEqualTo("apartment-1");
+    }
+
+    @Test
+    void acceptsApartmentAsIdOrObject() throws Exception {
+        assertThat(objectMapper.readValue("{\"apartment\":\"apartment-1\"}", Task.class).getApartmentId())
+                .isEqualTo("apartment-1");
+        assertThat(objectMapper.readValue("{\"apartment\":{\"id\":\"apartment-2\",\"street\":\"Storgatan\"}}",
+                Task.class).getApartmentId()).isEqualTo("apartment-2");
+        assertThat(objectMapper.readValue("{\"apartmentId\":\"apartment-3\",\"apartment\":null}", Task.class)
+                .getApartmentId()).isEqualTo("apartment-3");
+    }
+
+    @Test
+    void storesOnlyApartmentId() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        Document document = new Document();
+
+        converter.write(Task.builder().apartmentId("apartment-1").build(), document);
+
+        assertThat(document).containsEntry("apartmentId", "apartment-1").doesNotContainKey("apartment");
+    }
+}
@@ -0,0 +1,184 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ErrorHandler;
+
+import com.dfrm.model.ChangeStreamToken;
+import com.dfrm.model.EntityChangeEvent;
+import com.dfrm.model.Task;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/**
+ * En avbruten bevakning ska registreras om från instansens egen token och bara den egna
+ * kollektionens token rensas. Token sparas samlat, inte vid varje ändring.
+ */
+class ChangeStreamInvalidationServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor();
+    private ChangeStreamInvalidationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChangeStreamInvalidationService(mongoTemplate, eventPublisher, new MetricsService());
+        ReflectionTestUtils.setField(service, "container", container);
+        ReflectionTestUtils.setField(service, "retryExecutor", retryExecutor);
+        ReflectionTestUtils.setField(service, "running", true);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 10L);
+        ReflectionTestUtils.setField(service, "instanceId", "node-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryExecutor.shutdownNow();
+    }
+
+    @Test
+    void findsServerErrorBehindSpringTranslation() {
+        MongoCommandException historyLost = commandError(286);
+        RuntimeException translated = new UncategorizedMongoDbException("history lost", historyLost);
+
+        assertThat(ChangeStreamInvalidationService.findServerError(translated)).isSameAs(historyLost);
+        assertThat(ChangeStreamInvalidationService.findServerError(new IllegalStateException("x"))).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void historyLostClearsOnlyOwnTokenAndResubscribes() {
+        Subscription dead = inactiveSubscription();
+        Subscription fresh = mock(Subscription.class);
+        ArgumentCaptor<ErrorHandler> handler = ArgumentCaptor.forClass(ErrorHandler.class);
+        when(container.register(any(ChangeStreamRequest.class), eq(Document.class), handler.capture()))
+                .thenReturn(dead, fresh);
+
+        ReflectionTestUtils.invokeMethod(service, "register", "tasks", Task.class);
+        handler.getValue().handleError(new UncategorizedMongoDbException("history lost", commandError(286)));
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(ChangeStreamToken.class));
+        assertThat(removed.getValue().getQueryObject()).isEqualTo(new Document("_id", "node-1:tasks"));
+
+        verify(container, timeout(2000)).remove(dead);
+        verify(container, timeout(2000).times(2))
+                .register(any(ChangeStreamRequest.class), eq(Document.class), any(ErrorHandler.class));
+        ArgumentCaptor<EntityChangeEvent> event = ArgumentCaptor.forClass(EntityChangeEvent.class);
+        verify(eventPublisher, timeout(2000)).publishEvent(event.capture());
+        assertThat(event.getValue().isCollectionWide()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listenerErrorKeepsActiveSubscription() throws Exception {
+        Subscription active = mock(Subscription.class);
+        when(active.isActive()).thenReturn(true);
+        ArgumentCaptor<ErrorHandler> handler = ArgumentCaptor.forClass(ErrorHandler.class);
+        when(container.register(any(ChangeStreamRequest.class), eq(Document.class), handler.capture()))
+                .thenReturn(active);
+
+        ReflectionTestUtils.invokeMethod(service, "register", "tasks", Task.class);
+        handler.getValue().handleError(new DataAccessResourceFailureException("listener"));
+        Thread.sleep(100);
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(ChangeStreamToken.class));
+        verify(container, never()).remove(any(Subscription.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resubscribesFromLastProcessedTokenInMemory() {
+        Subscription dead = inactiveSubscription();
+        ArgumentCaptor<ChangeStreamRequest<Document>> requests = ArgumentCaptor.forClass(ChangeStreamRequest.class);
+        ArgumentCaptor<ErrorHandler> handler = ArgumentCaptor.forClass(ErrorHandler.class);
+        when(container.register(requests.capture(), eq(Document.class), handler.capture()))
+                .thenReturn(dead, mock(Subscription.class));
+
+        ReflectionTestUtils.invokeMethod(service, "register", "tasks", Task.class);
+        BsonDocument token = new BsonDocument("_data", new BsonString("8263A1"));
+        ReflectionTestUtils.invokeMethod(service, "onChange", "tasks", Task.class, change(token));
+        handler.getValue().handleError(new DataAccessResourceFailureException("network"));
+
+        verify(container, timeout(2000).times(2))
+                .register(any(ChangeStreamRequest.class), eq(Document.class), any(ErrorHandler.class));
+        List<ChangeStreamRequest<Document>> registered = requests.getAllValues();
+        assertThat(registered.get(1).getRequestOptions().getChangeStreamOptions().getResumeToken()).contains(token);
+        // Bara första registreringen läser instansens sparade token
+        verify(mongoTemplate, times(1)).findById("node-1:tasks", ChangeStreamToken.class);
+    }
+
+    @Test
+    void savesChangedTokensPerInstanceInBatches() {
+        BsonDocument first = new BsonDocument("_data", new BsonString("01"));
+        BsonDocument second = new BsonDocument("_data", new BsonString("02"));
+        ReflectionTestUtils.invokeMethod(service, "onChange", "tasks", Task.class, change(first));
+        ReflectionTestUtils.invokeMethod(service, "onChange", "tasks", Task.class, change(second));
+
+        verify(mongoTemplate, never()).save(any(ChangeStreamToken.class));
+
+        service.saveResumeTokens();
+        service.saveResumeTokens();
+
+        ArgumentCaptor<ChangeStreamToken> saved = ArgumentCaptor.forClass(ChangeStreamToken.class);
+        verify(mongoTemplate).save(saved.capture());
+        assertThat(saved.getValue().getId()).isEqualTo("node-1:tasks");
+        assertThat(saved.getValue().getInstanceId()).isEqualTo("node-1");
+        assertThat(saved.getValue().getToken()).isEqualTo(second.toJson());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> change(BsonDocument resumeToken) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(OperationType.UPDATE);
+        when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonString("task-1")));
+        when(change.getResumeToken()).thenReturn(resumeToken);
+        return change;
+    }
+
+    private static Subscription inactiveSubscription() {
+        Subscription subscription = mock(Subscription.class);
+        when(subscription.isActive()).thenReturn(false);
+        return subscription;
+    }
+
+    private static MongoCommandException commandError(int code) {
+        BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(code))
+                .append("errmsg", new BsonString("resume point no longer in oplog"));
+        return new MongoCommandException(response, new ServerAddress());
+    }
+}
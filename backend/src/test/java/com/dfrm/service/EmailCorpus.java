@@ -0,0 +1,107 @@
+package com.dfrm.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fast uppsättning felanmälningar och intresseanmälningar, i formen de har efter
+ * HTML-rensning, med de fält som ska extraheras ur dem.
+ */
+final class EmailCorpus {
+
+    record Sample(String content, Map<String, String> expected) {
+    }
+
+    static final List<Sample> FAULT_REPORTS = List.of(
+        new Sample("""
+                Namn: Anna Andersson
+                E-post: anna.andersson@example.com
+                Telefon: 070-123 45 67
+                Adress: Storgatan 12
+                Lägenhetsnummer: 1102
+                Meddelande: Det droppar från kranen i köket.
+                Den har läckt sedan i går.
+                ---
+                Skickat från hemsidan""",
+            fields("name", "Anna Andersson",
+                "email", "anna.andersson@example.com",
+                "phone", "070-123 45 67",
+                "apartment", "1102",
+                "description", "Det droppar från kranen i köket.\nDen har läckt sedan i går.")),
+        // Formuläret på hemsidan skickar ibland allt på en rad
+        new Sample("Testa Testsson Adress: Testagatan 1 Lägenhetsnummer: 1001 "
+                + "Meddelande: Dörren till förrådet går inte att låsa. --- Skickat",
+            fields("name", "Testa Testsson",
+                "description", "Dörren till förrådet går inte att låsa.",
+                "address", "Testagatan 1",
+                "apartment", "1001")),
+        new Sample("""
+                Från: Erik Berg
+                Hej! Elementet i sovrummet är kallt. Jag bor i lgh 204.
+                Nås på 0739876543 eller erik.berg@example.se
+                Mvh Erik""",
+            fields("name", "Erik Berg",
+                "email", "erik.berg@example.se",
+                "phone", "0739876543",
+                "apartment", "204")),
+        new Sample("""
+                Name: John Smith
+                Email: john.smith@example.com
+                Phone: 070-555 12 34
+                Apartment: 3B
+                Meddelande: The washing machine is broken
+                ---""",
+            fields("name", "John Smith",
+                "email", "john.smith@example.com",
+                "phone", "070-555 12 34",
+                "apartment", "3B",
+                "description", "The washing machine is broken")),
+        new Sample("Hej, lampan i trapphuset är trasig vid nr. 17. Ring mig på 08-555 123 45.",
+            fields("phone", "08-555 123 45",
+                "apartment", "17")));
+
+    static final List<Sample> INTEREST_REQUESTS = List.of(
+        new Sample("""
+                Namn: Maria Nilsson
+                E-post: maria.nilsson@example.com
+                Telefon: 073-111 22 33
+                Lägenhet: Storgatan 12, lgh 1203
+                Meddelande: Jag är intresserad av lägenheten och vill gärna komma på visning.
+                ---
+                Skickat via hemsidan""",
+            fields("name", "Maria Nilsson",
+                "apartment", "Storgatan 12, lgh 1203",
+                "phone", "073-111 22 33",
+                "email", "maria.nilsson@example.com",
+                "message", "Jag är intresserad av lägenheten och vill gärna komma på visning.")),
+        new Sample("""
+                Name: Oleksandr Kovalenko
+                Email: oleksandr@example.org
+                Phone: +46701234567
+                Apartment: Parkvägen 3
+                Message: Hello, I would like to see the apartment this week.
+                ---""",
+            fields("name", "Oleksandr Kovalenko",
+                "apartment", "Parkvägen 3",
+                "phone", "+46701234567",
+                "email", "oleksandr@example.org",
+                "message", "Hello, I would like to see the apartment this week.")),
+        // Fritext utan formulärfält, e-posten hittas var som helst i texten
+        new Sample("""
+                Hej! Jag heter Sara och vill anmäla intresse. Nå mig på sara.k@example.se
+                Meddelande: Finns balkong?""",
+            fields("email", "sara.k@example.se",
+                "message", "Finns balkong?")));
+
+    private EmailCorpus() {
+    }
+
+    private static Map<String, String> fields(String... keysAndValues) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            fields.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return fields;
+    }
+}
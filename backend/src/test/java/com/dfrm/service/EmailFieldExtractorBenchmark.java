@@ -0,0 +1,64 @@
+package com.dfrm.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Mikrobenchmark för fältextraktionen över korpusen i {@link EmailCorpus}.
+ * Körs inte av testerna. Efter {@code mvn test-compile} och
+ * {@code mvn dependency:build-classpath -Dmdep.outputFile=cp.txt} startas den med
+ * {@code java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main EmailFieldExtractorBenchmark},
+ * lägg till {@code -prof gc} för allokering per anrop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailFieldExtractorBenchmark {
+
+    private final List<String> faultReports = EmailCorpus.FAULT_REPORTS.stream()
+        .map(EmailCorpus.Sample::content)
+        .toList();
+    private final List<String> interestRequests = EmailCorpus.INTEREST_REQUESTS.stream()
+        .map(EmailCorpus.Sample::content)
+        .toList();
+
+    @Benchmark
+    public void faultReports(Blackhole blackhole) {
+        for (String content : faultReports) {
+            Map<String, String> fields = EmailListener.FIELDS.extract(content);
+            blackhole.consume(fields);
+        }
+    }
+
+    @Benchmark
+    public void interestRequests(Blackhole blackhole) {
+        for (String content : interestRequests) {
+            Map<String, String> fields = InterestEmailListener.FIELDS.extract(content);
+            blackhole.consume(fields);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(EmailFieldExtractorBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Regeltabellerna för felanmälningar och intresseanmälningar mot en fast korpus,
+ * samt extraktorns regler för prioritet, sidovärden och blockfält.
+ */
+class EmailFieldExtractorTest {
+
+    static Stream<EmailCorpus.Sample> faultReports() {
+        return EmailCorpus.FAULT_REPORTS.stream();
+    }
+
+    static Stream<EmailCorpus.Sample> interestRequests() {
+        return EmailCorpus.INTEREST_REQUESTS.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("faultReports")
+    void extractsFaultReportFields(EmailCorpus.Sample sample) {
+        assertThat(EmailListener.FIELDS.extract(sample.content())).containsExactlyEntriesOf(sample.expected());
+    }
+
+    @ParameterizedTest
+    @MethodSource("interestRequests")
+    void extractsInterestFields(EmailCorpus.Sample sample) {
+        assertThat(InterestEmailListener.FIELDS.extract(sample.content())).containsExactlyEntriesOf(sample.expected());
+    }
+
+    @Test
+    void earlierRuleWinsOverEarlierLine() {
+        EmailFieldExtractor extractor = EmailFieldExtractor.builder()
+            .field("value",
+                EmailFieldExtractor.when(line -> line.startsWithAny("prio:"), EmailFieldExtractor.Line::afterColon),
+                EmailFieldExtractor.find(Pattern.compile("\\d+")))
+            .build();
+
+        assertThat(extractor.extract("nummer 1\nPrio: hög\nnummer 2")).containsExactly(Map.entry("value", "hög"));
+        assertThat(extractor.extract("nummer 1\nnummer 2")).containsExactly(Map.entry("value", "1"));
+    }
+
+    @Test
+    void extrasOnlyFillFieldsWithoutOwnMatch() {
+        EmailFieldExtractor extractor = EmailFieldExtractor.builder()
+            .field("name", line -> line.lower().startsWith("namn")
+                ? EmailFieldExtractor.Match.of("Anna", Map.of("city", "Malmö", "phone", "000"))
+                : null)
+            .field("phone", EmailFieldExtractor.find(Pattern.compile("07\\d+")))
+            .build();
+
+        assertThat(extractor.extract("namn\n0701234567"))
+            .containsExactly(Map.entry("name", "Anna"), Map.entry("phone", "0701234567"), Map.entry("city", "Malmö"));
+    }
+
+    @Test
+    void blockRunsFromMarkerToSeparator() {
+        EmailFieldExtractor extractor = EmailFieldExtractor.builder()
+            .block("message", "meddelande:", "message:")
+            .build();
+
+        assertThat(extractor.extract("Rubrik\nMESSAGE: första\nandra\n---\ntredje"))
+            .containsExactly(Map.entry("message", "första\nandra"));
+        assertThat(extractor.extract("Meddelande: allt på en rad --- signatur"))
+            .containsExactly(Map.entry("message", "allt på en rad"));
+        assertThat(extractor.extract("Meddelande:\n---")).isEmpty();
+    }
+}
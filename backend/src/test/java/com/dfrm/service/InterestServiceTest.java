@@ -0,0 +1,104 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dfrm.model.Interest;
+import com.dfrm.model.Showing;
+import com.dfrm.repository.InterestRepository;
+import com.dfrm.repository.ShowingRepository;
+import com.dfrm.repository.TaskRepository;
+
+/**
+ * Visningsdata för intresseanmälningar ska hämtas med ett konstant antal frågor
+ * och alltid koppla samma visning till en intresseanmälan.
+ */
+class InterestServiceTest {
+
+    private final InterestRepository interestRepository = mock(InterestRepository.class);
+    private final ShowingService showingService = mock(ShowingService.class);
+
+    private InterestService createService() {
+        InterestService service = new InterestService(interestRepository, mock(InterestEmailListener.class),
+                mock(TaskRepository.class), mock(EmailService.class), mock(UserService.class),
+                mock(SecurityTokenService.class), mock(KeysetPaginationService.class), mock(MongoTemplate.class));
+        ReflectionTestUtils.setField(service, "showingService", showingService);
+        return service;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 1000})
+    void loadsShowingsWithOneQueryRegardlessOfInterestCount(int interestCount) {
+        List<Interest> interests = new ArrayList<>();
+        List<Showing> showings = new ArrayList<>();
+        for (int i = 0; i < interestCount; i++) {
+            Interest interest = Interest.builder().id("interest-" + i).build();
+            interests.add(interest);
+            showings.add(showing("showing-" + i, interest.getId(), LocalDateTime.now().plusDays(i)));
+        }
+        when(interestRepository.findAll()).thenReturn(interests);
+        when(showingService.getShowingsByInterestIds(anyCollection())).thenReturn(showings);
+
+        List<Interest> result = createService().getAllInterestsWithShowings();
+
+        // En fråga för intresseanmälningarna och en för visningarna, oavsett antal
+        verify(interestRepository, times(1)).findAll();
+        verify(showingService, times(1)).getShowingsByInterestIds(anyCollection());
+        verify(showingService, times(0)).getShowingsByInterestId(any());
+        assertThat(result).allSatisfy(interest ->
+                assertThat(interest.getShowing().getRelatedInterestId()).isEqualTo(interest.getId()));
+    }
+
+    @Test
+    void attachesFirstShowingInQueryOrder() {
+        Interest interest = Interest.builder().id("interest-1").build();
+        when(interestRepository.findAll()).thenReturn(List.of(interest));
+        when(showingService.getShowingsByInterestIds(anyCollection())).thenReturn(List.of(
+                showing("early", "interest-1", LocalDateTime.of(2026, 1, 1, 10, 0)),
+                showing("late", "interest-1", LocalDateTime.of(2026, 2, 1, 10, 0))));
+
+        List<Interest> result = createService().getAllInterestsWithShowings();
+
+        assertThat(result.get(0).getShowing().getId()).isEqualTo("early");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void showingQueryIsSortedByTimeThenId() {
+        ShowingRepository showingRepository = mock(ShowingRepository.class);
+        ShowingService realShowingService = new ShowingService(showingRepository, interestRepository,
+                mock(KeysetPaginationService.class));
+        ArgumentCaptor<Sort> sort = ArgumentCaptor.forClass(Sort.class);
+        when(showingRepository.findByRelatedInterestIdIn(anyCollection(), sort.capture())).thenReturn(List.of());
+
+        realShowingService.getShowingsByInterestIds(List.of("interest-1", "interest-2"));
+
+        assertThat(sort.getValue()).containsExactly(
+                Sort.Order.asc("dateTime"), Sort.Order.asc("createdAt"), Sort.Order.asc("id"));
+    }
+
+    private static Showing showing(String id, String interestId, LocalDateTime dateTime) {
+        Showing showing = new Showing();
+        showing.setId(id);
+        showing.setRelatedInterestId(interestId);
+        showing.setDateTime(dateTime);
+        return showing;
+    }
+}
@@ -0,0 +1,106 @@
+package com.dfrm.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dfrm.model.TokenClaims;
+import com.dfrm.model.User;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Mikrobenchmark för autentiseringens CPU-kostnad per anrop. Jämför hur filtret tolkade
+ * token innan (extractUsername, validateToken och extractAllClaims för rollen, med nyckel
+ * och parser byggda vid varje tolkning) med en tolkning via parseToken.
+ * Körs inte av testerna, starta den som {@link EmailFieldExtractorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmarknyckel-som-ar-minst-trettiotva-tecken";
+
+    private JwtService jwtService;
+    private String token;
+    private String username;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+
+        User user = new User();
+        user.setId("user-1");
+        user.setEmail("anna@example.com");
+        user.setRole("ADMIN");
+        username = user.getEmail();
+        token = jwtService.generateToken(user);
+    }
+
+    /**
+     * Som filtret gjorde innan: fyra tolkningar med ny nyckel och parser för varje
+     */
+    @Benchmark
+    public void perRequestBefore(Blackhole blackhole) {
+        String extractedUsername = parseWithNewParser(token).getSubject();
+        boolean valid = parseWithNewParser(token).getSubject().equals(username)
+                && !parseWithNewParser(token).getExpiration().before(new Date());
+        blackhole.consume(extractedUsername);
+        blackhole.consume(valid);
+        blackhole.consume(parseWithNewParser(token).get("role"));
+    }
+
+    /**
+     * Samma anrop mot tjänsten, som nu återanvänder nyckel och parser men tolkar fyra gånger
+     */
+    @Benchmark
+    public void perRequestCachedParser(Blackhole blackhole) {
+        blackhole.consume(jwtService.extractUsername(token));
+        blackhole.consume(jwtService.validateToken(token, username));
+        blackhole.consume(jwtService.extractAllClaims(token).get("role"));
+    }
+
+    @Benchmark
+    public void perRequestParseToken(Blackhole blackhole) {
+        TokenClaims claims = jwtService.parseToken(token);
+        blackhole.consume(claims.isValidFor(username));
+        blackhole.consume(claims.getRole());
+    }
+
+    private static Claims parseWithNewParser(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(JwtServiceBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dfrm.model.TokenClaims;
+import com.dfrm.model.User;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Den cachade nyckeln och parsern ska godta token som signerats på samma sätt som
+ * innan de cachades, och fortfarande avvisa utgångna och manipulerade token.
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "testnyckel-som-ar-minst-trettiotva-tecken-lang";
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+    }
+
+    @Test
+    void acceptsTokenSignedWithKeyBuiltPerCall() {
+        // Så skapades token innan nyckeln cachades: ny nyckel ur hemligheten vid varje anrop
+        String token = Jwts.builder()
+                .setClaims(Map.of("role", "ROLE_ADMIN", "userId", "user-1"))
+                .setSubject("anna@example.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+
+        TokenClaims claims = jwtService.parseToken(token);
+
+        assertThat(claims.getSubject()).isEqualTo("anna@example.com");
+        assertThat(claims.getRole()).isEqualTo("ROLE_ADMIN");
+        assertThat(claims.getUserId()).isEqualTo("user-1");
+        assertThat(claims.isValidFor("anna@example.com")).isTrue();
+    }
+
+    @Test
+    void reusesParserAcrossTokens() {
+        User user = new User();
+        user.setId("user-2");
+        user.setEmail("erik@example.com");
+        user.setRole("USER");
+
+        assertThat(jwtService.parseToken(jwtService.generateToken(user)).getRole()).isEqualTo("ROLE_USER");
+        Object parser = ReflectionTestUtils.getField(jwtService, "parser");
+        assertThat(jwtService.parseToken(jwtService.generateToken("erik@example.com")).getSubject())
+                .isEqualTo("erik@example.com");
+        assertThat(ReflectionTestUtils.getField(jwtService, "parser")).isSameAs(parser);
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        // Parsern cachas först med en giltig token
+        jwtService.parseToken(jwtService.generateToken("anna@example.com"));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String expired = jwtService.generateToken("anna@example.com");
+
+        assertThatThrownBy(() -> jwtService.parseToken(expired))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Token har gått ut");
+        assertThat(jwtService.validateToken(expired, "anna@example.com")).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        jwtService.parseToken(jwtService.generateToken("anna@example.com"));
+        String[] parts = jwtService.generateToken("anna@example.com").split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]))
+                .replace("anna@example.com", "admin@example.com");
+        String tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes())
+                + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtService.parseToken(tampered))
+                .isInstanceOf(SecurityException.class)
+                .hasMessage("Ogiltig tokensignatur");
+    }
+
+    @Test
+    void rejectsTokenSignedWithOtherKey() {
+        String token = Jwts.builder()
+                .setSubject("anna@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("en-helt-annan-nyckel-med-trettiotva-tecken".getBytes()),
+                        SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(SecurityException.class);
+    }
+}
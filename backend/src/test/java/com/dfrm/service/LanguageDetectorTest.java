@@ -0,0 +1,124 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.dfrm.model.Language;
+
+/**
+ * Språkdetekteringen mot en märkt korpus med hyresgästmeddelanden på svenska, engelska,
+ * polska, ukrainska och ryska, samt kontroll av att detekteringen inte allokerar.
+ */
+class LanguageDetectorTest {
+
+    // Andel av varje språks exempel som måste detekteras rätt, resten får ge null
+    private static final double MIN_ACCURACY = 0.9;
+
+    private static final List<String[]> CORPUS = new ArrayList<>();
+    private final LanguageDetector detector = new LanguageDetector(0.5);
+
+    @BeforeAll
+    static void loadCorpus() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                LanguageDetectorTest.class.getResourceAsStream("/language-detection/corpus.tsv"),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    CORPUS.add(line.split("\t", 2));
+                }
+            }
+        }
+    }
+
+    @Test
+    void detectsCorpusLanguagesAboveAccuracyFloor() {
+        Map<String, int[]> results = new LinkedHashMap<>(); // Rätt, fel och null per språk
+        for (String[] example : CORPUS) {
+            Language detected = detector.detect(example[1]);
+            int[] counts = results.computeIfAbsent(example[0], code -> new int[3]);
+            if (detected == null) {
+                counts[2]++;
+            } else if (detected.getCode().equals(example[0])) {
+                counts[0]++;
+            } else {
+                counts[1]++;
+            }
+        }
+
+        assertThat(results).containsOnlyKeys("sv", "en", "pl", "uk", "ru");
+        results.forEach((code, counts) -> {
+            int total = counts[0] + counts[1] + counts[2];
+            // Ett osäkert resultat går vidare till Google, ett felaktigt språk gör det inte
+            assertThat(counts[1]).as("felaktigt detekterade för %s", code).isZero();
+            if (!code.equals("ru")) {
+                assertThat((double) counts[0] / total).as("träffsäkerhet för %s", code)
+                        .isGreaterThanOrEqualTo(MIN_ACCURACY);
+            }
+        });
+        // Ryska saknas i profilerna och ska lämnas till Google istället för att tas för ukrainska
+        assertThat(results.get("ru")[0]).as("detekterade som ryska").isZero();
+    }
+
+    // Texter med bara enbokstavsord får poäng enbart från trigram som "_w_" och "_a_"
+    @ParameterizedTest
+    @CsvSource({
+        "w z w z w z, PL",
+        "a a a a a a, EN",
+    })
+    void scoresSingleLetterWords(String text, Language expected) {
+        assertThat(detector.detect(text)).isEqualTo(expected);
+    }
+
+    @Test
+    void returnsNullForShortOrEmptyText() {
+        assertThat(detector.detect(null)).isNull();
+        assertThat(detector.detect("")).isNull();
+        assertThat(detector.detect("ok")).isNull();
+        assertThat(detector.detect("12345 !!!")).isNull();
+    }
+
+    @Test
+    void detectsWithoutAllocatingAndWithinThroughputBudget() {
+        String[] texts = CORPUS.stream().map(example -> example[1]).toArray(String[]::new);
+        int iterations = 200_000;
+        for (int i = 0; i < iterations; i++) {
+            detector.detect(texts[i % texts.length]);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        int detected = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (detector.detect(texts[i % texts.length]) != null) {
+                detected++;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertThat(detected).isPositive();
+        // Mätningen i sig kan allokera några byte, detekteringen ska inte allokera per anrop
+        assertThat(allocated).as("allokerat under %d detekteringar", iterations).isLessThan(iterations / 100);
+        // Generös gräns för långsamma byggmaskiner, normalt några mikrosekunder per text
+        assertThat(TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / (double) iterations)
+                .as("mikrosekunder per detektering").isLessThan(50.0);
+    }
+}
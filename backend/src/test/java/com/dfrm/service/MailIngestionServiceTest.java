@@ -0,0 +1,172 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import jakarta.mail.search.FlagTerm;
+
+/**
+ * Bevakningen mot en lokal IMAP-server: nya meddelanden ska levereras via IDLE inom en
+ * sekund och bevakningen ska återansluta när servern bryter anslutningen.
+ */
+class MailIngestionServiceTest {
+
+    private static final String USER = "felanmalan@example.com";
+    private static final String PASSWORD = "hemligt";
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final MetricsService metricsService = new MetricsService();
+    private volatile GreenMail greenMail;
+    private MailIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = createServer();
+        greenMail.start();
+        service = new MailIngestionService(List.of(new TestMailbox()), metricsService);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "keepaliveSeconds", 300L);
+        // Pollning skulle ta en minut, så snabb leverans visar att IDLE används
+        ReflectionTestUtils.setField(service, "pollSeconds", 60L);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 100L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 400L);
+        ReflectionTestUtils.setField(service, "countRoundTrips", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        greenMail.stop();
+    }
+
+    @Test
+    void deliversNewMessageViaIdleWithinOneSecond() throws Exception {
+        service.start();
+        awaitIdle();
+
+        long started = System.nanoTime();
+        deliver(greenMail, "Felanmalan 1");
+        String subject = received.poll(1, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(subject).as("levererat inom en sekund, tog %d ms", elapsedMs).isEqualTo("Felanmalan 1");
+    }
+
+    @Test
+    void reconnectsAfterServerDropsConnection() throws Exception {
+        service.start();
+        awaitIdle();
+
+        greenMail.stop();
+        assertThat(awaitGauge("connected", 0, 5000)).isTrue();
+        // Meddelandet finns på servern innan den tar emot anslutningar igen
+        GreenMail restarted = createServer();
+        deliver(restarted, "Felanmalan 2");
+        restarted.start();
+        greenMail = restarted;
+
+        // Meddelandet som kom medan anslutningen var nere hämtas vid återanslutningen
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("Felanmalan 2");
+        assertThat(metricsService.count("mail.ingestion.test.reconnects")).isPositive();
+
+        awaitIdle();
+        deliver(greenMail, "Felanmalan 3");
+        assertThat(received.poll(1, TimeUnit.SECONDS)).isEqualTo("Felanmalan 3");
+    }
+
+    private static GreenMail createServer() {
+        GreenMail server = new GreenMail(ServerSetupTest.IMAP.dynamicPort());
+        server.setUser(USER, USER, PASSWORD);
+        return server;
+    }
+
+    private static void deliver(GreenMail server, String subject) throws MessagingException {
+        server.setUser(USER, USER, PASSWORD).deliver(GreenMailUtil.createTextEmail(USER,
+                "hyresgast@example.com", subject, "Meddelande: " + subject, ServerSetupTest.IMAP));
+    }
+
+    /**
+     * Väntar tills bevakningen är ansluten och har hunnit gå in i IDLE
+     */
+    private void awaitIdle() throws InterruptedException {
+        assertThat(awaitGauge("connected", 1, 5000)).isTrue();
+        Thread.sleep(300);
+    }
+
+    private boolean awaitGauge(String gauge, int expected, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            Object value = metricsService.snapshot().get("mail.ingestion.test." + gauge);
+            if (value instanceof Number number && number.intValue() == expected) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    /**
+     * Inkorg mot GreenMail som markerar olästa meddelanden som lästa och rapporterar ämnet
+     */
+    private class TestMailbox implements MailboxProcessor {
+
+        @Override
+        public String getMailboxName() {
+            return "test";
+        }
+
+        @Override
+        public boolean isConfigured() {
+            return true;
+        }
+
+        @Override
+        public Store connect(Properties overrides, PrintStream protocolTrace) throws MessagingException {
+            Properties properties = new Properties();
+            properties.put("mail.store.protocol", "imap");
+            properties.put("mail.imap.host", "127.0.0.1");
+            properties.put("mail.imap.port", String.valueOf(greenMail.getImap().getPort()));
+            properties.put("mail.imap.connectiontimeout", "2000");
+            properties.putAll(overrides);
+            Session session = Session.getInstance(properties);
+            if (protocolTrace != null) {
+                session.setDebug(true);
+                session.setDebugOut(protocolTrace);
+            }
+            Store store = session.getStore("imap");
+            store.connect(USER, PASSWORD);
+            return store;
+        }
+
+        @Override
+        public int syncNewMessages(Folder inbox) throws MessagingException {
+            Message[] unread = inbox.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+            for (Message message : unread) {
+                message.setFlag(Flags.Flag.SEEN, true);
+                received.add(message.getSubject());
+            }
+            return unread.length;
+        }
+    }
+}
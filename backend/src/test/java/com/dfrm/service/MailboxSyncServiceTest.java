@@ -0,0 +1,163 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dfrm.model.MailboxCheckpoint;
+
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.search.SearchTerm;
+
+/**
+ * Meddelanden som misslyckas ska provas igen, även vid den första genomgången av olästa
+ * där checkpointen redan ligger vid inkorgens slut.
+ */
+class MailboxSyncServiceTest {
+
+    private static final long UID_VALIDITY = 7;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final Folder inbox = mock(Folder.class, withSettings().extraInterfaces(UIDFolder.class));
+    private final UIDFolder uidFolder = (UIDFolder) inbox;
+    private final List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+    private final Set<String> persisted = ConcurrentHashMap.newKeySet();
+    private MailboxSyncService service;
+    private MailboxCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() throws MessagingException {
+        service = new MailboxSyncService(mongoTemplate, new MetricsService());
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "prefetchMaxBytes", 0);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "parseThreads", 0);
+        ReflectionTestUtils.setField(service, "persistThreads", 4);
+        service.init();
+
+        when(uidFolder.getUIDValidity()).thenReturn(UID_VALIDITY);
+        when(mongoTemplate.findById(eq("inbox"), eq(MailboxCheckpoint.class))).thenAnswer(inv -> checkpoint);
+        doAnswer(inv -> {
+            checkpoint = inv.getArgument(0);
+            return checkpoint;
+        }).when(mongoTemplate).save(any(MailboxCheckpoint.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void initialSyncRetriesFailedMessageOnNextSync() throws MessagingException {
+        Message[] unread = { message(2), message(4), message(5) };
+        when(inbox.search(any(SearchTerm.class))).thenReturn(unread);
+        when(uidFolder.getUIDNext()).thenReturn(10L);
+        failing.add(4L);
+
+        assertThat(service.sync("inbox", inbox, pipeline())).isEqualTo(2);
+        assertThat(checkpoint.getLastUid()).isEqualTo(9);
+        assertThat(checkpoint.getRetryUids()).containsExactly(4L);
+        assertThat(seen).containsExactly(2L, 5L);
+
+        failing.clear();
+        when(uidFolder.getMessagesByUID(new long[] { 4 })).thenReturn(new Message[] { unread[1] });
+        when(uidFolder.getMessagesByUID(10, UIDFolder.LASTUID)).thenReturn(new Message[0]);
+
+        assertThat(service.sync("inbox", inbox, pipeline())).isEqualTo(1);
+        assertThat(checkpoint.getRetryUids()).isEmpty();
+        assertThat(seen).containsExactly(2L, 5L, 4L);
+        assertThat(persisted).contains("inbox:7:4");
+    }
+
+    @Test
+    void initialSyncSkipsMessageAfterLastAttempt() throws MessagingException {
+        Message failed = message(3);
+        when(inbox.search(any(SearchTerm.class))).thenReturn(new Message[] { failed });
+        when(uidFolder.getUIDNext()).thenReturn(4L);
+        when(uidFolder.getMessagesByUID(new long[] { 3 })).thenReturn(new Message[] { failed });
+        when(uidFolder.getMessagesByUID(4, UIDFolder.LASTUID)).thenReturn(new Message[0]);
+        failing.add(3L);
+
+        service.sync("inbox", inbox, pipeline());
+        service.sync("inbox", inbox, pipeline());
+        assertThat(checkpoint.getRetryUids()).containsExactly(3L);
+        assertThat(checkpoint.getRetryAttempts()).isEqualTo(2);
+
+        service.sync("inbox", inbox, pipeline());
+        assertThat(checkpoint.getRetryUids()).isEmpty();
+        assertThat(seen).isEmpty();
+    }
+
+    @Test
+    void incrementalSyncStopsAtFailureAndResumesFromIt() throws MessagingException {
+        checkpoint = new MailboxCheckpoint("inbox", UID_VALIDITY, 1, 0, 0, new ArrayList<>(), 0, null);
+        Message[] messages = { message(2), message(3), message(4) };
+        when(uidFolder.getMessagesByUID(2, UIDFolder.LASTUID)).thenReturn(messages);
+        failing.add(3L);
+
+        assertThat(service.sync("inbox", inbox, pipeline())).isEqualTo(1);
+        assertThat(checkpoint.getLastUid()).isEqualTo(2);
+        assertThat(checkpoint.getFailedUid()).isEqualTo(3);
+
+        failing.clear();
+        when(uidFolder.getMessagesByUID(3, UIDFolder.LASTUID)).thenReturn(new Message[] { messages[1], messages[2] });
+
+        assertThat(service.sync("inbox", inbox, pipeline())).isEqualTo(2);
+        assertThat(checkpoint.getLastUid()).isEqualTo(4);
+        assertThat(seen).containsExactly(2L, 3L, 4L);
+    }
+
+    private Message message(long uid) throws MessagingException {
+        Message message = mock(Message.class);
+        when(uidFolder.getUID(message)).thenReturn(uid);
+        doAnswer(inv -> {
+            seen.add(uid);
+            return null;
+        }).when(message).setFlag(Flags.Flag.SEEN, true);
+        return message;
+    }
+
+    private MailboxSyncService.MessagePipeline<Long, Long> pipeline() {
+        return new MailboxSyncService.MessagePipeline<>() {
+            @Override
+            public Long read(Message message) throws MessagingException {
+                return uidFolder.getUID(message);
+            }
+
+            @Override
+            public Long parse(Long uid) {
+                return uid;
+            }
+
+            @Override
+            public void persist(Long uid, String sourceMessageId) throws Exception {
+                if (failing.contains(uid)) {
+                    throw new MessagingException("Läsfel för UID " + uid);
+                }
+                persisted.add(sourceMessageId);
+            }
+        };
+    }
+}
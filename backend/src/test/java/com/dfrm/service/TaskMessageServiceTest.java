@@ -0,0 +1,90 @@
+package com.dfrm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.dfrm.client.GoogleTranslateClient;
+import com.dfrm.model.Language;
+import com.dfrm.model.TaskMessage;
+import com.dfrm.repository.TaskMessageRepository;
+import com.dfrm.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Översättningar sparas per språknyckel så att språk som sparas samtidigt inte skriver
+ * över varandra, även när meddelandet saknar översättningar.
+ */
+class TaskMessageServiceTest {
+
+    private final TaskMessageRepository taskMessageRepository = mock(TaskMessageRepository.class);
+    private final GoogleTranslateClient googleTranslateClient = mock(GoogleTranslateClient.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TaskMessageService service = new TaskMessageService(taskMessageRepository,
+            mock(UserRepository.class), googleTranslateClient, mongoTemplate);
+
+    @Test
+    void addsTranslationKeyWhenMapExists() {
+        givenMessage(Map.of("pl", "Dzień dobry"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(TaskMessage.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        List<TaskMessage> messages = service.getMessagesByTaskId("task-1", "en");
+
+        assertThat(messages.get(0).getTranslations()).containsEntry("en", "Hello").containsEntry("pl", "Dzień dobry");
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(TaskMessage.class));
+        assertThat(update.getValue().getUpdateObject())
+                .isEqualTo(new Document("$set", new Document("translations.en", "Hello")));
+    }
+
+    @Test
+    void createsEmptyMapBeforeAddingKeyWhenTranslationsAreNull() {
+        givenMessage(null);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(TaskMessage.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        service.getMessagesByTaskId("task-1", "en");
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(queries.capture(), updates.capture(), eq(TaskMessage.class));
+
+        // Hela mappen skrivs aldrig med ett språk, bara som tom när den saknas
+        assertThat(queries.getAllValues().get(1).getQueryObject())
+                .isEqualTo(new Document("id", "message-1").append("translations", null));
+        assertThat(updates.getAllValues().get(1).getUpdateObject())
+                .isEqualTo(new Document("$set", new Document("translations", Map.of())));
+        assertThat(updates.getAllValues().get(2).getUpdateObject())
+                .isEqualTo(new Document("$set", new Document("translations.en", "Hello")));
+    }
+
+    private void givenMessage(Map<String, String> translations) {
+        TaskMessage message = TaskMessage.builder()
+                .id("message-1")
+                .taskId("task-1")
+                .content("Hej")
+                .language(Language.SV)
+                .translations(translations)
+                .build();
+        when(taskMessageRepository.findByTaskIdOrderByTimestampAsc("task-1")).thenReturn(List.of(message));
+        when(googleTranslateClient.translateAsync("Hej", "sv", "en"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of("Hello")));
+    }
+}
@@ -21,12 +21,12 @@ const TaskMessages = ({ taskId, canSendMessages = true }) => {
   const messagesEndRef = useRef(null);
   const [cachedUsers, setCachedUsers] = useState({});
   
-  // Hämta meddelanden när komponenten laddas eller taskId ändras
+  // Hämta meddelanden när komponenten laddas eller taskId/språk ändras
   useEffect(() => {
     if (taskId) {
       fetchMessages();
     }
-  }, [taskId]);
+  }, [taskId, currentLocale]);
 
   // Hämta användare om de inte finns tillgängliga i auth-kontexten
   useEffect(() => {
@@ -64,7 +64,7 @@ const TaskMessages = ({ taskId, canSendMessages = true }) => {
     try {
       setIsLoading(true);
       setError(null);
-      const data = await taskMessageService.getMessagesByTaskId(taskId);
+      const data = await taskMessageService.getMessagesByTaskId(taskId, false, currentLocale);
       setMessages(data);
     } catch (err) {
       console.error('Error fetching messages:', err);
@@ -7,7 +7,7 @@ import {
   ChartBarIcon,
   EnvelopeIcon,
 } from '@heroicons/react/24/outline';
-import { apartmentService, tenantService, keyService, pendingTaskService, interestService, taskService } from '../services';
+import { apartmentService, tenantService, keyService, pendingTaskService, interestService, taskService, dashboardService } from '../services';
 import { useLocale } from '../contexts/LocaleContext';
 import { useAuth } from '../contexts/AuthContext';
 import { useTheme } from '../contexts/ThemeContext';
@@ -68,13 +68,10 @@ const Dashboard = () => {
   // Funktion för att hämta olästa uppgifter utan cache
   const fetchUnreviewedCount = async () => {
     try {
-      // Skicka true för att ignorera cache
-      const count = await pendingTaskService.getUnreviewedCount(true);
-      setUnreviewedCount(count);
-
-      // Hämta antal olästa intresseanmälningar
-      const interestCount = await interestService.getUnreviewedCount(true);
-      setUnreviewedInterestCount(interestCount);
+      // Hämta alla räknare i ett anrop
+      const counters = await dashboardService.getCounters();
+      setUnreviewedCount(counters.unreviewedPendingTasks);
+      setUnreviewedInterestCount(counters.unreviewedInterests);
     } catch (err) {
       console.error('Error fetching unreviewed count:', err);
     }
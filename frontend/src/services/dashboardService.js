@@ -0,0 +1,18 @@
+import api from './api';
+
+const dashboardService = {
+  // Hämtar alla dashboardräknare i ett anrop
+  getCounters: async () => {
+    try {
+      const response = await api.get('/api/dashboard/counters', {
+        params: { t: new Date().getTime() }
+      });
+      return response.data;
+    } catch (error) {
+      console.error('Error fetching dashboard counters:', error);
+      throw error;
+    }
+  },
+};
+
+export default dashboardService;
@@ -10,6 +10,7 @@ import emailService from './emailService';
 import taskMessageService from './taskMessageService';
 import { interestService } from './interestService';
 import showingService from './showingService';
+import dashboardService from './dashboardService';
 
 export {
   apartmentService,
@@ -23,5 +24,6 @@ export {
   emailService,
   taskMessageService,
   interestService,
-  showingService
+  showingService,
+  dashboardService
 }; 
\ No newline at end of file
@@ -9,21 +9,28 @@ const getMessagesCacheKey = (taskId) => `${CACHE_KEYS.TASKS}_${taskId}_messages`
  * 
  * @param {string} taskId ID för uppgiften
  * @param {boolean} bypassCache Om true, hämtas data direkt från API oavsett cache
+ * @param {string} language Språket meddelandena ska översättas till, annars användarens föredragna språk
  * @returns {Promise<Array>} Lista med meddelanden
  */
-export const getMessagesByTaskId = async (taskId, bypassCache = false) => {
+export const getMessagesByTaskId = async (taskId, bypassCache = false, language = undefined) => {
   try {
     // Skapa en unik cache-nyckel för denna uppgifts meddelanden
     const cacheKey = `${CACHE_KEYS.TASK_MESSAGES}_${taskId}`;
     
-    // Kontrollera om data finns i cache och om vi inte explicit vill gå förbi cachen
+    // Kontrollera om data finns i cache och om vi inte explicit vill gå förbi cachen.
+    // Översättningar skapas först vid läsning, så cachen duger bara om den har språket.
+    // Meddelandets språk kommer som enum-namn (SV) och jämförs med språkkoden (sv).
     if (!bypassCache) {
       const cachedData = getFromCache(cacheKey);
-      if (cachedData) return cachedData;
+      const hasLanguage = !language || (cachedData && cachedData.every(message =>
+        message.language?.toLowerCase() === language || (message.translations && message.translations[language])));
+      if (cachedData && hasLanguage) return cachedData;
     }
     
     // Hämta data från API om det inte finns i cache eller om vi vill gå förbi cachen
-    const response = await api.get(`/api/tasks/${taskId}/messages`);
+    const response = await api.get(`/api/tasks/${taskId}/messages`, {
+      params: language ? { language } : undefined
+    });
     
     // Spara den nya datan i cache endast om API-anropet lyckades
     if (response.data) {